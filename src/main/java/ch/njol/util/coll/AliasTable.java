@@ -0,0 +1,122 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.Random;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Picks random indices according to fixed weights in constant time using Walker's alias method (in the numerically stable variant of Vose).
+ * <p>
+ * Building the table takes O(n) time, after which each pick only needs one random integer and one random double. The table is immutable and thus thread-safe.
+ * 
+ * @author Peter Güttinger
+ */
+public final class AliasTable {
+	
+	/**
+	 * Probability to pick an index itself instead of its alias
+	 */
+	private final double[] probabilities;
+	private final int[] aliases;
+	
+	/**
+	 * @param weights The relative weights of the indices. Must all be non-negative and finite, and at least one weight must be positive.
+	 * @throws IllegalArgumentException If the weights are invalid
+	 */
+	public AliasTable(final double[] weights) {
+		final int n = weights.length;
+		double sum = 0;
+		for (final double w : weights) {
+			if (!(w >= 0) || Double.isInfinite(w))
+				throw new IllegalArgumentException("Invalid weight " + w);
+			sum += w;
+		}
+		if (!(sum > 0) || Double.isInfinite(sum))
+			throw new IllegalArgumentException("The sum of the weights must be positive and finite, but is " + sum);
+		
+		probabilities = new double[n];
+		aliases = new int[n];
+		
+		final double[] scaled = new double[n];
+		final int[] small = new int[n], large = new int[n];
+		int smallSize = 0, largeSize = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / sum;
+			if (scaled[i] < 1)
+				small[smallSize++] = i;
+			else
+				large[largeSize++] = i;
+		}
+		while (smallSize > 0 && largeSize > 0) {
+			final int s = small[--smallSize], l = large[--largeSize];
+			probabilities[s] = scaled[s];
+			aliases[s] = l;
+			scaled[l] = (scaled[l] + scaled[s]) - 1;
+			if (scaled[l] < 1)
+				small[smallSize++] = l;
+			else
+				large[largeSize++] = l;
+		}
+		// remaining entries are 1 except for rounding errors
+		while (largeSize > 0)
+			probabilities[large[--largeSize]] = 1;
+		while (smallSize > 0)
+			probabilities[small[--smallSize]] = 1;
+	}
+	
+	/**
+	 * @return The number of indices this table picks from
+	 */
+	public int size() {
+		return probabilities.length;
+	}
+	
+	/**
+	 * Picks a random index using the current thread's random number generator.
+	 * 
+	 * @return An index in the range [0, size()) chosen with a probability proportional to its weight
+	 */
+	public int next() {
+		return next(CollectionUtils.random());
+	}
+	
+	/**
+	 * @param random The random number generator to use, e.g. a seeded one to get reproducible results
+	 * @return An index in the range [0, size()) chosen with a probability proportional to its weight
+	 */
+	public int next(final Random random) {
+		final int i = random.nextInt(probabilities.length);
+		return random.nextDouble() < probabilities[i] ? i : aliases[i];
+	}
+	
+	/**
+	 * @param array An array with at least {@link #size()} elements
+	 * @return The element at a random index chosen with {@link #next()}, or null if the array is null
+	 */
+	@Nullable
+	public <T> T next(final @Nullable T[] array) {
+		if (array == null)
+			return null;
+		return array[next()];
+	}
+	
+}
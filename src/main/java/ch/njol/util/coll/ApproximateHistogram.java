@@ -0,0 +1,149 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+/**
+ * Counts values in logarithmic buckets to find approximate percentiles of the values of the primitive cyclic lists. Each power of two is divided into 32 buckets, thus a
+ * percentile is at most about 1.6% off from an actual value. Values can be removed again, thus the histogram can follow a sliding window.
+ * <p>
+ * The bucket of a value is taken from the upper bits of the binary representation of its absolute value, which are ordered like the values themselves. Positive and
+ * negative values have separate buckets, of which only the range that has been used is allocated, and zeros are only counted.
+ * 
+ * @author Peter Güttinger
+ */
+final class ApproximateHistogram {
+	
+	/**
+	 * The number of mantissa bits that are used to divide powers of two
+	 */
+	private final static int PRECISION = 5;
+	private final static int SHIFT = 52 - PRECISION;
+	
+	/**
+	 * The buckets of positive or negative values.
+	 */
+	private final static class Buckets {
+		
+		int[] counts = new int[0];
+		/**
+		 * The bucket of <tt>counts[0]</tt>
+		 */
+		long offset = 0;
+		
+		Buckets() {}
+		
+		void add(final long b) {
+			if (counts.length == 0) {
+				counts = new int[16];
+				offset = b - 8;
+			} else if (b < offset || b >= offset + counts.length) {
+				final long low = Math.min(b, offset), high = Math.max(b + 1, offset + counts.length);
+				final int length = (int) Math.max(high - low, counts.length * 2L);
+				final long newOffset = b < offset ? high - length : low;
+				final int[] c = new int[length];
+				System.arraycopy(counts, 0, c, (int) (offset - newOffset), counts.length);
+				counts = c;
+				offset = newOffset;
+			}
+			counts[(int) (b - offset)]++;
+		}
+		
+		void remove(final long b) {
+			counts[(int) (b - offset)]--;
+		}
+		
+	}
+	
+	private final Buckets positive = new Buckets(), negative = new Buckets();
+	private int zeros = 0;
+	
+	ApproximateHistogram() {}
+	
+	private final static long bucket(final double value) {
+		return Double.doubleToRawLongBits(Math.abs(value)) >>> SHIFT;
+	}
+	
+	/**
+	 * @return The middle of the given bucket
+	 */
+	private final static double value(final long bucket) {
+		final double low = Double.longBitsToDouble(bucket << SHIFT);
+		return Double.isInfinite(low) ? low : low + (Double.longBitsToDouble((bucket + 1) << SHIFT) - low) / 2;
+	}
+	
+	/**
+	 * @throws IllegalArgumentException If the value is NaN
+	 */
+	void add(final double value) {
+		if (value > 0)
+			positive.add(bucket(value));
+		else if (value < 0)
+			negative.add(bucket(value));
+		else if (value == 0)
+			zeros++;
+		else
+			throw new IllegalArgumentException("NaN");
+	}
+	
+	/**
+	 * Removes a value that has been added before.
+	 */
+	void remove(final double value) {
+		if (value > 0)
+			positive.remove(bucket(value));
+		else if (value < 0)
+			negative.remove(bucket(value));
+		else
+			zeros--;
+	}
+	
+	void clear() {
+		positive.counts = new int[0];
+		negative.counts = new int[0];
+		zeros = 0;
+	}
+	
+	/**
+	 * @param percentile The percentile to find, from 0 to 100
+	 * @param size The number of values in this histogram
+	 * @return The middle of the bucket that contains the value of the given percentile (using the nearest-rank method)
+	 */
+	double percentile(final double percentile, final int size) {
+		final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * size));
+		long n = 0;
+		final int[] negatives = negative.counts;
+		for (int i = negatives.length - 1; i >= 0; i--) {
+			n += negatives[i];
+			if (n >= rank)
+				return -value(negative.offset + i);
+		}
+		n += zeros;
+		if (n >= rank)
+			return 0;
+		final int[] positives = positive.counts;
+		for (int i = 0; i < positives.length; i++) {
+			n += positives[i];
+			if (n >= rank)
+				return value(positive.offset + i);
+		}
+		throw new IllegalStateException();
+	}
+	
+}
@@ -0,0 +1,152 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Math2;
+
+/**
+ * A hash index over the keys of {@link ArrayMap} and {@link ArraySet} (and over the arrays of {@link FrozenBidiMap} and {@link EnumBidiMap}): an open addressing table
+ * with linear probing which stores positions in the key array instead of the keys themselves.
+ * 
+ * @author Peter Güttinger
+ */
+final class ArrayIndex implements Cloneable {
+	
+	/**
+	 * Positions in the key array plus one, 0 marks free slots
+	 */
+	private int[] table;
+	private int mask;
+	
+	/**
+	 * Creates an index of the first <tt>size</tt> keys of the given array, which must all be different.
+	 */
+	ArrayIndex(final Object[] keys, final int size) {
+		table = new int[Math2.nextPowerOfTwo(Math.max(8, size) * 2)];
+		mask = table.length - 1;
+		for (int i = 0; i < size; i++)
+			insert(keys[i], i);
+	}
+	
+	private final static int hash(final @Nullable Object key) {
+		if (key == null)
+			return 0;
+		final int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	private final static boolean equals(final @Nullable Object k1, final @Nullable Object k2) {
+		return k1 == k2 || k1 != null && k1.equals(k2);
+	}
+	
+	private void insert(final @Nullable Object key, final int pos) {
+		int i = hash(key) & mask;
+		while (table[i] != 0)
+			i = (i + 1) & mask;
+		table[i] = pos + 1;
+	}
+	
+	/**
+	 * @return The position of the key in the key array, or -1 if it is not in the index
+	 */
+	int find(final Object[] keys, final @Nullable Object key) {
+		final int[] table = this.table;
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			final int p = table[i];
+			if (p == 0)
+				return -1;
+			if (equals(keys[p - 1], key))
+				return p - 1;
+		}
+	}
+	
+	/**
+	 * Adds the key at the given position to the index.
+	 * 
+	 * @param size The number of keys including the new one
+	 */
+	void add(final Object[] keys, final int pos, final int size) {
+		if (size > table.length / 2) {
+			final int[] old = table;
+			table = new int[old.length * 2];
+			mask = table.length - 1;
+			for (final int p : old) {
+				if (p != 0)
+					insert(keys[p - 1], p - 1);
+			}
+		}
+		insert(keys[pos], pos);
+	}
+	
+	/**
+	 * Removes the key at the given position from the index. If it is not the last key, the last key must be moved to this position afterwards, which is reflected in the
+	 * index by this method. The key array must not have been modified yet.
+	 * 
+	 * @param pos The position of the key to remove
+	 * @param last The position of the last key
+	 */
+	void remove(final Object[] keys, final int pos, final int last) {
+		removeSlot(keys, slotOf(keys, pos));
+		if (pos != last)
+			table[slotOf(keys, last)] = pos + 1;
+	}
+	
+	private int slotOf(final Object[] keys, final int pos) {
+		int i = hash(keys[pos]) & mask;
+		while (table[i] != pos + 1)
+			i = (i + 1) & mask;
+		return i;
+	}
+	
+	/**
+	 * Frees the given slot and moves subsequent slots of the probe sequence back so that no key becomes unreachable.
+	 */
+	private void removeSlot(final Object[] keys, int free) {
+		final int[] table = this.table;
+		int i = free;
+		while (true) {
+			i = (i + 1) & mask;
+			final int p = table[i];
+			if (p == 0)
+				break;
+			final int home = hash(keys[p - 1]) & mask;
+			// move p back if its home slot is not in the cyclic range (free, i]
+			if (free <= i ? home <= free || home > i : home <= free && home > i) {
+				table[free] = p;
+				free = i;
+			}
+		}
+		table[free] = 0;
+	}
+	
+	@Override
+	public ArrayIndex clone() {
+		try {
+			final ArrayIndex r = (ArrayIndex) super.clone();
+			r.table = table.clone();
+			return r;
+		} catch (final CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+}
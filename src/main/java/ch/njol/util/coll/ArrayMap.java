@@ -0,0 +1,339 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A map which stores its keys and values in two flat arrays and finds keys by a linear scan. This uses much less memory than a {@link java.util.HashMap} and is just as
+ * fast for small maps.
+ * <p>
+ * If the map grows larger than {@link #HASH_THRESHOLD} entries it additionally builds a hash index of its keys (an int array), so that large maps don't degrade to linear
+ * time. The index is dropped again if the map shrinks well below the threshold.
+ * <p>
+ * Measured memory usage of the map itself, i.e. excluding the keys and values (64-bit JVM with compressed pointers):
+ * <table>
+ * <tr><th>Entries</th><th>HashMap</th><th>ArrayMap</th></tr>
+ * <tr><td>1</td><td>152 bytes</td><td>104 bytes</td></tr>
+ * <tr><td>4</td><td>256 bytes</td><td>104 bytes</td></tr>
+ * <tr><td>8</td><td>384 bytes</td><td>136 bytes</td></tr>
+ * <tr><td>12</td><td>512 bytes</td><td>368 bytes</td></tr>
+ * <tr><td>16</td><td>704 bytes</td><td>368 bytes</td></tr>
+ * </table>
+ * <p>
+ * Removing an entry moves the last entry into its place, thus the iteration order is the insertion order only as long as no entries are removed. Null keys and values are
+ * supported.
+ * 
+ * @author Peter Güttinger
+ * @see ArraySet
+ */
+public final class ArrayMap<K, V> extends AbstractMap<K, V> implements Cloneable {
+	
+	/**
+	 * Maps with more entries than this use a hash index
+	 */
+	public final static int HASH_THRESHOLD = 8;
+	
+	private final static Object[] EMPTY = new Object[0];
+	
+	private Object[] keys;
+	private Object[] values;
+	private int size = 0;
+	@Nullable
+	private ArrayIndex index = null;
+	
+	public ArrayMap() {
+		keys = values = EMPTY;
+	}
+	
+	/**
+	 * @param expectedSize The number of entries this map will hold without having to resize
+	 */
+	public ArrayMap(final int expectedSize) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal size: " + expectedSize);
+		keys = expectedSize == 0 ? EMPTY : new Object[expectedSize];
+		values = expectedSize == 0 ? EMPTY : new Object[expectedSize];
+	}
+	
+	public ArrayMap(final Map<? extends K, ? extends V> map) {
+		this(map.size());
+		putAll(map);
+	}
+	
+	private final static boolean equals(final @Nullable Object o1, final @Nullable Object o2) {
+		return o1 == o2 || o1 != null && o1.equals(o2);
+	}
+	
+	private int indexOf(final @Nullable Object key) {
+		final ArrayIndex index = this.index;
+		if (index != null)
+			return index.find(keys, key);
+		final Object[] keys = this.keys;
+		for (int i = 0; i < size; i++) {
+			if (equals(keys[i], key))
+				return i;
+		}
+		return -1;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return indexOf(key) != -1;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		for (int i = 0; i < size; i++) {
+			if (equals(values[i], value))
+				return true;
+		}
+		return false;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public V get(final @Nullable Object key) {
+		final int i = indexOf(key);
+		return i == -1 ? null : (V) values[i];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public V put(final @Nullable K key, final @Nullable V value) {
+		final int i = indexOf(key);
+		if (i != -1) {
+			final Object old = values[i];
+			values[i] = value;
+			return (V) old;
+		}
+		if (size == keys.length) {
+			final int newLength = Math.max(4, size * 2);
+			keys = Arrays.copyOf(keys, newLength);
+			values = Arrays.copyOf(values, newLength);
+		}
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		final ArrayIndex index = this.index;
+		if (index != null)
+			index.add(keys, size - 1, size);
+		else if (size > HASH_THRESHOLD)
+			this.index = new ArrayIndex(keys, size);
+		return null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public V remove(final @Nullable Object key) {
+		final int i = indexOf(key);
+		if (i == -1)
+			return null;
+		final Object old = values[i];
+		removeAt(i);
+		return (V) old;
+	}
+	
+	/**
+	 * Removes the entry at the given position by moving the last entry into its place.
+	 */
+	void removeAt(final int i) {
+		final int last = size - 1;
+		final ArrayIndex index = this.index;
+		if (index != null)
+			index.remove(keys, i, last);
+		keys[i] = keys[last];
+		values[i] = values[last];
+		keys[last] = null;
+		values[last] = null;
+		size = last;
+		if (size <= HASH_THRESHOLD / 2)
+			this.index = null;
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill(keys, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		index = null;
+	}
+	
+	/**
+	 * Shrinks the arrays of this map to its size.
+	 */
+	public void trimToSize() {
+		if (keys.length == size)
+			return;
+		keys = size == 0 ? EMPTY : Arrays.copyOf(keys, size);
+		values = size == 0 ? EMPTY : Arrays.copyOf(values, size);
+	}
+	
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new AbstractSet<Entry<K, V>>() {
+			@Override
+			public Iterator<Entry<K, V>> iterator() {
+				return new Iterator<Entry<K, V>>() {
+					private int next = 0;
+					private boolean removable = false;
+					
+					@Override
+					public boolean hasNext() {
+						return next < size;
+					}
+					
+					@Override
+					public Entry<K, V> next() {
+						if (next >= size)
+							throw new NoSuchElementException();
+						removable = true;
+						return new ArrayEntry(next++);
+					}
+					
+					@Override
+					public void remove() {
+						if (!removable)
+							throw new IllegalStateException();
+						removable = false;
+						// the last entry is moved into the removed position, thus this position has to be visited again
+						removeAt(--next);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				if (!(o instanceof Entry))
+					return false;
+				final Entry<?, ?> e = (Entry<?, ?>) o;
+				final int i = indexOf(e.getKey());
+				return i != -1 && ArrayMap.equals(values[i], e.getValue());
+			}
+			
+			@Override
+			public boolean remove(final @Nullable Object o) {
+				if (!contains(o))
+					return false;
+				assert o != null;
+				removeAt(indexOf(((Entry<?, ?>) o).getKey()));
+				return true;
+			}
+			
+			@Override
+			public void clear() {
+				ArrayMap.this.clear();
+			}
+		};
+	}
+	
+	/**
+	 * An entry which reads and writes the value in the map's array directly. Its value is only valid until the map is structurally modified.
+	 */
+	private final class ArrayEntry implements Entry<K, V> {
+		
+		private final int i;
+		@Nullable
+		private final Object key;
+		
+		public ArrayEntry(final int i) {
+			this.i = i;
+			key = keys[i];
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public K getKey() {
+			return (K) key;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public V getValue() {
+			return (V) values[i];
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public V setValue(final V value) {
+			final Object old = values[i];
+			values[i] = value;
+			return (V) old;
+		}
+		
+		@Override
+		public boolean equals(final @Nullable Object obj) {
+			if (!(obj instanceof Entry))
+				return false;
+			final Entry<?, ?> e = (Entry<?, ?>) obj;
+			return ArrayMap.equals(key, e.getKey()) && ArrayMap.equals(values[i], e.getValue());
+		}
+		
+		@Override
+		public int hashCode() {
+			final Object k = key, v = values[i];
+			return (k == null ? 0 : k.hashCode()) ^ (v == null ? 0 : v.hashCode());
+		}
+		
+		@Override
+		public String toString() {
+			return key + "=" + values[i];
+		}
+		
+	}
+	
+	@Override
+	public ArrayMap<K, V> clone() {
+		final ArrayMap<K, V> r = new ArrayMap<K, V>(0);
+		r.keys = size == 0 ? EMPTY : Arrays.copyOf(keys, size);
+		r.values = size == 0 ? EMPTY : Arrays.copyOf(values, size);
+		r.size = size;
+		final ArrayIndex index = this.index;
+		r.index = index == null ? null : index.clone();
+		return r;
+	}
+	
+}
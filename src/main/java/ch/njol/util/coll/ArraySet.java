@@ -0,0 +1,214 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A set which stores its elements in a flat array and finds elements by a linear scan. This uses much less memory than a {@link java.util.HashSet} (which is backed by a
+ * HashMap) and is just as fast for small sets.
+ * <p>
+ * If the set grows larger than {@link #HASH_THRESHOLD} elements it additionally builds a hash index of its elements, so that large sets don't degrade to linear time. The
+ * index is dropped again if the set shrinks well below the threshold.
+ * <p>
+ * Measured memory usage of the set itself, i.e. excluding the elements (64-bit JVM with compressed pointers):
+ * <table>
+ * <tr><th>Elements</th><th>HashSet</th><th>ArraySet</th></tr>
+ * <tr><td>1</td><td>176 bytes</td><td>56 bytes</td></tr>
+ * <tr><td>4</td><td>272 bytes</td><td>56 bytes</td></tr>
+ * <tr><td>8</td><td>400 bytes</td><td>72 bytes</td></tr>
+ * <tr><td>12</td><td>528 bytes</td><td>272 bytes</td></tr>
+ * <tr><td>16</td><td>720 bytes</td><td>272 bytes</td></tr>
+ * </table>
+ * <p>
+ * Removing an element moves the last element into its place, thus the iteration order is the insertion order only as long as no elements are removed. Null elements are
+ * supported.
+ * 
+ * @author Peter Güttinger
+ * @see ArrayMap
+ */
+public final class ArraySet<E> extends AbstractSet<E> implements Cloneable {
+	
+	/**
+	 * Sets with more elements than this use a hash index
+	 */
+	public final static int HASH_THRESHOLD = ArrayMap.HASH_THRESHOLD;
+	
+	private final static Object[] EMPTY = new Object[0];
+	
+	private Object[] elements;
+	private int size = 0;
+	@Nullable
+	private ArrayIndex index = null;
+	
+	public ArraySet() {
+		elements = EMPTY;
+	}
+	
+	/**
+	 * @param expectedSize The number of elements this set will hold without having to resize
+	 */
+	public ArraySet(final int expectedSize) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal size: " + expectedSize);
+		elements = expectedSize == 0 ? EMPTY : new Object[expectedSize];
+	}
+	
+	public ArraySet(final Collection<? extends E> elements) {
+		this(elements.size());
+		addAll(elements);
+	}
+	
+	private int indexOf(final @Nullable Object o) {
+		final ArrayIndex index = this.index;
+		if (index != null)
+			return index.find(elements, o);
+		final Object[] elements = this.elements;
+		for (int i = 0; i < size; i++) {
+			final Object e = elements[i];
+			if (e == o || e != null && e.equals(o))
+				return i;
+		}
+		return -1;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean contains(final @Nullable Object o) {
+		return indexOf(o) != -1;
+	}
+	
+	@Override
+	public boolean add(final @Nullable E e) {
+		if (indexOf(e) != -1)
+			return false;
+		if (size == elements.length)
+			elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+		elements[size++] = e;
+		final ArrayIndex index = this.index;
+		if (index != null)
+			index.add(elements, size - 1, size);
+		else if (size > HASH_THRESHOLD)
+			this.index = new ArrayIndex(elements, size);
+		return true;
+	}
+	
+	@Override
+	public boolean remove(final @Nullable Object o) {
+		final int i = indexOf(o);
+		if (i == -1)
+			return false;
+		removeAt(i);
+		return true;
+	}
+	
+	/**
+	 * Removes the element at the given position by moving the last element into its place.
+	 */
+	private void removeAt(final int i) {
+		final int last = size - 1;
+		final ArrayIndex index = this.index;
+		if (index != null)
+			index.remove(elements, i, last);
+		elements[i] = elements[last];
+		elements[last] = null;
+		size = last;
+		if (size <= HASH_THRESHOLD / 2)
+			this.index = null;
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+		index = null;
+	}
+	
+	/**
+	 * Shrinks the array of this set to its size.
+	 */
+	public void trimToSize() {
+		if (elements.length != size)
+			elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+	}
+	
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int next = 0;
+			private boolean removable = false;
+			
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+			
+			@SuppressWarnings("unchecked")
+			@Override
+			@Nullable
+			public E next() {
+				if (next >= size)
+					throw new NoSuchElementException();
+				removable = true;
+				return (E) elements[next++];
+			}
+			
+			@Override
+			public void remove() {
+				if (!removable)
+					throw new IllegalStateException();
+				removable = false;
+				// the last element is moved into the removed position, thus this position has to be visited again
+				removeAt(--next);
+			}
+		};
+	}
+	
+	@Override
+	public Object[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+	
+	@Override
+	public ArraySet<E> clone() {
+		final ArraySet<E> r = new ArraySet<E>(0);
+		r.elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+		r.size = size;
+		final ArrayIndex index = this.index;
+		r.index = index == null ? null : index.clone();
+		return r;
+	}
+	
+}
@@ -29,6 +29,8 @@ import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * @author Peter Güttinger
+ * @see CompactBidiMap
+ * @see BidiMapSnapshot
  */
 public class BidiHashMap<T1, T2> extends HashMap<T1, T2> implements BidiMap<T1, T2> {
 	
@@ -77,9 +79,9 @@ public class BidiHashMap<T1, T2> extends HashMap<T1, T2> implements BidiMap<T1,
 		if (key == null || value == null)
 			throw new NullPointerException("Can't store null in a BidiHashMap");
 		
-		removeDirect(key);
-		other.removeDirect(value);
-		final T2 oldValue = putDirect(key, value);
+		final T2 oldValue = remove(key);
+		other.remove(value);
+		putDirect(key, value);
 		other.putDirect(value, key);
 		return oldValue;
 	}
@@ -145,6 +147,22 @@ public class BidiHashMap<T1, T2> extends HashMap<T1, T2> implements BidiMap<T1,
 		return Collections.unmodifiableSet(other.keySet());
 	}
 	
+	/**
+	 * Creates an immutable copy of this map which uses less memory and is faster to read from, e.g. for tables that are built once and read often. Changes to this map are
+	 * not reflected in the copy.
+	 * 
+	 * @return A new immutable map with the same pairs as this map
+	 */
+	public FrozenBidiMap<T1, T2> freeze() {
+		final Object[] keys = new Object[size()], values = new Object[size()];
+		int i = 0;
+		for (final Entry<T1, T2> e : super.entrySet()) {
+			keys[i] = e.getKey();
+			values[i++] = e.getValue();
+		}
+		return new FrozenBidiMap<T1, T2>(keys, values);
+	}
+	
 	@Override
 	public BidiHashMap<T1, T2> clone() {
 		return new BidiHashMap<T1, T2>(this);
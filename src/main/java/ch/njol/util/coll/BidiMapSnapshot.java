@@ -0,0 +1,571 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ConcurrentModificationException;
+import java.util.Map.Entry;
+
+/**
+ * Reads and writes {@link BidiMap}s in a compact binary format, with the keys and values encoded by {@link Codec}s.
+ * <p>
+ * A snapshot can either be read completely into a {@link BidiHashMap} with {@link #read(ReadableByteChannel, Codec, Codec)}, or it can be memory-mapped with
+ * {@link #map(FileChannel, Codec, Codec)}, which returns a {@link MappedBidiMap} that serves lookups directly from the file. Snapshots written with a lookup index can be
+ * mapped in constant time regardless of their size, thus mapping is a lot faster than reading if only a part of the map is used. Snapshots without an index are smaller,
+ * and mapping them reads the file once to build the index in memory (without decoding any objects).
+ * <p>
+ * The format (big endian, version 2) is:
+ * <ul>
+ * <li>a header of six ints: a magic number, the version, the number of pairs, the length of every encoded key or -1 if their length varies, the same for the values, and
+ * the length of the hash tables, or 0 if the snapshot has no index
+ * <li>the pairs, each as the encoded key followed by the encoded value. Encoded objects of varying length are preceded by their length as a variable-length int (7 bits per
+ * byte, least significant first, the highest bit of each byte set if another byte follows).
+ * <li>if the snapshot has an index: the offset of each pair in the file as an int (only if keys or values vary in length), followed by a hash table of the keys and one of
+ * the values. Each slot is an int containing the number of a pair plus one, or 0 for free slots. The tables use linear probing, are at most two thirds full, and the first
+ * slot of an object is <tt>(hash * length) &gt;&gt;&gt; 32</tt> with the hash of the encoded object as unsigned int.
+ * </ul>
+ * The index is at the end of the file as its position depends on the size of the pairs. Snapshots can be at most 2 GiB large.
+ * 
+ * @author Peter Güttinger
+ * @see MappedBidiMap
+ */
+public final class BidiMapSnapshot {
+	
+	private BidiMapSnapshot() {}
+	
+	final static int MAGIC = 0x42444D53;
+	final static int VERSION = 2;
+	final static int HEADER_SIZE = 6 * 4;
+	
+	private final static int BUFFER_SIZE = 1 << 16;
+	
+	private final static Charset UTF_8 = Charset.forName("UTF-8");
+	
+	/**
+	 * Converts objects to bytes and back. Equal objects must be encoded to the same bytes, as a {@link MappedBidiMap} finds objects by comparing their encoded form.
+	 * 
+	 * @see FixedLengthCodec
+	 */
+	public static interface Codec<T> {
+		
+		public byte[] encode(T t);
+		
+		/**
+		 * @param buffer A buffer containing exactly the bytes of an encoded object between its position and its limit
+		 */
+		public T decode(ByteBuffer buffer);
+		
+	}
+	
+	/**
+	 * A codec which encodes all objects to the same number of bytes, thus snapshots don't have to store the length of each encoded object.
+	 */
+	public static interface FixedLengthCodec<T> extends Codec<T> {
+		
+		/**
+		 * @return The length of every encoded object
+		 */
+		public int length();
+		
+	}
+	
+	public final static Codec<String> STRING = new Codec<String>() {
+		@SuppressWarnings("null")
+		@Override
+		public byte[] encode(final String s) {
+			return s.getBytes(UTF_8);
+		}
+		
+		@SuppressWarnings("null")
+		@Override
+		public String decode(final ByteBuffer buffer) {
+			if (buffer.hasArray())
+				return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), UTF_8);
+			final byte[] b = new byte[buffer.remaining()];
+			buffer.get(b);
+			return new String(b, UTF_8);
+		}
+	};
+	
+	public final static FixedLengthCodec<Integer> INTEGER = new FixedLengthCodec<Integer>() {
+		@SuppressWarnings("null")
+		@Override
+		public byte[] encode(final Integer i) {
+			return ByteBuffer.allocate(4).putInt(i).array();
+		}
+		
+		@SuppressWarnings("null")
+		@Override
+		public Integer decode(final ByteBuffer buffer) {
+			return buffer.getInt(buffer.position());
+		}
+		
+		@Override
+		public int length() {
+			return 4;
+		}
+	};
+	
+	public final static FixedLengthCodec<Long> LONG = new FixedLengthCodec<Long>() {
+		@SuppressWarnings("null")
+		@Override
+		public byte[] encode(final Long l) {
+			return ByteBuffer.allocate(8).putLong(l).array();
+		}
+		
+		@SuppressWarnings("null")
+		@Override
+		public Long decode(final ByteBuffer buffer) {
+			return buffer.getLong(buffer.position());
+		}
+		
+		@Override
+		public int length() {
+			return 8;
+		}
+	};
+	
+	/**
+	 * The hash of an encoded object stored in the hash tables. This must never change for a given version of the format.
+	 */
+	final static int hash(final byte[] b) {
+		int h = 0x811C9DC5;
+		for (final byte x : b)
+			h = (h ^ x) * 0x01000193;
+		return mix(h);
+	}
+	
+	/**
+	 * Calculates the same hash as {@link #hash(byte[])} of the given bytes of a buffer.
+	 */
+	final static int hash(final ByteBuffer buffer, final int position, final int length) {
+		int h = 0x811C9DC5;
+		for (int i = position; i < position + length; i++)
+			h = (h ^ buffer.get(i)) * 0x01000193;
+		return mix(h);
+	}
+	
+	private final static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * @return The length of the hash tables of a snapshot of the given size
+	 */
+	final static int tableLength(final int size) {
+		return size + size / 2 + 1;
+	}
+	
+	/**
+	 * @return The first slot of a hash table where an object with the given hash is searched
+	 */
+	final static int slot(final int hash, final int tableLength) {
+		return (int) ((hash & 0xFFFFFFFFL) * tableLength >>> 32);
+	}
+	
+	/**
+	 * @return The length of a codec's encoded objects, or -1 if it varies
+	 */
+	private final static int length(final Codec<?> codec) {
+		return codec instanceof FixedLengthCodec ? ((FixedLengthCodec<?>) codec).length() : -1;
+	}
+	
+	/**
+	 * @return The number of bytes of the given length as a variable-length int
+	 */
+	final static int lengthSize(final int length) {
+		return length < 1 << 7 ? 1 : length < 1 << 14 ? 2 : length < 1 << 21 ? 3 : length < 1 << 28 ? 4 : 5;
+	}
+	
+	/**
+	 * Reads a variable-length int.
+	 * 
+	 * @return The length of an encoded object stored at the given position, or -1 if it is corrupt
+	 */
+	final static int readLength(final ByteBuffer buffer, final int position) {
+		int length = 0;
+		for (int i = 0; i < 5; i++) {
+			final byte b = buffer.get(position + i);
+			length |= (b & 0x7F) << 7 * i;
+			if (b >= 0)
+				return length < 0 ? -1 : length;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Writes a snapshot of the given map to the given channel without a lookup index. The map must not be modified while it is written.
+	 * 
+	 * @throws IOException If writing to the channel fails, or if the snapshot would be larger than 2 GiB
+	 * @throws ConcurrentModificationException If the size of the map changes while it is written
+	 * @see #write(BidiMap, WritableByteChannel, Codec, Codec, boolean)
+	 */
+	public final static <T1, T2> void write(final BidiMap<T1, T2> map, final WritableByteChannel channel, final Codec<? super T1> keyCodec, final Codec<? super T2> valueCodec)
+			throws IOException {
+		write(map, channel, keyCodec, valueCodec, false);
+	}
+	
+	/**
+	 * Writes a snapshot of the given map to the given channel. The map must not be modified while it is written.
+	 * 
+	 * @param index Whether to store the lookup index in the snapshot, so that {@link #map(FileChannel, Codec, Codec) mapping} it takes constant time instead of reading the
+	 *            whole file once. The index takes 12 bytes per pair, plus 4 bytes per pair if keys or values vary in length.
+	 * @throws IOException If writing to the channel fails, or if the snapshot would be larger than 2 GiB
+	 * @throws ConcurrentModificationException If the size of the map changes while it is written
+	 * @throws IllegalArgumentException If a {@link FixedLengthCodec} returns an encoded object of a different length
+	 */
+	public final static <T1, T2> void write(final BidiMap<T1, T2> map, final WritableByteChannel channel, final Codec<? super T1> keyCodec, final Codec<? super T2> valueCodec,
+			final boolean index) throws IOException {
+		final int size = map.size();
+		final int keyLength = length(keyCodec), valueLength = length(valueCodec);
+		final boolean hasOffsets = index && (keyLength < 0 || valueLength < 0);
+		final int tableLength = index ? tableLength(size) : 0;
+		final long indexSize = (hasOffsets ? 4L * size : 0) + 8L * tableLength;
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(keyLength).putInt(valueLength).putInt(tableLength);
+		long position = HEADER_SIZE;
+		final int[] offsets = hasOffsets ? new int[size] : null;
+		final int[] keyTable = new int[tableLength], valueTable = new int[tableLength];
+		int i = 0;
+		for (final Entry<T1, T2> e : map.entrySet()) {
+			if (i == size)
+				throw new ConcurrentModificationException();
+			final byte[] key = keyCodec.encode(e.getKey()), value = valueCodec.encode(e.getValue());
+			if (offsets != null)
+				offsets[i] = (int) position;
+			if (index) {
+				insert(keyTable, hash(key), i);
+				insert(valueTable, hash(value), i);
+			}
+			position += write(channel, buffer, key, keyLength) + write(channel, buffer, value, valueLength);
+			if (position + indexSize > Integer.MAX_VALUE)
+				throw new IOException("Snapshot too large");
+			i++;
+		}
+		if (i != size)
+			throw new ConcurrentModificationException();
+		if (offsets != null) {
+			for (final int offset : offsets)
+				putInt(channel, buffer, offset);
+		}
+		for (final int slot : keyTable)
+			putInt(channel, buffer, slot);
+		for (final int slot : valueTable)
+			putInt(channel, buffer, slot);
+		flush(channel, buffer);
+	}
+	
+	private final static void insert(final int[] table, final int hash, final int pair) {
+		int i = slot(hash, table.length);
+		while (table[i] != 0) {
+			if (++i == table.length)
+				i = 0;
+		}
+		table[i] = pair + 1;
+	}
+	
+	private final static void putInt(final WritableByteChannel channel, final ByteBuffer buffer, final int i) throws IOException {
+		if (buffer.remaining() < 4)
+			flush(channel, buffer);
+		buffer.putInt(i);
+	}
+	
+	/**
+	 * Writes an encoded object, preceded by its length if the codec's length varies.
+	 * 
+	 * @param length The length of the codec's encoded objects, or -1 if it varies
+	 * @return The number of bytes written
+	 */
+	private final static int write(final WritableByteChannel channel, final ByteBuffer buffer, final byte[] bytes, final int length) throws IOException {
+		int n = bytes.length;
+		if (length >= 0) {
+			if (bytes.length != length)
+				throw new IllegalArgumentException("A codec of length " + length + " returned " + bytes.length + " bytes");
+		} else {
+			if (buffer.remaining() < 5)
+				flush(channel, buffer);
+			int l = bytes.length;
+			while (l >= 0x80) {
+				buffer.put((byte) (l | 0x80));
+				l >>>= 7;
+				n++;
+			}
+			buffer.put((byte) l);
+			n++;
+		}
+		int off = 0;
+		while (off < bytes.length) {
+			if (!buffer.hasRemaining())
+				flush(channel, buffer);
+			final int c = Math.min(buffer.remaining(), bytes.length - off);
+			buffer.put(bytes, off, c);
+			off += c;
+		}
+		return n;
+	}
+	
+	private final static void flush(final WritableByteChannel channel, final ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	/**
+	 * Reads a complete snapshot into a new map. Only the pairs are decoded, the index is skipped.
+	 * 
+	 * @throws IOException If reading from the channel fails or the snapshot is invalid or truncated
+	 */
+	public final static <T1, T2> BidiHashMap<T1, T2> read(final ReadableByteChannel channel, final Codec<? extends T1> keyCodec, final Codec<? extends T2> valueCodec)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.flip();
+		buffer = fill(channel, buffer, HEADER_SIZE);
+		final Header header = new Header(buffer, keyCodec, valueCodec);
+		final BidiHashMap<T1, T2> map = new BidiHashMap<T1, T2>();
+		for (int i = 0; i < header.size; i++) {
+			buffer = fillObject(channel, buffer, header.keyLength);
+			final T1 key = decode(buffer, keyCodec, header.keyLength);
+			buffer = fillObject(channel, buffer, header.valueLength);
+			final T2 value = decode(buffer, valueCodec, header.valueLength);
+			map.put(key, value);
+		}
+		// the index is not needed, but skipped to make sure that the snapshot is complete
+		long skip = header.indexSize();
+		while (skip > 0) {
+			buffer = fill(channel, buffer, (int) Math.min(skip, BUFFER_SIZE));
+			final int n = (int) Math.min(skip, buffer.remaining());
+			buffer.position(buffer.position() + n);
+			skip -= n;
+		}
+		return map;
+	}
+	
+	/**
+	 * Makes sure that the next encoded object is completely in the buffer.
+	 * 
+	 * @param length The length of the codec's encoded objects, or -1 if it varies
+	 */
+	private final static ByteBuffer fillObject(final ReadableByteChannel channel, ByteBuffer buffer, final int length) throws IOException {
+		if (length >= 0)
+			return fill(channel, buffer, length);
+		for (int n = 1; n <= 5; n++) {
+			buffer = fill(channel, buffer, n);
+			if (buffer.get(buffer.position() + n - 1) >= 0)
+				break;
+		}
+		final int l = readLength(buffer, buffer.position());
+		if (l < 0)
+			throw new IOException("Corrupt BidiMap snapshot");
+		return fill(channel, buffer, lengthSize(l) + l);
+	}
+	
+	/**
+	 * Decodes the encoded object at the buffer's position, which must be completely in the buffer, and moves the position after it.
+	 * 
+	 * @param length The length of the codec's encoded objects, or -1 if it varies
+	 */
+	private final static <T> T decode(final ByteBuffer buffer, final Codec<T> codec, final int length) {
+		int start = buffer.position(), l = length;
+		if (l < 0) {
+			l = readLength(buffer, start);
+			start += lengthSize(l);
+		}
+		final int end = start + l, limit = buffer.limit();
+		buffer.limit(end).position(start);
+		final T t = codec.decode(buffer);
+		buffer.limit(limit).position(end);
+		return t;
+	}
+	
+	/**
+	 * Makes sure that the buffer contains at least the given number of bytes between its position and its limit by reading more bytes from the channel. The buffer is
+	 * replaced with a larger one if required.
+	 * 
+	 * @return The buffer containing the bytes
+	 */
+	private final static ByteBuffer fill(final ReadableByteChannel channel, ByteBuffer buffer, final int bytes) throws IOException {
+		if (buffer.remaining() >= bytes)
+			return buffer;
+		if (bytes > buffer.capacity()) {
+			final ByteBuffer b = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+			b.put(buffer);
+			buffer = b;
+		} else {
+			buffer.compact();
+		}
+		while (buffer.position() < bytes) {
+			if (channel.read(buffer) < 0)
+				throw new EOFException("Truncated BidiMap snapshot");
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**
+	 * The header of a snapshot
+	 */
+	final static class Header {
+		
+		final int size, keyLength, valueLength, tableLength;
+		
+		/**
+		 * Reads and checks a header.
+		 * 
+		 * @param buffer A buffer positioned at the start of the header. The position is moved after the header.
+		 * @throws IOException If the header is invalid or doesn't match the given codecs
+		 */
+		Header(final ByteBuffer buffer, final Codec<?> keyCodec, final Codec<?> valueCodec) throws IOException {
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Not a BidiMap snapshot");
+			final int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported BidiMap snapshot version " + version);
+			size = buffer.getInt();
+			keyLength = buffer.getInt();
+			valueLength = buffer.getInt();
+			tableLength = buffer.getInt();
+			if (size < 0 || keyLength < -1 || valueLength < -1 || tableLength != 0 && tableLength != tableLength(size))
+				throw new IOException("Corrupt BidiMap snapshot header");
+			final int k = length(keyCodec), v = length(valueCodec);
+			if (k >= 0 && k != keyLength || v >= 0 && v != valueLength)
+				throw new IOException("The codecs don't match the BidiMap snapshot");
+		}
+		
+		boolean hasOffsets() {
+			return keyLength < 0 || valueLength < 0;
+		}
+		
+		/**
+		 * @return The size of the index at the end of the snapshot in bytes
+		 */
+		long indexSize() {
+			return tableLength == 0 ? 0 : (hasOffsets() ? 4L * size : 0) + 8L * tableLength;
+		}
+		
+	}
+	
+	/**
+	 * Memory-maps a snapshot. The returned map is read-only and serves lookups directly from the file, thus it can be used without decoding the whole file first. If the
+	 * snapshot has no index, the file is read once to build the index in memory, which takes about 16 bytes per pair. Use {@link MappedBidiMap#hydrate()} to copy the map
+	 * into a modifiable map.
+	 * <p>
+	 * The file must not be modified while it is mapped. The mapping stays valid after the channel is closed.
+	 * 
+	 * @throws IOException If the file could not be mapped or is not a valid snapshot
+	 */
+	public final static <T1, T2> MappedBidiMap<T1, T2> map(final FileChannel channel, final Codec<T1> keyCodec, final Codec<T2> valueCodec) throws IOException {
+		final long length = channel.size();
+		if (length > Integer.MAX_VALUE)
+			throw new IOException("Snapshot too large");
+		if (length < HEADER_SIZE)
+			throw new EOFException("Truncated BidiMap snapshot");
+		final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, length);
+		final Header header = new Header(buffer, keyCodec, valueCodec);
+		final int size = header.size;
+		final IntBuffer offsets;
+		final IntBuffer[] tables;
+		if (header.tableLength != 0) {
+			final long indexSize = header.indexSize();
+			final long dataEnd = length - indexSize;
+			if (dataEnd < HEADER_SIZE)
+				throw new EOFException("Truncated BidiMap snapshot");
+			int position = (int) dataEnd;
+			offsets = header.hasOffsets() ? slice(buffer, position, size) : null;
+			// the pairs must end exactly where the index starts, otherwise the file has been truncated
+			if (offsets == null ? dataEnd != HEADER_SIZE + (long) (header.keyLength + header.valueLength) * size
+					: dataEnd != (size == 0 ? HEADER_SIZE : end(buffer, header, offsets.get(size - 1), dataEnd)))
+				throw new EOFException("Truncated BidiMap snapshot");
+			if (offsets != null)
+				position += 4 * size;
+			tables = new IntBuffer[] {slice(buffer, position, header.tableLength), slice(buffer, position + 4 * header.tableLength, header.tableLength)};
+		} else {
+			final int[] o = header.hasOffsets() ? new int[size] : null;
+			final int tableLength = tableLength(size);
+			final int[][] t = {new int[tableLength], new int[tableLength]};
+			final int[] lengths = {header.keyLength, header.valueLength};
+			int position = HEADER_SIZE;
+			try {
+				for (int i = 0; i < size; i++) {
+					if (o != null)
+						o[i] = position;
+					for (int side = 0; side < 2; side++) {
+						int l = lengths[side];
+						if (l < 0) {
+							l = readLength(buffer, position);
+							if (l < 0)
+								throw new IOException("Corrupt BidiMap snapshot");
+							position += lengthSize(l);
+						}
+						if (position + (long) l > length)
+							throw new EOFException("Truncated BidiMap snapshot");
+						insert(t[side], hash(buffer, position, l), i);
+						position += l;
+					}
+				}
+			} catch (final IndexOutOfBoundsException e) {
+				throw new EOFException("Truncated BidiMap snapshot");
+			}
+			offsets = o == null ? null : IntBuffer.wrap(o);
+			tables = new IntBuffer[] {IntBuffer.wrap(t[0]), IntBuffer.wrap(t[1])};
+		}
+		return new MappedBidiMap<T1, T2>(buffer, header, offsets, tables, keyCodec, valueCodec);
+	}
+	
+	/**
+	 * @return The position after the pair at the given position, or -1 if the pair is not within the given limit
+	 */
+	private final static long end(final ByteBuffer buffer, final Header header, final int pair, final long limit) {
+		long position = pair;
+		for (final int length : new int[] {header.keyLength, header.valueLength}) {
+			int l = length;
+			if (l < 0) {
+				if (position < HEADER_SIZE || position >= limit)
+					return -1;
+				l = readLength(buffer, (int) position);
+				if (l < 0)
+					return -1;
+				position += lengthSize(l);
+			}
+			position += l;
+			if (position > limit)
+				return -1;
+		}
+		return position;
+	}
+	
+	private final static IntBuffer slice(final ByteBuffer buffer, final int position, final int ints) {
+		final ByteBuffer b = buffer.duplicate();
+		b.limit(position + 4 * ints).position(position);
+		final IntBuffer r = b.slice().asIntBuffer();
+		assert r != null;
+		return r;
+	}
+	
+}
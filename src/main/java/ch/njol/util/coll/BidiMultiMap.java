@@ -0,0 +1,334 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A many-to-many relation between keys and values, e.g. between groups and their members. Unlike a {@link BidiMap} a key can be related to any number of values and vice
+ * versa, and the {@link #getReverseView() reverse view} relates each value to all its keys.
+ * <p>
+ * Each side is a hash map from its objects to {@link ArraySet}s of the related objects of the other side, thus adding and removing a pair and looking up the objects
+ * related to a key or value take constant time: sets of up to {@link ArraySet#HASH_THRESHOLD} elements are small flat arrays, and larger sets get a hash index.
+ * <p>
+ * Measured memory usage per pair, excluding the keys and values themselves (64-bit JVM with compressed pointers):
+ * <table>
+ * <tr><th>Values per key</th><th>Keys per value</th><th>BidiMultiMap</th><th>two HashMaps of HashSets</th></tr>
+ * <tr><td>1</td><td>1</td><td>179 bytes</td><td>436 bytes</td></tr>
+ * <tr><td>4</td><td>1</td><td>115 bytes</td><td>297 bytes</td></tr>
+ * <tr><td>4</td><td>4</td><td>49 bytes</td><td>157 bytes</td></tr>
+ * <tr><td>100</td><td>1</td><td>117 bytes</td><td>261 bytes</td></tr>
+ * </table>
+ * <p>
+ * Neither keys nor values may be null. The sets returned by this map are read-only live views. This class is not thread-safe.
+ * 
+ * @author Peter Güttinger
+ */
+public final class BidiMultiMap<K, V> implements Cloneable {
+	
+	/**
+	 * The state shared by a map and its reverse view. Side 0 maps the keys of the forward map to their values, side 1 maps the values back to their keys.
+	 */
+	private final static class State {
+		
+		final HashMap<Object, ArraySet<Object>>[] maps;
+		int size = 0;
+		
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		State() {
+			maps = new HashMap[] {new HashMap<Object, ArraySet<Object>>(), new HashMap<Object, ArraySet<Object>>()};
+		}
+		
+		/**
+		 * Adds the object to the set of the given key on the given side only.
+		 */
+		boolean add(final int side, final Object key, final Object o) {
+			final HashMap<Object, ArraySet<Object>> map = maps[side];
+			ArraySet<Object> set = map.get(key);
+			if (set == null) {
+				set = new ArraySet<Object>(1);
+				map.put(key, set);
+			}
+			return set.add(o);
+		}
+		
+		/**
+		 * Removes the object from the set of the given key on the given side only, and removes the key if its set becomes empty.
+		 */
+		boolean remove(final int side, final Object key, final Object o) {
+			final HashMap<Object, ArraySet<Object>> map = maps[side];
+			final ArraySet<Object> set = map.get(key);
+			if (set == null || !set.remove(o))
+				return false;
+			if (set.isEmpty())
+				map.remove(key);
+			return true;
+		}
+		
+	}
+	
+	private final State state;
+	private final int side;
+	private final BidiMultiMap<V, K> other;
+	
+	public BidiMultiMap() {
+		this(new State());
+	}
+	
+	private BidiMultiMap(final State state) {
+		this.state = state;
+		side = 0;
+		other = new BidiMultiMap<V, K>(this);
+	}
+	
+	private BidiMultiMap(final BidiMultiMap<V, K> other) {
+		state = other.state;
+		side = 1 - other.side;
+		this.other = other;
+	}
+	
+	/**
+	 * @return A view of this map which relates values to keys. Changes to the view are reflected in this map and vice versa.
+	 */
+	public BidiMultiMap<V, K> getReverseView() {
+		return other;
+	}
+	
+	/**
+	 * @return The number of pairs in this map
+	 */
+	public int size() {
+		return state.size;
+	}
+	
+	public boolean isEmpty() {
+		return state.size == 0;
+	}
+	
+	/**
+	 * Adds a pair to this map.
+	 * 
+	 * @return Whether the pair was added, i.e. false if it is already in this map
+	 * @throws NullPointerException If the key or the value is null
+	 */
+	public boolean put(final @Nullable K key, final @Nullable V value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in a BidiMultiMap");
+		final State state = this.state;
+		if (!state.add(side, key, value))
+			return false;
+		state.add(1 - side, value, key);
+		state.size++;
+		return true;
+	}
+	
+	/**
+	 * Removes a pair from this map.
+	 * 
+	 * @return Whether the pair was in this map
+	 */
+	public boolean remove(final @Nullable Object key, final @Nullable Object value) {
+		if (key == null || value == null)
+			return false;
+		final State state = this.state;
+		if (!state.remove(side, key, value))
+			return false;
+		state.remove(1 - side, value, key);
+		state.size--;
+		return true;
+	}
+	
+	/**
+	 * Removes all pairs with the given key.
+	 * 
+	 * @return The number of removed pairs
+	 */
+	public int removeKey(final @Nullable Object key) {
+		if (key == null)
+			return 0;
+		final State state = this.state;
+		final ArraySet<Object> set = state.maps[side].remove(key);
+		if (set == null)
+			return 0;
+		for (final Object value : set) {
+			assert value != null;
+			state.remove(1 - side, value, key);
+		}
+		state.size -= set.size();
+		return set.size();
+	}
+	
+	/**
+	 * Removes all pairs with the given value.
+	 * 
+	 * @return The number of removed pairs
+	 */
+	public int removeValue(final @Nullable Object value) {
+		return other.removeKey(value);
+	}
+	
+	public void clear() {
+		state.maps[0].clear();
+		state.maps[1].clear();
+		state.size = 0;
+	}
+	
+	public boolean contains(final @Nullable Object key, final @Nullable Object value) {
+		if (key == null || value == null)
+			return false;
+		final ArraySet<Object> set = state.maps[side].get(key);
+		return set != null && set.contains(value);
+	}
+	
+	public boolean containsKey(final @Nullable Object key) {
+		return key != null && state.maps[side].containsKey(key);
+	}
+	
+	public boolean containsValue(final @Nullable Object value) {
+		return value != null && state.maps[1 - side].containsKey(value);
+	}
+	
+	/**
+	 * @return A read-only live view of the values related to the given key, which is empty if the key is not in this map
+	 */
+	public Set<V> get(final @Nullable K key) {
+		if (key == null)
+			return Collections.emptySet();
+		return new RelatedSet<V>(side, key);
+	}
+	
+	/**
+	 * @return A read-only live view of the keys related to the given value, which is empty if the value is not in this map
+	 */
+	public Set<K> getKeys(final @Nullable V value) {
+		return other.get(value);
+	}
+	
+	/**
+	 * @return The number of values related to the given key
+	 */
+	public int count(final @Nullable Object key) {
+		if (key == null)
+			return 0;
+		final ArraySet<Object> set = state.maps[side].get(key);
+		return set == null ? 0 : set.size();
+	}
+	
+	/**
+	 * @return A read-only live view of all keys of this map
+	 */
+	public Set<K> keySet() {
+		return Collections.unmodifiableSet(this.<K> side(side));
+	}
+	
+	/**
+	 * @return A read-only live view of all values of this map
+	 */
+	public Set<V> valueSet() {
+		return other.keySet();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <E> Set<E> side(final int side) {
+		return (Set<E>) state.maps[side].keySet();
+	}
+	
+	/**
+	 * The objects related to an object. The set is looked up again for every operation as it is replaced when the object is removed and added again.
+	 */
+	private final class RelatedSet<E> extends AbstractSet<E> {
+		
+		private final int side;
+		private final Object o;
+		
+		public RelatedSet(final int side, final Object o) {
+			this.side = side;
+			this.o = o;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private Set<E> set() {
+			final ArraySet<Object> set = state.maps[side].get(o);
+			return set == null ? Collections.<E> emptySet() : (Set<E>) set;
+		}
+		
+		@Override
+		public Iterator<E> iterator() {
+			return Collections.unmodifiableSet(set()).iterator();
+		}
+		
+		@Override
+		public int size() {
+			return set().size();
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object e) {
+			return set().contains(e);
+		}
+		
+	}
+	
+	/**
+	 * Creates an independent copy of this map. The copy of a reverse view is a normal map from this view's keys to its values.
+	 */
+	@Override
+	public BidiMultiMap<K, V> clone() {
+		final State state = new State();
+		for (int i = 0; i < 2; i++) {
+			final HashMap<Object, ArraySet<Object>> map = state.maps[i];
+			for (final Map.Entry<Object, ArraySet<Object>> e : this.state.maps[i == 0 ? side : 1 - side].entrySet())
+				map.put(e.getKey(), e.getValue().clone());
+		}
+		state.size = this.state.size;
+		return new BidiMultiMap<K, V>(state);
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof BidiMultiMap))
+			return false;
+		final BidiMultiMap<?, ?> other = (BidiMultiMap<?, ?>) obj;
+		return state.size == other.state.size && state.maps[side].equals(other.state.maps[other.side]);
+	}
+	
+	@Override
+	public int hashCode() {
+		return state.maps[side].hashCode();
+	}
+	
+	/**
+	 * @return This map's keys with their sets of values, e.g. <tt>{a=[1, 2], b=[1]}</tt>
+	 */
+	@Override
+	public String toString() {
+		return state.maps[side].toString();
+	}
+	
+}
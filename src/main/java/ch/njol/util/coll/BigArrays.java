@@ -0,0 +1,130 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+
+package ch.njol.util.coll;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Shared code of the off-heap big arrays ({@link LongBigArray}, {@link IntBigArray} and {@link DoubleBigArray}).
+ * <p>
+ * A big array is split into segments of {@link #SEGMENT_BYTES} bytes each (only the last segment may be smaller), as a single {@link ByteBuffer} can hold at most 2^31 bytes.
+ * 
+ * @author Peter Güttinger
+ */
+final class BigArrays {
+	
+	private BigArrays() {}
+	
+	final static int SEGMENT_BYTES_SHIFT = 30;
+	final static int SEGMENT_BYTES = 1 << SEGMENT_BYTES_SHIFT;
+	
+	/**
+	 * @param size The number of elements
+	 * @param elementShift log2 of the size of an element in bytes
+	 * @return Zeroed direct buffers in native byte order
+	 */
+	final static ByteBuffer[] allocate(final long size, final int elementShift) {
+		final ByteBuffer[] r = new ByteBuffer[segments(size, elementShift)];
+		final long bytes = size << elementShift;
+		for (int i = 0; i < r.length; i++)
+			r[i] = ByteBuffer.allocateDirect((int) Math.min(SEGMENT_BYTES, bytes - ((long) i << SEGMENT_BYTES_SHIFT))).order(ByteOrder.nativeOrder());
+		return r;
+	}
+	
+	/**
+	 * Maps a region of a file. The mappings stay valid after the channel is closed.
+	 */
+	final static ByteBuffer[] map(final FileChannel channel, final MapMode mode, final long position, final long size, final int elementShift, final ByteOrder order) throws IOException {
+		if (position < 0)
+			throw new IllegalArgumentException("Negative position: " + position);
+		final ByteBuffer[] r = new ByteBuffer[segments(size, elementShift)];
+		final long bytes = size << elementShift;
+		try {
+			for (int i = 0; i < r.length; i++) {
+				final long offset = (long) i << SEGMENT_BYTES_SHIFT;
+				r[i] = channel.map(mode, position + offset, Math.min(SEGMENT_BYTES, bytes - offset)).order(order);
+			}
+		} catch (final IOException e) {
+			free(r);
+			throw e;
+		}
+		return r;
+	}
+	
+	private final static int segments(final long size, final int elementShift) {
+		if (size < 0 || size > Long.MAX_VALUE >> elementShift)
+			throw new IllegalArgumentException("Illegal size: " + size);
+		final long segments = ((size << elementShift) + SEGMENT_BYTES - 1) >>> SEGMENT_BYTES_SHIFT;
+		if (segments > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Illegal size: " + size);
+		return (int) segments;
+	}
+	
+	final static void checkRange(final long from, final long to, final long size) {
+		if (from < 0 || to > size || from > to)
+			throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+	}
+	
+	final static IllegalStateException closed() {
+		return new IllegalStateException("The array has been closed");
+	}
+	
+	/**
+	 * Releases the memory of the given buffers immediately if the JVM allows it. Otherwise the memory is released when the buffers are garbage collected.
+	 * <p>
+	 * The buffers must not be accessed anymore after calling this method.
+	 */
+	final static void free(final ByteBuffer[] buffers) {
+		for (final ByteBuffer b : buffers) {
+			if (b != null && b.isDirect())
+				free(b);
+		}
+	}
+	
+	private final static void free(final ByteBuffer b) {
+		try {
+			// Java 9+
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), b);
+			return;
+		} catch (final Exception e) {}
+		try {
+			// older JVMs
+			final Method cleaner = b.getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			final Object c = cleaner.invoke(b);
+			if (c != null)
+				c.getClass().getMethod("clean").invoke(c);
+		} catch (final Exception e) {
+			// not supported by this JVM - the memory will be freed by the garbage collector
+		}
+	}
+	
+}
@@ -0,0 +1,133 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A precompiled version of {@link CollectionUtils#containsSuperclass(Class[], Class)}: checks whether a class is a subclass of any of a fixed set of classes, and caches
+ * the result for every checked class. This makes repeated checks with the same classes (e.g. finding the handlers of an event) O(1).
+ * <p>
+ * The filter copies the given classes, thus changes to the source array do not affect it. If the source changes, {@link #update(Class...)} must be called, which replaces the
+ * classes and the cache atomically. This class is thread-safe.
+ * <p>
+ * The cache holds strong references to all checked classes, but is cleared if it grows larger than {@link #MAX_CACHE_SIZE} to allow classes to be unloaded eventually.
+ * 
+ * @author Peter Güttinger
+ */
+public final class ClassFilter {
+	
+	public final static int MAX_CACHE_SIZE = 4096;
+	
+	private final static class State {
+		
+		final Class<?>[] classes;
+		final ConcurrentHashMap<Class<?>, Boolean> cache = new ConcurrentHashMap<Class<?>, Boolean>();
+		
+		State(final @Nullable Class<?>[] classes) {
+			final List<Class<?>> l = new ArrayList<Class<?>>();
+			if (classes != null) {
+				for (final Class<?> c : classes) {
+					if (c != null && !l.contains(c))
+						l.add(c);
+				}
+			}
+			this.classes = l.toArray(new Class<?>[l.size()]);
+		}
+		
+	}
+	
+	private volatile State state;
+	
+	/**
+	 * @param classes The classes to accept, including their subclasses. May contain nulls, which are ignored.
+	 */
+	public ClassFilter(final @Nullable Class<?>... classes) {
+		state = new State(classes);
+	}
+	
+	/**
+	 * Replaces the classes of this filter and clears the cache.
+	 * 
+	 * @param classes The new classes to accept, including their subclasses
+	 */
+	public void update(final @Nullable Class<?>... classes) {
+		state = new State(classes);
+	}
+	
+	/**
+	 * @return A copy of the classes of this filter
+	 */
+	@SuppressWarnings("null")
+	public Class<?>[] getClasses() {
+		return state.classes.clone();
+	}
+	
+	/**
+	 * @param c A class
+	 * @return Whether the given class is a subclass of any of this filter's classes. Returns false if the class is null.
+	 * @see CollectionUtils#containsSuperclass(Class[], Class)
+	 */
+	public boolean accepts(final @Nullable Class<?> c) {
+		if (c == null)
+			return false;
+		final State state = this.state;
+		final Boolean cached = state.cache.get(c);
+		if (cached != null)
+			return cached;
+		boolean r = false;
+		for (final Class<?> cl : state.classes) {
+			if (cl.isAssignableFrom(c)) {
+				r = true;
+				break;
+			}
+		}
+		if (state.cache.size() >= MAX_CACHE_SIZE)
+			state.cache.clear();
+		state.cache.put(c, r);
+		return r;
+	}
+	
+	/**
+	 * @param cs Some classes. Null elements are ignored.
+	 * @return Whether any of the given classes is a subclass of any of this filter's classes. Returns false if the array is null.
+	 * @see CollectionUtils#containsAnySuperclass(Class[], Class...)
+	 */
+	public boolean acceptsAny(final @Nullable Class<?>... cs) {
+		if (cs == null)
+			return false;
+		for (final Class<?> c : cs) {
+			if (accepts(c))
+				return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public String toString() {
+		return "ClassFilter" + Arrays.toString(state.classes);
+	}
+	
+}
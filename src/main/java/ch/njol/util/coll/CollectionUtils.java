@@ -19,19 +19,30 @@
 
 package ch.njol.util.coll;
 
+import java.nio.BufferOverflowException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 
+import ch.njol.util.Math2;
 import ch.njol.util.Pair;
 
 /**
@@ -79,25 +90,257 @@ public abstract class CollectionUtils {
 		return -1;
 	}
 	
+	public static <T> int lastIndexOf(final @Nullable T[] array, final @Nullable T t, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == null ? t == null : array[i].equals(t))
+				return i;
+		}
+		return -1;
+	}
+	
 	public static <T> boolean contains(final @Nullable T[] array, final @Nullable T o) {
 		return indexOf(array, o) != -1;
 	}
 	
+	/**
+	 * If the product of the lengths of the searched and the probed arrays is above this value, the searched array is put into a temporary {@link ProbeSet} instead of
+	 * searching it linearly for every probe. Determined by comparing both approaches for arrays of 4 to 128 strings.
+	 */
+	private final static int HASH_THRESHOLD = 128;
+	
+	private final static boolean useHash(final int arrayLength, final int probes) {
+		return probes > 1 && (long) arrayLength * probes > HASH_THRESHOLD;
+	}
+	
+	/**
+	 * A minimal insert-only open addressing hash set used to speed up {@link CollectionUtils#containsAll(Object[], Object...) containsAll} and similar methods for large
+	 * arrays.
+	 */
+	private final static class ProbeSet {
+		
+		private final Object[] table;
+		private final int mask;
+		private final boolean identity;
+		private boolean containsNull = false;
+		
+		public ProbeSet(final Object[] elements, final boolean identity) {
+			this.identity = identity;
+			table = new Object[Math2.nextPowerOfTwo(Math.max(elements.length, 2) * 2)];
+			mask = table.length - 1;
+			for (final Object o : elements)
+				add(o);
+		}
+		
+		private int slot(final Object o) {
+			final int h = (identity ? System.identityHashCode(o) : o.hashCode()) * 0x9E3779B9;
+			return (h ^ (h >>> 16)) & mask;
+		}
+		
+		private boolean same(final Object a, final Object b) {
+			return a == b || !identity && a.equals(b);
+		}
+		
+		private void add(final @Nullable Object o) {
+			if (o == null) {
+				containsNull = true;
+				return;
+			}
+			int i = slot(o);
+			Object e;
+			while ((e = table[i]) != null) {
+				if (same(e, o))
+					return;
+				i = (i + 1) & mask;
+			}
+			table[i] = o;
+		}
+		
+		public boolean contains(final @Nullable Object o) {
+			if (o == null)
+				return containsNull;
+			int i = slot(o);
+			Object e;
+			while ((e = table[i]) != null) {
+				if (same(e, o))
+					return true;
+				i = (i + 1) & mask;
+			}
+			return false;
+		}
+		
+	}
+	
 	public static <T> boolean containsAny(final @Nullable T[] array, final @Nullable T... os) {
+		return containsAny(array, os, false);
+	}
+	
+	/**
+	 * Like {@link #containsAny(Object[], Object...)}, but compares the objects with <tt>==</tt> instead of {@link Object#equals(Object)}.
+	 */
+	public static <T> boolean containsAnyIdentity(final @Nullable T[] array, final @Nullable T... os) {
+		return containsAny(array, os, true);
+	}
+	
+	private static boolean containsAny(final @Nullable Object[] array, final @Nullable Object[] os, final boolean identity) {
 		if (array == null || os == null)
 			return false;
-		for (final T o : os) {
-			if (indexOf(array, o) != -1)
+		if (useHash(array.length, os.length)) {
+			final ProbeSet set = new ProbeSet(array, identity);
+			for (final Object o : os) {
+				if (set.contains(o))
+					return true;
+			}
+			return false;
+		}
+		for (final Object o : os) {
+			if (indexOf(array, o, identity) != -1)
 				return true;
 		}
 		return false;
 	}
 	
 	public static <T> boolean containsAll(final @Nullable T[] array, final @Nullable T... os) {
+		return containsAll(array, os, false);
+	}
+	
+	/**
+	 * Like {@link #containsAll(Object[], Object...)}, but compares the objects with <tt>==</tt> instead of {@link Object#equals(Object)}.
+	 */
+	public static <T> boolean containsAllIdentity(final @Nullable T[] array, final @Nullable T... os) {
+		return containsAll(array, os, true);
+	}
+	
+	private static boolean containsAll(final @Nullable Object[] array, final @Nullable Object[] os, final boolean identity) {
 		if (array == null || os == null)
 			return false;
-		for (final T o : os) {
-			if (indexOf(array, o) == -1)
+		if (useHash(array.length, os.length)) {
+			final ProbeSet set = new ProbeSet(array, identity);
+			for (final Object o : os) {
+				if (!set.contains(o))
+					return false;
+			}
+			return true;
+		}
+		for (final Object o : os) {
+			if (indexOf(array, o, identity) == -1)
+				return false;
+		}
+		return true;
+	}
+	
+	private static int indexOf(final Object[] array, final @Nullable Object o, final boolean identity) {
+		if (!identity)
+			return indexOf(array, o);
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == o)
+				return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Checks whether the array contains any of the given numbers. Large inputs are sorted and merged instead of being searched linearly.
+	 */
+	public static boolean containsAny(final @Nullable int[] array, final @Nullable int... nums) {
+		if (array == null || nums == null)
+			return false;
+		if (!useHash(array.length, nums.length)) {
+			for (final int num : nums) {
+				if (indexOf(array, num) != -1)
+					return true;
+			}
+			return false;
+		}
+		final int[] a = array.clone(), b = nums.clone();
+		Arrays.sort(a);
+		Arrays.sort(b);
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			if (a[i] == b[j])
+				return true;
+			if (a[i] < b[j])
+				i++;
+			else
+				j++;
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks whether the array contains all of the given numbers. Large inputs are sorted and merged instead of being searched linearly.
+	 */
+	public static boolean containsAll(final @Nullable int[] array, final @Nullable int... nums) {
+		if (array == null || nums == null)
+			return false;
+		if (!useHash(array.length, nums.length)) {
+			for (final int num : nums) {
+				if (indexOf(array, num) == -1)
+					return false;
+			}
+			return true;
+		}
+		final int[] a = array.clone(), b = nums.clone();
+		Arrays.sort(a);
+		Arrays.sort(b);
+		int i = 0;
+		for (final int num : b) {
+			while (i < a.length && a[i] < num)
+				i++;
+			if (i == a.length || a[i] != num)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks whether the array contains any of the given numbers. Large inputs are sorted and merged instead of being searched linearly.
+	 */
+	public static boolean containsAny(final @Nullable long[] array, final @Nullable long... nums) {
+		if (array == null || nums == null)
+			return false;
+		if (!useHash(array.length, nums.length)) {
+			for (final long num : nums) {
+				if (indexOf(array, num) != -1)
+					return true;
+			}
+			return false;
+		}
+		final long[] a = array.clone(), b = nums.clone();
+		Arrays.sort(a);
+		Arrays.sort(b);
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			if (a[i] == b[j])
+				return true;
+			if (a[i] < b[j])
+				i++;
+			else
+				j++;
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks whether the array contains all of the given numbers. Large inputs are sorted and merged instead of being searched linearly.
+	 */
+	public static boolean containsAll(final @Nullable long[] array, final @Nullable long... nums) {
+		if (array == null || nums == null)
+			return false;
+		if (!useHash(array.length, nums.length)) {
+			for (final long num : nums) {
+				if (indexOf(array, num) == -1)
+					return false;
+			}
+			return true;
+		}
+		final long[] a = array.clone(), b = nums.clone();
+		Arrays.sort(a);
+		Arrays.sort(b);
+		int i = 0;
+		for (final long num : b) {
+			while (i < a.length && a[i] < num)
+				i++;
+			if (i == a.length || a[i] != num)
 				return false;
 		}
 		return true;
@@ -129,173 +372,1060 @@ public abstract class CollectionUtils {
 		return indexOf(array, num) != -1;
 	}
 	
+	public static int lastIndexOf(final @Nullable int[] array, final int num) {
+		if (array == null)
+			return -1;
+		return lastIndexOf(array, num, 0, array.length);
+	}
+	
 	/**
-	 * finds a string in an array of strings (ignoring case).
-	 * 
-	 * @param array the array to search in
-	 * @param s the string to search for
-	 * @return the index of the first occurrence of the given string or -1 if not found
+	 * @return The index of the last occurrence of the given number in the range [start, end) of the array or -1 if not found
 	 */
-	public static int indexOfIgnoreCase(final @Nullable String[] array, final @Nullable String s) {
+	public static int lastIndexOf(final @Nullable int[] array, final int num, final int start, final int end) {
 		if (array == null)
 			return -1;
-		int i = 0;
-		for (final String a : array) {
-			if (a == null ? s == null : a.equalsIgnoreCase(s))
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == num)
 				return i;
-			i++;
 		}
 		return -1;
 	}
 	
-	public static boolean containsIgnoreCase(final @Nullable String[] array, final @Nullable String s) {
-		return indexOfIgnoreCase(array, s) != -1;
+	public static int count(final @Nullable int[] array, final int num) {
+		if (array == null)
+			return 0;
+		return count(array, num, 0, array.length);
 	}
 	
 	/**
-	 * Finds an object in an iterable using {@link Object#equals(Object)}.
-	 * 
-	 * @param iter The iterable to search in
-	 * @param o The object to search for
-	 * @return The index of the first occurrence of the given object or -1 if not found
+	 * @return How often the given number occurs in the range [start, end) of the array
 	 */
-	public static <T> int indexOf(final @Nullable Iterable<T> iter, final @Nullable T o) {
-		if (iter == null)
-			return -1;
-		int i = 0;
-		for (final T a : iter) {
-			if (a == null ? o == null : a.equals(o))
-				return i;
-			i++;
+	public static int count(final @Nullable int[] array, final int num, final int start, final int end) {
+		if (array == null)
+			return 0;
+		int r = 0;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				r++;
 		}
-		return -1;
+		return r;
 	}
 	
 	/**
-	 * Finds a string in a collection of strings (ignoring case).
+	 * Like {@link Arrays#binarySearch(int[], int)}, but returns -1 (i.e. the result for an empty array) if the array is null.
 	 * 
-	 * @param iter The iterable to search in
-	 * @param s The string to search for
-	 * @return The index of the first occurrence of the given string or -1 if not found
+	 * @param array A sorted array
 	 */
-	public static int indexOfIgnoreCase(final @Nullable Iterable<String> iter, final @Nullable String s) {
-		if (iter == null)
+	public static int binarySearch(final @Nullable int[] array, final int num) {
+		if (array == null)
 			return -1;
-		int i = 0;
-		for (final String a : iter) {
-			if (a == null ? s == null : a.equalsIgnoreCase(s))
-				return i;
-			i++;
-		}
-		return -1;
+		return Arrays.binarySearch(array, num);
 	}
 	
 	/**
-	 * @param map
-	 * @param key
-	 * @return A new entry object or null if the key is not in the map
+	 * Searches a sorted array starting at the given index by first probing at exponentially increasing distances, then performing a binary search in the found interval. This
+	 * is faster than a normal binary search if the searched number is expected to be close to <tt>start</tt>, e.g. when searching for many increasing numbers.
+	 * 
+	 * @param array A sorted array
+	 * @param num The number to search for
+	 * @param start The index to start searching at. Elements before this index are ignored.
+	 * @return The same as {@link Arrays#binarySearch(int[], int, int, int)} for the range [start, array.length), or -1 if the array is null
 	 */
-	@Nullable
-	public static <T, U> Entry<T, U> containsKey(final @Nullable Map<T, U> map, final @Nullable T key) {
-		if (map == null)
-			return null;
-		if (map.containsKey(key))
-			return new Pair<T, U>(key, map.get(key));
-		return null;
+	public static int gallopingSearch(final @Nullable int[] array, final int num, final int start) {
+		if (array == null)
+			return -1;
+		final int length = array.length;
+		int low = start, high = start, step = 1;
+		while (high < length && array[high] < num) {
+			low = high + 1;
+			high = length - high > step ? high + step : length;
+			step <<= 1;
+		}
+		return Arrays.binarySearch(array, low, Math.min(high + 1, length), num);
 	}
 	
-	@Nullable
-	public static <U> Entry<String, U> containsKeyIgnoreCase(final @Nullable Map<String, U> map, final @Nullable String key) {
-		if (key == null)
-			return containsKey(map, null);
-		if (map == null)
-			return null;
-		for (final Entry<String, U> e : map.entrySet()) {
-			if (key.equalsIgnoreCase(e.getKey()))
-				return e;
-		}
-		return null;
+	public static int indexOf(final @Nullable byte[] array, final byte num) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, 0, array.length);
 	}
 	
-	/**
-	 * @param classes Array of classes
-	 * @param c The class to look for
-	 * @return Whether the class or any of its superclasses are contained in the array
-	 */
-	public final static boolean containsSuperclass(final @Nullable Class<?>[] classes, final @Nullable Class<?> c) {
-		if (classes == null || c == null)
-			return false;
-		for (final Class<?> cl : classes) {
-			if (cl == null)
-				continue;
-			if (cl.isAssignableFrom(c))
-				return true;
-		}
-		return false;
+	public static int indexOf(final @Nullable byte[] array, final byte num, final int start) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, start, array.length);
 	}
 	
 	/**
-	 * @param classes Array of classes
-	 * @param cs The classes to look for
-	 * @return Whether the classes or any of their superclasses are contained in the array
+	 * Finds a number in an array.
+	 * 
+	 * @param array The array to search in
+	 * @param num The number to search for
+	 * @param start The index to start at (inclusive)
+	 * @param end The index to end at (exclusive)
+	 * @return The index of the first occurrence of the given number in the given range or -1 if not found
 	 */
-	public final static boolean containsAnySuperclass(final @Nullable Class<?>[] classes, final @Nullable Class<?>... cs) {
-		if (classes == null || cs == null)
-			return false;
-		for (final Class<?> cl : classes) {
-			if (cl == null)
-				continue;
-			for (final Class<?> c : cs) {
-				if (cl.isAssignableFrom(c))
-					return true;
-			}
+	public static int indexOf(final @Nullable byte[] array, final byte num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				return i;
 		}
-		return false;
+		return -1;
 	}
 	
-	private final static Random random = new Random();
+	public static int lastIndexOf(final @Nullable byte[] array, final byte num) {
+		if (array == null)
+			return -1;
+		return lastIndexOf(array, num, 0, array.length);
+	}
 	
-	@Nullable
-	public static <T> T getRandom(final @Nullable T[] os) {
-		if (os == null || os.length == 0)
-			return null;
-		return os[random.nextInt(os.length)];
+	/**
+	 * @return The index of the last occurrence of the given number in the range [start, end) of the array or -1 if not found
+	 */
+	public static int lastIndexOf(final @Nullable byte[] array, final byte num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
 	}
 	
-	@Nullable
-	public static <T> T getRandom(final @Nullable T[] os, final int start) {
-		if (os == null || os.length == 0)
-			return null;
-		return os[random.nextInt(os.length - start) + start];
+	public final static boolean contains(final @Nullable byte[] array, final byte num) {
+		return indexOf(array, num) != -1;
 	}
 	
-	@Nullable
-	public static <T> T getRandom(final @Nullable List<T> os) {
-		if (os == null || os.isEmpty())
-			return null;
-		return os.get(random.nextInt(os.size()));
+	public static int count(final @Nullable byte[] array, final byte num) {
+		if (array == null)
+			return 0;
+		return count(array, num, 0, array.length);
 	}
 	
 	/**
-	 * @param set The set of elements
-	 * @param sub The set to test for being a subset of <tt>set</tt>
-	 * @return Whether <tt>sub</tt> only contains elements out of <tt>set</tt> or not
+	 * @return How often the given number occurs in the range [start, end) of the array
 	 */
-	public static boolean isSubset(final @Nullable Object[] set, final @Nullable Object[] sub) {
-		if (set == null || sub == null)
-			return false;
-		for (final Object s : set) {
-			if (!contains(sub, s))
-				return false;
+	public static int count(final @Nullable byte[] array, final byte num, final int start, final int end) {
+		if (array == null)
+			return 0;
+		int r = 0;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				r++;
 		}
-		return true;
+		return r;
 	}
 	
 	/**
-	 * Gets the intersection of the given sets, i.e. a set that only contains elements that occur in all given sets.
+	 * Like {@link Arrays#binarySearch(byte[], byte)}, but returns -1 (i.e. the result for an empty array) if the array is null.
 	 * 
-	 * @param sets
-	 * @return
+	 * @param array A sorted array
+	 */
+	public static int binarySearch(final @Nullable byte[] array, final byte num) {
+		if (array == null)
+			return -1;
+		return Arrays.binarySearch(array, num);
+	}
+	
+	/**
+	 * Searches a sorted array starting at the given index by first probing at exponentially increasing distances, then performing a binary search in the found interval. This
+	 * is faster than a normal binary search if the searched number is expected to be close to <tt>start</tt>, e.g. when searching for many increasing numbers.
+	 * 
+	 * @param array A sorted array
+	 * @param num The number to search for
+	 * @param start The index to start searching at. Elements before this index are ignored.
+	 * @return The same as {@link Arrays#binarySearch(byte[], int, int, byte)} for the range [start, array.length), or -1 if the array is null
+	 */
+	public static int gallopingSearch(final @Nullable byte[] array, final byte num, final int start) {
+		if (array == null)
+			return -1;
+		final int length = array.length;
+		int low = start, high = start, step = 1;
+		while (high < length && array[high] < num) {
+			low = high + 1;
+			high = length - high > step ? high + step : length;
+			step <<= 1;
+		}
+		return Arrays.binarySearch(array, low, Math.min(high + 1, length), num);
+	}
+	
+	public static int indexOf(final @Nullable short[] array, final short num) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, 0, array.length);
+	}
+	
+	public static int indexOf(final @Nullable short[] array, final short num, final int start) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, start, array.length);
+	}
+	
+	/**
+	 * Finds a number in an array.
+	 * 
+	 * @param array The array to search in
+	 * @param num The number to search for
+	 * @param start The index to start at (inclusive)
+	 * @param end The index to end at (exclusive)
+	 * @return The index of the first occurrence of the given number in the given range or -1 if not found
+	 */
+	public static int indexOf(final @Nullable short[] array, final short num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(final @Nullable short[] array, final short num) {
+		if (array == null)
+			return -1;
+		return lastIndexOf(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return The index of the last occurrence of the given number in the range [start, end) of the array or -1 if not found
+	 */
+	public static int lastIndexOf(final @Nullable short[] array, final short num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public final static boolean contains(final @Nullable short[] array, final short num) {
+		return indexOf(array, num) != -1;
+	}
+	
+	public static int count(final @Nullable short[] array, final short num) {
+		if (array == null)
+			return 0;
+		return count(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return How often the given number occurs in the range [start, end) of the array
+	 */
+	public static int count(final @Nullable short[] array, final short num, final int start, final int end) {
+		if (array == null)
+			return 0;
+		int r = 0;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				r++;
+		}
+		return r;
+	}
+	
+	/**
+	 * Like {@link Arrays#binarySearch(short[], short)}, but returns -1 (i.e. the result for an empty array) if the array is null.
+	 * 
+	 * @param array A sorted array
+	 */
+	public static int binarySearch(final @Nullable short[] array, final short num) {
+		if (array == null)
+			return -1;
+		return Arrays.binarySearch(array, num);
+	}
+	
+	/**
+	 * Searches a sorted array starting at the given index by first probing at exponentially increasing distances, then performing a binary search in the found interval. This
+	 * is faster than a normal binary search if the searched number is expected to be close to <tt>start</tt>, e.g. when searching for many increasing numbers.
+	 * 
+	 * @param array A sorted array
+	 * @param num The number to search for
+	 * @param start The index to start searching at. Elements before this index are ignored.
+	 * @return The same as {@link Arrays#binarySearch(short[], int, int, short)} for the range [start, array.length), or -1 if the array is null
+	 */
+	public static int gallopingSearch(final @Nullable short[] array, final short num, final int start) {
+		if (array == null)
+			return -1;
+		final int length = array.length;
+		int low = start, high = start, step = 1;
+		while (high < length && array[high] < num) {
+			low = high + 1;
+			high = length - high > step ? high + step : length;
+			step <<= 1;
+		}
+		return Arrays.binarySearch(array, low, Math.min(high + 1, length), num);
+	}
+	
+	public static int indexOf(final @Nullable char[] array, final char num) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, 0, array.length);
+	}
+	
+	public static int indexOf(final @Nullable char[] array, final char num, final int start) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, start, array.length);
+	}
+	
+	/**
+	 * Finds a number in an array.
+	 * 
+	 * @param array The array to search in
+	 * @param num The number to search for
+	 * @param start The index to start at (inclusive)
+	 * @param end The index to end at (exclusive)
+	 * @return The index of the first occurrence of the given number in the given range or -1 if not found
+	 */
+	public static int indexOf(final @Nullable char[] array, final char num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(final @Nullable char[] array, final char num) {
+		if (array == null)
+			return -1;
+		return lastIndexOf(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return The index of the last occurrence of the given number in the range [start, end) of the array or -1 if not found
+	 */
+	public static int lastIndexOf(final @Nullable char[] array, final char num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public final static boolean contains(final @Nullable char[] array, final char num) {
+		return indexOf(array, num) != -1;
+	}
+	
+	public static int count(final @Nullable char[] array, final char num) {
+		if (array == null)
+			return 0;
+		return count(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return How often the given number occurs in the range [start, end) of the array
+	 */
+	public static int count(final @Nullable char[] array, final char num, final int start, final int end) {
+		if (array == null)
+			return 0;
+		int r = 0;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				r++;
+		}
+		return r;
+	}
+	
+	/**
+	 * Like {@link Arrays#binarySearch(char[], char)}, but returns -1 (i.e. the result for an empty array) if the array is null.
+	 * 
+	 * @param array A sorted array
+	 */
+	public static int binarySearch(final @Nullable char[] array, final char num) {
+		if (array == null)
+			return -1;
+		return Arrays.binarySearch(array, num);
+	}
+	
+	/**
+	 * Searches a sorted array starting at the given index by first probing at exponentially increasing distances, then performing a binary search in the found interval. This
+	 * is faster than a normal binary search if the searched number is expected to be close to <tt>start</tt>, e.g. when searching for many increasing numbers.
+	 * 
+	 * @param array A sorted array
+	 * @param num The number to search for
+	 * @param start The index to start searching at. Elements before this index are ignored.
+	 * @return The same as {@link Arrays#binarySearch(char[], int, int, char)} for the range [start, array.length), or -1 if the array is null
+	 */
+	public static int gallopingSearch(final @Nullable char[] array, final char num, final int start) {
+		if (array == null)
+			return -1;
+		final int length = array.length;
+		int low = start, high = start, step = 1;
+		while (high < length && array[high] < num) {
+			low = high + 1;
+			high = length - high > step ? high + step : length;
+			step <<= 1;
+		}
+		return Arrays.binarySearch(array, low, Math.min(high + 1, length), num);
+	}
+	
+	public static int indexOf(final @Nullable long[] array, final long num) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, 0, array.length);
+	}
+	
+	public static int indexOf(final @Nullable long[] array, final long num, final int start) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, start, array.length);
+	}
+	
+	/**
+	 * Finds a number in an array.
+	 * 
+	 * @param array The array to search in
+	 * @param num The number to search for
+	 * @param start The index to start at (inclusive)
+	 * @param end The index to end at (exclusive)
+	 * @return The index of the first occurrence of the given number in the given range or -1 if not found
+	 */
+	public static int indexOf(final @Nullable long[] array, final long num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(final @Nullable long[] array, final long num) {
+		if (array == null)
+			return -1;
+		return lastIndexOf(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return The index of the last occurrence of the given number in the range [start, end) of the array or -1 if not found
+	 */
+	public static int lastIndexOf(final @Nullable long[] array, final long num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public final static boolean contains(final @Nullable long[] array, final long num) {
+		return indexOf(array, num) != -1;
+	}
+	
+	public static int count(final @Nullable long[] array, final long num) {
+		if (array == null)
+			return 0;
+		return count(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return How often the given number occurs in the range [start, end) of the array
+	 */
+	public static int count(final @Nullable long[] array, final long num, final int start, final int end) {
+		if (array == null)
+			return 0;
+		int r = 0;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				r++;
+		}
+		return r;
+	}
+	
+	/**
+	 * Like {@link Arrays#binarySearch(long[], long)}, but returns -1 (i.e. the result for an empty array) if the array is null.
+	 * 
+	 * @param array A sorted array
+	 */
+	public static int binarySearch(final @Nullable long[] array, final long num) {
+		if (array == null)
+			return -1;
+		return Arrays.binarySearch(array, num);
+	}
+	
+	/**
+	 * Searches a sorted array starting at the given index by first probing at exponentially increasing distances, then performing a binary search in the found interval. This
+	 * is faster than a normal binary search if the searched number is expected to be close to <tt>start</tt>, e.g. when searching for many increasing numbers.
+	 * 
+	 * @param array A sorted array
+	 * @param num The number to search for
+	 * @param start The index to start searching at. Elements before this index are ignored.
+	 * @return The same as {@link Arrays#binarySearch(long[], int, int, long)} for the range [start, array.length), or -1 if the array is null
+	 */
+	public static int gallopingSearch(final @Nullable long[] array, final long num, final int start) {
+		if (array == null)
+			return -1;
+		final int length = array.length;
+		int low = start, high = start, step = 1;
+		while (high < length && array[high] < num) {
+			low = high + 1;
+			high = length - high > step ? high + step : length;
+			step <<= 1;
+		}
+		return Arrays.binarySearch(array, low, Math.min(high + 1, length), num);
+	}
+	
+	public static int indexOf(final @Nullable float[] array, final float num) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, 0, array.length);
+	}
+	
+	public static int indexOf(final @Nullable float[] array, final float num, final int start) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, start, array.length);
+	}
+	
+	/**
+	 * Finds a number in an array.
+	 * <p>
+	 * Elements are compared with <tt>==</tt>, thus Float.NaN is never found and -0 and +0 are considered equal.
+	 * 
+	 * @param array The array to search in
+	 * @param num The number to search for
+	 * @param start The index to start at (inclusive)
+	 * @param end The index to end at (exclusive)
+	 * @return The index of the first occurrence of the given number in the given range or -1 if not found
+	 */
+	public static int indexOf(final @Nullable float[] array, final float num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(final @Nullable float[] array, final float num) {
+		if (array == null)
+			return -1;
+		return lastIndexOf(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return The index of the last occurrence of the given number in the range [start, end) of the array or -1 if not found
+	 */
+	public static int lastIndexOf(final @Nullable float[] array, final float num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public final static boolean contains(final @Nullable float[] array, final float num) {
+		return indexOf(array, num) != -1;
+	}
+	
+	public static int count(final @Nullable float[] array, final float num) {
+		if (array == null)
+			return 0;
+		return count(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return How often the given number occurs in the range [start, end) of the array
+	 */
+	public static int count(final @Nullable float[] array, final float num, final int start, final int end) {
+		if (array == null)
+			return 0;
+		int r = 0;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				r++;
+		}
+		return r;
+	}
+	
+	/**
+	 * Like {@link Arrays#binarySearch(float[], float)}, but returns -1 (i.e. the result for an empty array) if the array is null.
+	 * 
+	 * @param array A sorted array
+	 */
+	public static int binarySearch(final @Nullable float[] array, final float num) {
+		if (array == null)
+			return -1;
+		return Arrays.binarySearch(array, num);
+	}
+	
+	/**
+	 * Searches a sorted array starting at the given index by first probing at exponentially increasing distances, then performing a binary search in the found interval. This
+	 * is faster than a normal binary search if the searched number is expected to be close to <tt>start</tt>, e.g. when searching for many increasing numbers.
+	 * 
+	 * @param array A sorted array
+	 * @param num The number to search for
+	 * @param start The index to start searching at. Elements before this index are ignored.
+	 * @return The same as {@link Arrays#binarySearch(float[], int, int, float)} for the range [start, array.length), or -1 if the array is null
+	 */
+	public static int gallopingSearch(final @Nullable float[] array, final float num, final int start) {
+		if (array == null)
+			return -1;
+		final int length = array.length;
+		int low = start, high = start, step = 1;
+		while (high < length && Float.compare(array[high], num) < 0) {
+			low = high + 1;
+			high = length - high > step ? high + step : length;
+			step <<= 1;
+		}
+		return Arrays.binarySearch(array, low, Math.min(high + 1, length), num);
+	}
+	
+	public static int indexOf(final @Nullable double[] array, final double num) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, 0, array.length);
+	}
+	
+	public static int indexOf(final @Nullable double[] array, final double num, final int start) {
+		if (array == null)
+			return -1;
+		return indexOf(array, num, start, array.length);
+	}
+	
+	/**
+	 * Finds a number in an array.
+	 * <p>
+	 * Elements are compared with <tt>==</tt>, thus Double.NaN is never found and -0 and +0 are considered equal.
+	 * 
+	 * @param array The array to search in
+	 * @param num The number to search for
+	 * @param start The index to start at (inclusive)
+	 * @param end The index to end at (exclusive)
+	 * @return The index of the first occurrence of the given number in the given range or -1 if not found
+	 */
+	public static int indexOf(final @Nullable double[] array, final double num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public static int lastIndexOf(final @Nullable double[] array, final double num) {
+		if (array == null)
+			return -1;
+		return lastIndexOf(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return The index of the last occurrence of the given number in the range [start, end) of the array or -1 if not found
+	 */
+	public static int lastIndexOf(final @Nullable double[] array, final double num, final int start, final int end) {
+		if (array == null)
+			return -1;
+		for (int i = end - 1; i >= start; i--) {
+			if (array[i] == num)
+				return i;
+		}
+		return -1;
+	}
+	
+	public final static boolean contains(final @Nullable double[] array, final double num) {
+		return indexOf(array, num) != -1;
+	}
+	
+	public static int count(final @Nullable double[] array, final double num) {
+		if (array == null)
+			return 0;
+		return count(array, num, 0, array.length);
+	}
+	
+	/**
+	 * @return How often the given number occurs in the range [start, end) of the array
+	 */
+	public static int count(final @Nullable double[] array, final double num, final int start, final int end) {
+		if (array == null)
+			return 0;
+		int r = 0;
+		for (int i = start; i < end; i++) {
+			if (array[i] == num)
+				r++;
+		}
+		return r;
+	}
+	
+	/**
+	 * Like {@link Arrays#binarySearch(double[], double)}, but returns -1 (i.e. the result for an empty array) if the array is null.
+	 * 
+	 * @param array A sorted array
+	 */
+	public static int binarySearch(final @Nullable double[] array, final double num) {
+		if (array == null)
+			return -1;
+		return Arrays.binarySearch(array, num);
+	}
+	
+	/**
+	 * Searches a sorted array starting at the given index by first probing at exponentially increasing distances, then performing a binary search in the found interval. This
+	 * is faster than a normal binary search if the searched number is expected to be close to <tt>start</tt>, e.g. when searching for many increasing numbers.
+	 * 
+	 * @param array A sorted array
+	 * @param num The number to search for
+	 * @param start The index to start searching at. Elements before this index are ignored.
+	 * @return The same as {@link Arrays#binarySearch(double[], int, int, double)} for the range [start, array.length), or -1 if the array is null
+	 */
+	public static int gallopingSearch(final @Nullable double[] array, final double num, final int start) {
+		if (array == null)
+			return -1;
+		final int length = array.length;
+		int low = start, high = start, step = 1;
+		while (high < length && Double.compare(array[high], num) < 0) {
+			low = high + 1;
+			high = length - high > step ? high + step : length;
+			step <<= 1;
+		}
+		return Arrays.binarySearch(array, low, Math.min(high + 1, length), num);
+	}
+	
+	/**
+	 * finds a string in an array of strings (ignoring case).
+	 * 
+	 * @param array the array to search in
+	 * @param s the string to search for
+	 * @return the index of the first occurrence of the given string or -1 if not found
+	 */
+	public static int indexOfIgnoreCase(final @Nullable String[] array, final @Nullable String s) {
+		if (array == null)
+			return -1;
+		int i = 0;
+		for (final String a : array) {
+			if (a == null ? s == null : a.equalsIgnoreCase(s))
+				return i;
+			i++;
+		}
+		return -1;
+	}
+	
+	public static boolean containsIgnoreCase(final @Nullable String[] array, final @Nullable String s) {
+		return indexOfIgnoreCase(array, s) != -1;
+	}
+	
+	/**
+	 * Finds an object in an iterable using {@link Object#equals(Object)}.
+	 * 
+	 * @param iter The iterable to search in
+	 * @param o The object to search for
+	 * @return The index of the first occurrence of the given object or -1 if not found
+	 */
+	public static <T> int indexOf(final @Nullable Iterable<T> iter, final @Nullable T o) {
+		if (iter == null)
+			return -1;
+		int i = 0;
+		for (final T a : iter) {
+			if (a == null ? o == null : a.equals(o))
+				return i;
+			i++;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Finds a string in a collection of strings (ignoring case).
+	 * 
+	 * @param iter The iterable to search in
+	 * @param s The string to search for
+	 * @return The index of the first occurrence of the given string or -1 if not found
+	 */
+	public static int indexOfIgnoreCase(final @Nullable Iterable<String> iter, final @Nullable String s) {
+		if (iter == null)
+			return -1;
+		int i = 0;
+		for (final String a : iter) {
+			if (a == null ? s == null : a.equalsIgnoreCase(s))
+				return i;
+			i++;
+		}
+		return -1;
+	}
+	
+	/**
+	 * @param map
+	 * @param key
+	 * @return A new entry object or null if the key is not in the map
+	 */
+	@Nullable
+	public static <T, U> Entry<T, U> containsKey(final @Nullable Map<T, U> map, final @Nullable T key) {
+		if (map == null)
+			return null;
+		if (map.containsKey(key))
+			return new Pair<T, U>(key, map.get(key));
+		return null;
+	}
+	
+	@Nullable
+	public static <U> Entry<String, U> containsKeyIgnoreCase(final @Nullable Map<String, U> map, final @Nullable String key) {
+		if (key == null)
+			return containsKey(map, null);
+		if (map == null)
+			return null;
+		for (final Entry<String, U> e : map.entrySet()) {
+			if (key.equalsIgnoreCase(e.getKey()))
+				return e;
+		}
+		return null;
+	}
+	
+	/**
+	 * @param classes Array of classes
+	 * @param c The class to look for
+	 * @return Whether the class or any of its superclasses are contained in the array
+	 * @see ClassFilter
+	 */
+	public final static boolean containsSuperclass(final @Nullable Class<?>[] classes, final @Nullable Class<?> c) {
+		if (classes == null || c == null)
+			return false;
+		for (final Class<?> cl : classes) {
+			if (cl == null)
+				continue;
+			if (cl.isAssignableFrom(c))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @param classes Array of classes
+	 * @param cs The classes to look for
+	 * @return Whether the classes or any of their superclasses are contained in the array
+	 * @see ClassFilter
+	 */
+	public final static boolean containsAnySuperclass(final @Nullable Class<?>[] classes, final @Nullable Class<?>... cs) {
+		if (classes == null || cs == null)
+			return false;
+		for (final Class<?> cl : classes) {
+			if (cl == null)
+				continue;
+			for (final Class<?> c : cs) {
+				if (cl.isAssignableFrom(c))
+					return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * One random number generator per thread, as a single shared {@link Random} scales badly if used by many threads concurrently.
+	 */
+	private final static ThreadLocal<Random> random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+	
+	/**
+	 * @return The random number generator of the current thread used by the methods of this class that do not take a {@link Random} parameter
+	 */
+	@SuppressWarnings("null")
+	final static Random random() {
+		return random.get();
+	}
+	
+	@Nullable
+	public static <T> T getRandom(final @Nullable T[] os) {
+		return getRandom(os, 0, random());
+	}
+	
+	@Nullable
+	public static <T> T getRandom(final @Nullable T[] os, final int start) {
+		return getRandom(os, start, random());
+	}
+	
+	/**
+	 * @param os An array
+	 * @param start The index of the first element to consider
+	 * @param random The random number generator to use, e.g. a seeded one to get reproducible results
+	 * @return A random element of the array at an index &ge; <tt>start</tt>, or null if the array is null or empty
+	 */
+	@Nullable
+	public static <T> T getRandom(final @Nullable T[] os, final int start, final Random random) {
+		if (os == null || os.length == 0)
+			return null;
+		return os[random.nextInt(os.length - start) + start];
+	}
+	
+	@Nullable
+	public static <T> T getRandom(final @Nullable List<T> os) {
+		return getRandom(os, random());
+	}
+	
+	@Nullable
+	public static <T> T getRandom(final @Nullable List<T> os, final Random random) {
+		if (os == null || os.isEmpty())
+			return null;
+		return os.get(random.nextInt(os.size()));
+	}
+	
+	/**
+	 * Picks <tt>k</tt> distinct elements of the given array, i.e. samples without replacement.
+	 * 
+	 * @param os An array, which must not be null as the returned array needs its component type
+	 * @param k The number of elements to pick
+	 * @return A new array of the same type and of length <tt>min(k, os.length)</tt> containing the picked elements in random order
+	 */
+	public static <T> T[] sample(final T[] os, final int k) {
+		return sample(os, k, random());
+	}
+	
+	public static <T> T[] sample(final T[] os, final int k, final Random random) {
+		final int[] indices = sampleIndices(os.length, k, random);
+		final T[] r = Arrays.copyOf(os, indices.length);
+		for (int i = 0; i < indices.length; i++)
+			r[i] = os[indices[i]];
+		return r;
+	}
+	
+	/**
+	 * Picks <tt>k</tt> distinct elements of the given list, i.e. samples without replacement.
+	 * 
+	 * @param os A list, preferably with random access
+	 * @param k The number of elements to pick
+	 * @return A new list of size <tt>min(k, os.size())</tt> containing the picked elements in random order
+	 */
+	public static <T> List<T> sample(final @Nullable List<T> os, final int k) {
+		return sample(os, k, random());
+	}
+	
+	public static <T> List<T> sample(final @Nullable List<T> os, final int k, final Random random) {
+		if (os == null)
+			return new ArrayList<T>(0);
+		final int[] indices = sampleIndices(os.size(), k, random);
+		final List<T> r = new ArrayList<T>(indices.length);
+		for (final int i : indices)
+			r.add(os.get(i));
+		return r;
+	}
+	
+	/**
+	 * Picks <tt>min(k, n)</tt> distinct indices out of [0, n). Uses a partial shuffle of all indices if many are picked, or Floyd's algorithm, which only uses O(k) memory,
+	 * if few are picked.
+	 */
+	private static int[] sampleIndices(final int n, final int k, final Random random) {
+		if (k <= 0 || n <= 0)
+			return new int[0];
+		if (k >= n / 4) {
+			final int[] p = new int[n];
+			for (int i = 0; i < n; i++)
+				p[i] = i;
+			final int m = Math.min(k, n);
+			for (int i = 0; i < m; i++) {
+				final int j = i + random.nextInt(n - i);
+				final int b = p[i];
+				p[i] = p[j];
+				p[j] = b;
+			}
+			return m == n ? p : Arrays.copyOf(p, m);
+		}
+		final Set<Integer> picked = new HashSet<Integer>(k * 2);
+		final int[] r = new int[k];
+		for (int i = n - k, j = 0; i < n; i++, j++) {
+			final int t = random.nextInt(i + 1);
+			final int pick = picked.contains(t) ? i : t;
+			picked.add(pick);
+			r[j] = pick;
+		}
+		for (int i = k - 1; i > 0; i--) { // Floyd's algorithm does not produce a random order
+			final int j = random.nextInt(i + 1);
+			final int b = r[i];
+			r[i] = r[j];
+			r[j] = b;
+		}
+		return r;
+	}
+	
+	/**
+	 * Picks <tt>k</tt> random elements out of an iterable of unknown size while only iterating it once (reservoir sampling).
+	 * 
+	 * @param iter The elements to choose from
+	 * @param k The number of elements to pick
+	 * @return A list of size <tt>min(k, number of elements)</tt> containing the picked elements in no particular order
+	 */
+	public static <T> List<T> sample(final @Nullable Iterable<T> iter, final int k) {
+		if (iter == null)
+			return new ArrayList<T>(0);
+		return sample(iter.iterator(), k, random());
+	}
+	
+	/**
+	 * Picks <tt>k</tt> random elements out of the remaining elements of an iterator (reservoir sampling). The iterator will be exhausted after this method returns.
+	 * <p>
+	 * Uses the "Algorithm L" of Li (1994), which only needs a random number for every element that is actually picked, not for every element of the iterator.
+	 * 
+	 * @param iter The elements to choose from
+	 * @param k The number of elements to pick
+	 * @param random The random number generator to use, e.g. a seeded one to get reproducible results
+	 * @return A list of size <tt>min(k, number of elements)</tt> containing the picked elements in no particular order
+	 */
+	public static <T> List<T> sample(final @Nullable Iterator<T> iter, final int k, final Random random) {
+		final List<T> reservoir = new ArrayList<T>(Math.max(0, Math.min(k, 1024)));
+		if (iter == null || k <= 0)
+			return reservoir;
+		while (reservoir.size() < k) {
+			if (!iter.hasNext())
+				return reservoir;
+			reservoir.add(iter.next());
+		}
+		double w = Math.exp(Math.log(nextOpenDouble(random)) / k);
+		while (true) {
+			long skip = (long) Math.floor(Math.log(nextOpenDouble(random)) / Math.log1p(-w));
+			while (skip-- > 0) {
+				if (!iter.hasNext())
+					return reservoir;
+				iter.next();
+			}
+			if (!iter.hasNext())
+				return reservoir;
+			reservoir.set(random.nextInt(k), iter.next());
+			w *= Math.exp(Math.log(nextOpenDouble(random)) / k);
+		}
+	}
+	
+	/**
+	 * @return A random number in the interval (0, 1)
+	 */
+	private static double nextOpenDouble(final Random random) {
+		double d;
+		do {
+			d = random.nextDouble();
+		} while (d == 0);
+		return d;
+	}
+	
+	/**
+	 * @param set The set of elements
+	 * @param sub The set to test for being a subset of <tt>set</tt>
+	 * @return Whether <tt>sub</tt> only contains elements out of <tt>set</tt> or not
+	 */
+	public static boolean isSubset(final @Nullable Object[] set, final @Nullable Object[] sub) {
+		return containsAll(sub, set, false);
+	}
+	
+	/**
+	 * Like {@link #isSubset(Object[], Object[])}, but compares the objects with <tt>==</tt> instead of {@link Object#equals(Object)}.
+	 */
+	public static boolean isSubsetIdentity(final @Nullable Object[] set, final @Nullable Object[] sub) {
+		return containsAll(sub, set, true);
+	}
+	
+	/**
+	 * Gets the intersection of the given sets, i.e. a set that only contains elements that occur in all given sets.
+	 * 
+	 * @param sets
+	 * @return
+	 * @see #intersectionView(Set...)
 	 */
 	@SuppressWarnings("null")
 	public final static <E> Set<E> intersection(final @Nullable Set<E>... sets) {
@@ -317,6 +1447,7 @@ public abstract class CollectionUtils {
 	 * 
 	 * @param sets
 	 * @return
+	 * @see #unionView(Set...)
 	 */
 	@SuppressWarnings("null")
 	public final static <E> Set<E> union(final @Nullable Set<E>... sets) {
@@ -333,6 +1464,30 @@ public abstract class CollectionUtils {
 		return l;
 	}
 	
+	/**
+	 * Gets a lazy view of the intersection of the given sets, i.e. a set that only contains elements that occur in all given non-null sets. Unlike
+	 * {@link #intersection(Set...)} this does not copy any sets: the view's iterator iterates the smallest set and checks each element against the other sets.
+	 * 
+	 * @param sets
+	 * @return A read-only view of the intersection
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public final static <E> LazySetView<E> intersectionView(final @Nullable Set<E>... sets) {
+		return new LazySetView.Intersection<E>(sets == null ? new Set[0] : sets);
+	}
+	
+	/**
+	 * Gets a lazy view of the union of the given sets, i.e. a set that contains all elements of the given sets. Unlike {@link #union(Set...)} this does not copy any sets:
+	 * the view's iterator iterates all sets and skips elements which are contained in an earlier set.
+	 * 
+	 * @param sets
+	 * @return A read-only view of the union
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public final static <E> LazySetView<E> unionView(final @Nullable Set<E>... sets) {
+		return new LazySetView.Union<E>(sets == null ? new Set[0] : sets);
+	}
+	
 	/**
 	 * Creates an array from the given objects. Useful for creating arrays of generic types.
 	 * <p>
@@ -347,12 +1502,26 @@ public abstract class CollectionUtils {
 	
 	/**
 	 * Creates a permutation of all integers in the interval [start, end]
+	 * <p>
+	 * This creates an array of the whole interval, thus for large intervals a {@link LazyPermutation} should be used instead.
+	 * 
+	 * @param start The lowest number which will be included in the permutation
+	 * @param end The highest number which will be included in the permutation
+	 * @return an array of length end - start + 1, or an empty array if start > end.
+	 */
+	public final static int[] permutation(final int start, final int end) {
+		return permutation(start, end, random());
+	}
+	
+	/**
+	 * Creates a permutation of all integers in the interval [start, end] using the given random number generator
 	 * 
 	 * @param start The lowest number which will be included in the permutation
 	 * @param end The highest number which will be included in the permutation
+	 * @param random The random number generator to use, e.g. a seeded one to get reproducible permutations
 	 * @return an array of length end - start + 1, or an empty array if start > end.
 	 */
-	public final static int[] permutation(final int start, final int end) {
+	public final static int[] permutation(final int start, final int end, final Random random) {
 		if (start > end)
 			return new int[0];
 		final int length = end - start + 1;
@@ -382,6 +1551,7 @@ public abstract class CollectionUtils {
 		final byte[] r = new byte[length];
 		for (byte i = 0; i < length; i++)
 			r[i] = (byte) (start + i);
+		final Random random = random();
 		for (int i = length - 1; i > 0; i--) {
 			final int j = random.nextInt(i + 1);
 			final byte b = r[i];
@@ -400,6 +1570,9 @@ public abstract class CollectionUtils {
 	
 	/**
 	 * Converts a collection of integers into a primitive int array.
+	 * <p>
+	 * Views of primitive collections like {@link IntArrayList#asList()} are copied directly without unboxing their elements. Code that frequently needs an int[] should
+	 * consider using an {@link IntArrayList} or {@link IntHashSet} in the first place.
 	 * 
 	 * @param ints The collection
 	 * @return An int[] containing the elements of the given collection in the order they were returned by the collection's iterator.
@@ -408,6 +1581,8 @@ public abstract class CollectionUtils {
 	public final static int[] toArray(final @Nullable Collection<Integer> ints) {
 		if (ints == null)
 			return new int[0];
+		if (ints instanceof IntCollection)
+			return ((IntCollection) ints).toIntArray();
 		final int[] r = new int[ints.size()];
 		int i = 0;
 		for (final Integer n : ints)
@@ -419,13 +1594,837 @@ public abstract class CollectionUtils {
 		return r;
 	}
 	
+	/**
+	 * How to convert floating point numbers to integers, see {@link #toInts(double[], int, int[], int, int, Rounding)} and similar methods.
+	 */
+	public static enum Rounding {
+		/**
+		 * A plain cast, i.e. rounding towards zero
+		 */
+		TRUNCATE,
+		/**
+		 * Rounding towards negative infinity like {@link Math2#floor(double)}
+		 */
+		FLOOR,
+		/**
+		 * Rounding to the closest integer with .5 rounded up like {@link Math2#round(double)}
+		 */
+		ROUND,
+		/**
+		 * Rounding towards positive infinity like {@link Math2#ceil(double)}
+		 */
+		CEIL;
+	}
+	
+	/**
+	 * Conversions of arrays with at least this many elements are split into chunks if an executor is passed to the conversion method.
+	 */
+	public final static int PARALLEL_CONVERSION_THRESHOLD = 1 << 17;
+	
+	/**
+	 * Size of the temporary array used to convert into buffers that are not backed by an array
+	 */
+	private final static int BUFFER_CHUNK = 1024;
+	
+	private final static void checkRange(final int srcLength, final int srcPos, final int dstLength, final int dstPos, final int length) {
+		if (srcPos < 0 || dstPos < 0 || length < 0 || srcPos > srcLength - length || dstPos > dstLength - length)
+			throw new IndexOutOfBoundsException("srcPos: " + srcPos + ", dstPos: " + dstPos + ", length: " + length + ", source length: " + srcLength + ", destination length: " + dstLength);
+	}
+	
+	private static abstract class ConversionChunk {
+		public abstract void convert(int offset, int length);
+	}
+	
+	/**
+	 * Converts the range [0, length) in chunks on the given executor, or directly if the range is small. The last chunk is converted in the current thread.
+	 */
+	private final static void convertParallel(final ExecutorService executor, final int length, final ConversionChunk chunk) throws InterruptedException {
+		final int chunks = Math.min(Runtime.getRuntime().availableProcessors(), length / (PARALLEL_CONVERSION_THRESHOLD / 2));
+		if (length < PARALLEL_CONVERSION_THRESHOLD || chunks < 2) {
+			chunk.convert(0, length);
+			return;
+		}
+		final int chunkSize = (length + chunks - 1) / chunks;
+		final List<Future<?>> futures = new ArrayList<Future<?>>(chunks - 1);
+		try {
+			int start = 0;
+			for (; start < length - chunkSize; start += chunkSize) {
+				final int offset = start;
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						chunk.convert(offset, chunkSize);
+					}
+				}));
+			}
+			chunk.convert(start, length - start);
+			for (final Future<?> f : futures)
+				f.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		} finally {
+			for (final Future<?> f : futures)
+				f.cancel(true);
+		}
+	}
+	
 	public final static float[] toFloats(final @Nullable double[] doubles) {
 		if (doubles == null)
 			return new float[0];
 		final float[] floats = new float[doubles.length];
-		for (int i = 0; i < floats.length; i++)
-			floats[i] = (float) doubles[i];
+		toFloats(doubles, 0, floats, 0, doubles.length);
 		return floats;
 	}
 	
+	/**
+	 * Converts <tt>length</tt> doubles starting at <tt>src[srcPos]</tt> into floats starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first double to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first float to
+	 * @param length The number of elements to convert
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toFloats(final double[] src, final int srcPos, final float[] dst, final int dstPos, final int length) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		for (int i = 0; i < length; i++)
+			dst[dstPos + i] = (float) src[srcPos + i];
+	}
+	
+	/**
+	 * Like {@link #toFloats(double[], int, float[], int, int)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toFloats(final ExecutorService executor, final double[] src, final int srcPos, final float[] dst, final int dstPos, final int length) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toFloats(src, srcPos + offset, dst, dstPos + offset, len);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> doubles starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toFloats(final double[] src, final int srcPos, final FloatBuffer dst, final int length) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toFloats(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final float[] temp = new float[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toFloats(src, srcPos + i, temp, 0, l);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static float[] toFloats(final @Nullable int[] src) {
+		if (src == null)
+			return new float[0];
+		final float[] dst = new float[src.length];
+		toFloats(src, 0, dst, 0, src.length);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> ints starting at <tt>src[srcPos]</tt> into floats starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first int to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first float to
+	 * @param length The number of elements to convert
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toFloats(final int[] src, final int srcPos, final float[] dst, final int dstPos, final int length) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		for (int i = 0; i < length; i++)
+			dst[dstPos + i] = (float) src[srcPos + i];
+	}
+	
+	/**
+	 * Like {@link #toFloats(int[], int, float[], int, int)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toFloats(final ExecutorService executor, final int[] src, final int srcPos, final float[] dst, final int dstPos, final int length) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toFloats(src, srcPos + offset, dst, dstPos + offset, len);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> ints starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toFloats(final int[] src, final int srcPos, final FloatBuffer dst, final int length) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toFloats(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final float[] temp = new float[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toFloats(src, srcPos + i, temp, 0, l);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static float[] toFloats(final @Nullable long[] src) {
+		if (src == null)
+			return new float[0];
+		final float[] dst = new float[src.length];
+		toFloats(src, 0, dst, 0, src.length);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> longs starting at <tt>src[srcPos]</tt> into floats starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first long to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first float to
+	 * @param length The number of elements to convert
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toFloats(final long[] src, final int srcPos, final float[] dst, final int dstPos, final int length) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		for (int i = 0; i < length; i++)
+			dst[dstPos + i] = (float) src[srcPos + i];
+	}
+	
+	/**
+	 * Like {@link #toFloats(long[], int, float[], int, int)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toFloats(final ExecutorService executor, final long[] src, final int srcPos, final float[] dst, final int dstPos, final int length) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toFloats(src, srcPos + offset, dst, dstPos + offset, len);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> longs starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toFloats(final long[] src, final int srcPos, final FloatBuffer dst, final int length) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toFloats(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final float[] temp = new float[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toFloats(src, srcPos + i, temp, 0, l);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static double[] toDoubles(final @Nullable float[] src) {
+		if (src == null)
+			return new double[0];
+		final double[] dst = new double[src.length];
+		toDoubles(src, 0, dst, 0, src.length);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> floats starting at <tt>src[srcPos]</tt> into doubles starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first float to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first double to
+	 * @param length The number of elements to convert
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toDoubles(final float[] src, final int srcPos, final double[] dst, final int dstPos, final int length) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		for (int i = 0; i < length; i++)
+			dst[dstPos + i] = src[srcPos + i];
+	}
+	
+	/**
+	 * Like {@link #toDoubles(float[], int, double[], int, int)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toDoubles(final ExecutorService executor, final float[] src, final int srcPos, final double[] dst, final int dstPos, final int length) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toDoubles(src, srcPos + offset, dst, dstPos + offset, len);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> floats starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toDoubles(final float[] src, final int srcPos, final DoubleBuffer dst, final int length) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toDoubles(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final double[] temp = new double[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toDoubles(src, srcPos + i, temp, 0, l);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static double[] toDoubles(final @Nullable int[] src) {
+		if (src == null)
+			return new double[0];
+		final double[] dst = new double[src.length];
+		toDoubles(src, 0, dst, 0, src.length);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> ints starting at <tt>src[srcPos]</tt> into doubles starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first int to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first double to
+	 * @param length The number of elements to convert
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toDoubles(final int[] src, final int srcPos, final double[] dst, final int dstPos, final int length) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		for (int i = 0; i < length; i++)
+			dst[dstPos + i] = src[srcPos + i];
+	}
+	
+	/**
+	 * Like {@link #toDoubles(int[], int, double[], int, int)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toDoubles(final ExecutorService executor, final int[] src, final int srcPos, final double[] dst, final int dstPos, final int length) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toDoubles(src, srcPos + offset, dst, dstPos + offset, len);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> ints starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toDoubles(final int[] src, final int srcPos, final DoubleBuffer dst, final int length) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toDoubles(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final double[] temp = new double[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toDoubles(src, srcPos + i, temp, 0, l);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static double[] toDoubles(final @Nullable long[] src) {
+		if (src == null)
+			return new double[0];
+		final double[] dst = new double[src.length];
+		toDoubles(src, 0, dst, 0, src.length);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> longs starting at <tt>src[srcPos]</tt> into doubles starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first long to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first double to
+	 * @param length The number of elements to convert
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toDoubles(final long[] src, final int srcPos, final double[] dst, final int dstPos, final int length) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		for (int i = 0; i < length; i++)
+			dst[dstPos + i] = (double) src[srcPos + i];
+	}
+	
+	/**
+	 * Like {@link #toDoubles(long[], int, double[], int, int)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toDoubles(final ExecutorService executor, final long[] src, final int srcPos, final double[] dst, final int dstPos, final int length) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toDoubles(src, srcPos + offset, dst, dstPos + offset, len);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> longs starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toDoubles(final long[] src, final int srcPos, final DoubleBuffer dst, final int length) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toDoubles(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final double[] temp = new double[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toDoubles(src, srcPos + i, temp, 0, l);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static long[] toLongs(final @Nullable int[] src) {
+		if (src == null)
+			return new long[0];
+		final long[] dst = new long[src.length];
+		toLongs(src, 0, dst, 0, src.length);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> ints starting at <tt>src[srcPos]</tt> into longs starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first int to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first long to
+	 * @param length The number of elements to convert
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toLongs(final int[] src, final int srcPos, final long[] dst, final int dstPos, final int length) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		for (int i = 0; i < length; i++)
+			dst[dstPos + i] = src[srcPos + i];
+	}
+	
+	/**
+	 * Like {@link #toLongs(int[], int, long[], int, int)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toLongs(final ExecutorService executor, final int[] src, final int srcPos, final long[] dst, final int dstPos, final int length) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toLongs(src, srcPos + offset, dst, dstPos + offset, len);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> ints starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toLongs(final int[] src, final int srcPos, final LongBuffer dst, final int length) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toLongs(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final long[] temp = new long[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toLongs(src, srcPos + i, temp, 0, l);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static int[] toInts(final @Nullable double[] src, final Rounding rounding) {
+		if (src == null)
+			return new int[0];
+		final int[] dst = new int[src.length];
+		toInts(src, 0, dst, 0, src.length, rounding);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> doubles starting at <tt>src[srcPos]</tt> into ints starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first double to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first int to
+	 * @param length The number of elements to convert
+	 * @param rounding How to round the numbers
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toInts(final double[] src, final int srcPos, final int[] dst, final int dstPos, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		switch (rounding) {
+			case TRUNCATE:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = (int) src[srcPos + i];
+				return;
+			case FLOOR:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.floorI(src[srcPos + i]);
+				return;
+			case ROUND:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.roundI(src[srcPos + i]);
+				return;
+			case CEIL:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.ceilI(src[srcPos + i]);
+				return;
+		}
+		throw new IllegalArgumentException("" + rounding);
+	}
+	
+	/**
+	 * Like {@link #toInts(double[], int, int[], int, int, Rounding)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toInts(final ExecutorService executor, final double[] src, final int srcPos, final int[] dst, final int dstPos, final int length, final Rounding rounding) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toInts(src, srcPos + offset, dst, dstPos + offset, len, rounding);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> doubles starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toInts(final double[] src, final int srcPos, final IntBuffer dst, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toInts(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length, rounding);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final int[] temp = new int[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toInts(src, srcPos + i, temp, 0, l, rounding);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static int[] toInts(final @Nullable float[] src, final Rounding rounding) {
+		if (src == null)
+			return new int[0];
+		final int[] dst = new int[src.length];
+		toInts(src, 0, dst, 0, src.length, rounding);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> floats starting at <tt>src[srcPos]</tt> into ints starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first float to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first int to
+	 * @param length The number of elements to convert
+	 * @param rounding How to round the numbers
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toInts(final float[] src, final int srcPos, final int[] dst, final int dstPos, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		switch (rounding) {
+			case TRUNCATE:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = (int) src[srcPos + i];
+				return;
+			case FLOOR:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.floorI(src[srcPos + i]);
+				return;
+			case ROUND:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.roundI(src[srcPos + i]);
+				return;
+			case CEIL:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.ceilI(src[srcPos + i]);
+				return;
+		}
+		throw new IllegalArgumentException("" + rounding);
+	}
+	
+	/**
+	 * Like {@link #toInts(float[], int, int[], int, int, Rounding)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toInts(final ExecutorService executor, final float[] src, final int srcPos, final int[] dst, final int dstPos, final int length, final Rounding rounding) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toInts(src, srcPos + offset, dst, dstPos + offset, len, rounding);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> floats starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toInts(final float[] src, final int srcPos, final IntBuffer dst, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toInts(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length, rounding);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final int[] temp = new int[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toInts(src, srcPos + i, temp, 0, l, rounding);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static long[] toLongs(final @Nullable double[] src, final Rounding rounding) {
+		if (src == null)
+			return new long[0];
+		final long[] dst = new long[src.length];
+		toLongs(src, 0, dst, 0, src.length, rounding);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> doubles starting at <tt>src[srcPos]</tt> into longs starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first double to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first long to
+	 * @param length The number of elements to convert
+	 * @param rounding How to round the numbers
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toLongs(final double[] src, final int srcPos, final long[] dst, final int dstPos, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		switch (rounding) {
+			case TRUNCATE:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = (long) src[srcPos + i];
+				return;
+			case FLOOR:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.floor(src[srcPos + i]);
+				return;
+			case ROUND:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.round(src[srcPos + i]);
+				return;
+			case CEIL:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.ceil(src[srcPos + i]);
+				return;
+		}
+		throw new IllegalArgumentException("" + rounding);
+	}
+	
+	/**
+	 * Like {@link #toLongs(double[], int, long[], int, int, Rounding)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toLongs(final ExecutorService executor, final double[] src, final int srcPos, final long[] dst, final int dstPos, final int length, final Rounding rounding) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toLongs(src, srcPos + offset, dst, dstPos + offset, len, rounding);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> doubles starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toLongs(final double[] src, final int srcPos, final LongBuffer dst, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toLongs(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length, rounding);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final long[] temp = new long[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toLongs(src, srcPos + i, temp, 0, l, rounding);
+			dst.put(temp, 0, l);
+		}
+	}
+	
+	public final static long[] toLongs(final @Nullable float[] src, final Rounding rounding) {
+		if (src == null)
+			return new long[0];
+		final long[] dst = new long[src.length];
+		toLongs(src, 0, dst, 0, src.length, rounding);
+		return dst;
+	}
+	
+	/**
+	 * Converts <tt>length</tt> floats starting at <tt>src[srcPos]</tt> into longs starting at <tt>dst[dstPos]</tt>.
+	 * 
+	 * @param src The source array
+	 * @param srcPos The index of the first float to convert
+	 * @param dst The destination array
+	 * @param dstPos The index to write the first long to
+	 * @param length The number of elements to convert
+	 * @param rounding How to round the numbers
+	 * @throws IndexOutOfBoundsException If a range exceeds the bounds of its array. Nothing is converted in this case.
+	 */
+	public final static void toLongs(final float[] src, final int srcPos, final long[] dst, final int dstPos, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		switch (rounding) {
+			case TRUNCATE:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = (long) src[srcPos + i];
+				return;
+			case FLOOR:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.floor(src[srcPos + i]);
+				return;
+			case ROUND:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.round(src[srcPos + i]);
+				return;
+			case CEIL:
+				for (int i = 0; i < length; i++)
+					dst[dstPos + i] = Math2.ceil(src[srcPos + i]);
+				return;
+		}
+		throw new IllegalArgumentException("" + rounding);
+	}
+	
+	/**
+	 * Like {@link #toLongs(float[], int, long[], int, int, Rounding)}, but splits large arrays into chunks which are converted on the given executor.
+	 * 
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the chunks to be converted
+	 */
+	public final static void toLongs(final ExecutorService executor, final float[] src, final int srcPos, final long[] dst, final int dstPos, final int length, final Rounding rounding) throws InterruptedException {
+		checkRange(src.length, srcPos, dst.length, dstPos, length);
+		convertParallel(executor, length, new ConversionChunk() {
+			@Override
+			public void convert(final int offset, final int len) {
+				toLongs(src, srcPos + offset, dst, dstPos + offset, len, rounding);
+			}
+		});
+	}
+	
+	/**
+	 * Converts <tt>length</tt> floats starting at <tt>src[srcPos]</tt> and writes them to the given buffer at its current position, advancing the position by
+	 * <tt>length</tt>.
+	 * 
+	 * @throws java.nio.BufferOverflowException If the buffer has less than <tt>length</tt> elements remaining. Nothing is converted in this case.
+	 */
+	public final static void toLongs(final float[] src, final int srcPos, final LongBuffer dst, final int length, final Rounding rounding) {
+		checkRange(src.length, srcPos, Integer.MAX_VALUE, 0, length);
+		if (dst.remaining() < length)
+			throw new BufferOverflowException();
+		if (dst.hasArray()) {
+			toLongs(src, srcPos, dst.array(), dst.arrayOffset() + dst.position(), length, rounding);
+			dst.position(dst.position() + length);
+			return;
+		}
+		final long[] temp = new long[Math.min(length, BUFFER_CHUNK)];
+		for (int i = 0; i < length; i += temp.length) {
+			final int l = Math.min(temp.length, length - i);
+			toLongs(src, srcPos + i, temp, 0, l, rounding);
+			dst.put(temp, 0, l);
+		}
+	}
+	
 }
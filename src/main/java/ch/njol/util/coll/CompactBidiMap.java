@@ -0,0 +1,628 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Math2;
+
+/**
+ * A bidirectional hash map which stores each pair only once, as an alternative to {@link BidiHashMap} which keeps two hash maps. Keys and values are kept in two parallel
+ * arrays, and each side has its own hash index of positions in these arrays (small maps don't have an index and are searched linearly instead, like {@link ArrayMap}).
+ * The {@link #getReverseView() reverse view} shares the same storage, thus getting it is free and changes to either map are immediately visible in the other one.
+ * <p>
+ * Compared to two hash maps this uses about half the memory and does not allocate any objects per pair. Removing a pair only marks its position and its index slots as
+ * removed, and the arrays are compacted when they are full, thus pairs are iterated in insertion order. Replacing the key or value of a pair keeps its position.
+ * <p>
+ * Neither keys nor values may be null. The collection views returned by {@link #keySet()}, {@link #valueSet()} and {@link #entrySet()} are read-only.
+ * 
+ * @author Peter Güttinger
+ * @see BidiHashMap
+ */
+public class CompactBidiMap<T1, T2> extends AbstractMap<T1, T2> implements BidiMap<T1, T2>, Cloneable, Serializable {
+	
+	private static final long serialVersionUID = -3174480294417806931L;
+	
+	/**
+	 * Maps with more positions than this use hash indices
+	 */
+	public final static int HASH_THRESHOLD = ArrayMap.HASH_THRESHOLD;
+	
+	private final static Object[] EMPTY = new Object[0];
+	
+	/**
+	 * Marks index slots of removed pairs. Free slots are 0, used slots contain the hash of the object in the upper 32 bits and its position plus one in the lower 32 bits.
+	 */
+	private final static long REMOVED = 0xFFFFFFFFL;
+	
+	/**
+	 * The storage shared by a map and its reverse view. Side 0 contains the keys of the forward map, side 1 its values. Removed pairs are null on both sides.
+	 */
+	private final static class Table {
+		
+		final Object[][] arrays = {EMPTY, EMPTY};
+		/**
+		 * The hash indices of both sides, or null if the table is small
+		 */
+		@Nullable
+		long[][] indices = null;
+		int mask = 0;
+		/**
+		 * The number of used or removed slots in each index
+		 */
+		final int[] fill = new int[2];
+		/**
+		 * The number of positions used by current or removed pairs
+		 */
+		int end = 0;
+		int size = 0;
+		
+		Table() {}
+		
+		/**
+		 * Creates a compacted copy of the given table.
+		 * 
+		 * @param side The side of the given table that will be side 0 of the copy
+		 */
+		Table(final Table t, final int side) {
+			if (t.size != 0) {
+				arrays[0] = new Object[t.size];
+				arrays[1] = new Object[t.size];
+			}
+			final int[] positions = t.copyPairs(arrays[0], arrays[1], side);
+			size = end = t.size;
+			final long[][] indices = t.indices;
+			if (indices != null)
+				buildIndices(indices[side], indices[1 - side], positions);
+		}
+		
+		private final static int hash(final Object o) {
+			final int h = o.hashCode() * 0x9E3779B9;
+			return h ^ h >>> 16;
+		}
+		
+		/**
+		 * @return The position of the given object on the given side, or -1 if it is not in the table
+		 */
+		int find(final int side, final @Nullable Object o) {
+			final int slot = findSlot(side, o);
+			return slot == -1 ? -1 : position(side, slot);
+		}
+		
+		/**
+		 * @return The slot of the given object in the index of the given side, or its position if the table has no indices, or -1 if it is not in the table
+		 */
+		int findSlot(final int side, final @Nullable Object o) {
+			if (o == null)
+				return -1;
+			final long[][] indices = this.indices;
+			final Object[] a = arrays[side];
+			if (indices != null) {
+				final long[] index = indices[side];
+				final int h = hash(o), mask = this.mask;
+				for (int i = h & mask;; i = (i + 1) & mask) {
+					final long e = index[i];
+					if (e == 0)
+						return -1;
+					if ((int) (e >>> 32) == h) {
+						final int p = (int) e - 1;
+						if (p >= 0 && o.equals(a[p]))
+							return i;
+					}
+				}
+			}
+			for (int i = 0; i < end; i++) {
+				if (o.equals(a[i]))
+					return i;
+			}
+			return -1;
+		}
+		
+		/**
+		 * @param slot A slot returned by {@link #findSlot(int, Object)}
+		 * @return The position of the pair in the given slot
+		 */
+		int position(final int side, final int slot) {
+			final long[][] indices = this.indices;
+			return indices == null ? slot : (int) indices[side][slot] - 1;
+		}
+		
+		/**
+		 * Adds a pair. Neither object may already be in the table.
+		 */
+		void add(final Object o0, final Object o1) {
+			if (end == arrays[0].length)
+				compact(Math.max(4, size < end - end / 4 ? end : end * 2));
+			final int pos = end++;
+			arrays[0][pos] = o0;
+			arrays[1][pos] = o1;
+			size++;
+			final long[][] indices = this.indices;
+			if (indices != null) {
+				if (isCrowded(0) || isCrowded(1))
+					buildIndices(indices[0], indices[1], null);
+				insert(0, hash(o0), pos);
+				insert(1, hash(o1), pos);
+			} else if (end > HASH_THRESHOLD) {
+				buildIndices(null, null, null);
+			}
+		}
+		
+		/**
+		 * @return Whether the index of the given side has so many used or removed slots that it should be rebuilt. Indices are at most half full of current pairs, thus they
+		 *         are rebuilt after a few removed slots have accumulated.
+		 */
+		private boolean isCrowded(final int side) {
+			return fill[side] > (mask + 1) / 8 * 5;
+		}
+		
+		/**
+		 * Inserts a position into the index of the given side, reusing the first removed slot of the probe sequence.
+		 */
+		private void insert(final int side, final int hash, final int pos) {
+			final long[][] indices = this.indices;
+			assert indices != null;
+			final long[] index = indices[side];
+			int i = hash & mask;
+			while ((int) index[i] > 0)
+				i = (i + 1) & mask;
+			if (index[i] == 0)
+				fill[side]++;
+			index[i] = (long) hash << 32 | (pos + 1);
+		}
+		
+		/**
+		 * @return The slot of the given position in the index of the given side
+		 */
+		private int slotOf(final int side, final int pos) {
+			final long[][] indices = this.indices;
+			assert indices != null;
+			final long[] index = indices[side];
+			int i = hash(arrays[side][pos]) & mask;
+			while ((int) index[i] != pos + 1)
+				i = (i + 1) & mask;
+			return i;
+		}
+		
+		/**
+		 * Creates new indices without removed slots, either of all current pairs, or of the pairs in the given old indices, whose hashes don't have to be calculated again.
+		 * 
+		 * @param positions The new positions of the old positions referenced by the old indices, or null if they didn't change
+		 */
+		private void buildIndices(final @Nullable long[] old0, final @Nullable long[] old1, final @Nullable int[] positions) {
+			final int length = Math2.nextPowerOfTwo(Math.max(8, arrays[0].length) * 2);
+			final long[][] indices = new long[2][length];
+			mask = length - 1;
+			for (int side = 0; side < 2; side++) {
+				final long[] old = side == 0 ? old0 : old1;
+				int n = 0;
+				if (old == null) {
+					final Object[] a = arrays[side];
+					for (int pos = 0; pos < end; pos++) {
+						final Object o = a[pos];
+						if (o != null) {
+							insert(indices[side], hash(o), pos);
+							n++;
+						}
+					}
+				} else {
+					for (final long e : old) {
+						final int p = (int) e - 1;
+						if (p >= 0) {
+							insert(indices[side], (int) (e >>> 32), positions == null ? p : positions[p]);
+							n++;
+						}
+					}
+				}
+				fill[side] = n;
+			}
+			this.indices = indices;
+		}
+		
+		private void insert(final long[] index, final int hash, final int pos) {
+			int i = hash & mask;
+			while (index[i] != 0)
+				i = (i + 1) & mask;
+			index[i] = (long) hash << 32 | (pos + 1);
+		}
+		
+		/**
+		 * Copies the current pairs to the start of the given arrays.
+		 * 
+		 * @param side The side of this table to copy into <tt>a0</tt>
+		 * @return The new position of each position of this table
+		 */
+		private int[] copyPairs(final Object[] a0, final Object[] a1, final int side) {
+			final Object[] s0 = arrays[side], s1 = arrays[1 - side];
+			final int[] positions = new int[end];
+			int j = 0;
+			for (int i = 0; i < end; i++) {
+				if (s0[i] == null)
+					continue;
+				a0[j] = s0[i];
+				a1[j] = s1[i];
+				positions[i] = j++;
+			}
+			return positions;
+		}
+		
+		/**
+		 * Moves all current pairs to the start of new arrays of the given length and rebuilds the indices. Small tables drop their indices.
+		 */
+		private void compact(final int length) {
+			final Object[] n0 = new Object[length], n1 = new Object[length];
+			final int[] positions = copyPairs(n0, n1, 0);
+			arrays[0] = n0;
+			arrays[1] = n1;
+			end = size;
+			final long[][] indices = this.indices;
+			this.indices = null;
+			if (indices != null && size > HASH_THRESHOLD / 2)
+				buildIndices(indices[0], indices[1], positions);
+		}
+		
+		/**
+		 * Replaces the object at the given position of one side, leaving the other side unchanged. The new object must not already be on that side.
+		 */
+		void replace(final int side, final int pos, final Object o) {
+			final long[][] indices = this.indices;
+			if (indices != null)
+				indices[side][slotOf(side, pos)] = REMOVED;
+			arrays[side][pos] = o;
+			if (indices != null) {
+				if (isCrowded(side))
+					buildIndices(indices[0], indices[1], null);
+				insert(side, hash(o), pos);
+			}
+		}
+		
+		/**
+		 * Removes a pair by marking its position and its index slots as removed.
+		 * 
+		 * @param slot The slot of the pair on the given side as returned by {@link #findSlot(int, Object)}, so that only the other side has to be searched
+		 */
+		void removeAt(final int side, final int slot) {
+			final int pos = position(side, slot);
+			final long[][] indices = this.indices;
+			if (indices != null) {
+				indices[side][slot] = REMOVED;
+				indices[1 - side][slotOf(1 - side, pos)] = REMOVED;
+			}
+			final Object[] a0 = arrays[0], a1 = arrays[1];
+			a0[pos] = a1[pos] = null;
+			size--;
+			while (end > 0 && a0[end - 1] == null)
+				end--;
+		}
+		
+		void clear() {
+			Arrays.fill(arrays[0], 0, end, null);
+			Arrays.fill(arrays[1], 0, end, null);
+			size = end = 0;
+			indices = null;
+		}
+		
+	}
+	
+	private transient Table table;
+	/**
+	 * The side of the table that contains the keys of this map
+	 */
+	private transient int keySide;
+	private transient CompactBidiMap<T2, T1> other;
+	
+	private CompactBidiMap(final CompactBidiMap<T2, T1> other) {
+		this.other = other;
+		table = other.table;
+		keySide = 1 - other.keySide;
+	}
+	
+	public CompactBidiMap() {
+		table = new Table();
+		keySide = 0;
+		other = new CompactBidiMap<T2, T1>(this);
+	}
+	
+	public CompactBidiMap(final Map<? extends T1, ? extends T2> values) {
+		this();
+		putAll(values);
+	}
+	
+	private CompactBidiMap(final Table table) {
+		this.table = table;
+		keySide = 0;
+		other = new CompactBidiMap<T2, T1>(this);
+	}
+	
+	@Override
+	public CompactBidiMap<T2, T1> getReverseView() {
+		return other;
+	}
+	
+	@Override
+	@Nullable
+	public T1 getKey(final @Nullable T2 value) {
+		return other.get(value);
+	}
+	
+	@Override
+	@Nullable
+	public T2 getValue(final @Nullable T1 key) {
+		return get(key);
+	}
+	
+	@Override
+	public int size() {
+		return table.size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return table.size == 0;
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return table.find(keySide, key) != -1;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		return table.find(1 - keySide, value) != -1;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 get(final @Nullable Object key) {
+		final int i = table.find(keySide, key);
+		return i == -1 ? null : (T2) table.arrays[1 - keySide][i];
+	}
+	
+	/**
+	 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+	 * 
+	 * @return The value previously mapped to the given key
+	 * @throws NullPointerException If the key or the value is null
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 put(final @Nullable T1 key, final @Nullable T2 value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in a CompactBidiMap");
+		final Table table = this.table;
+		final int valueSide = 1 - keySide;
+		final int i = table.find(keySide, key), valueSlot = table.findSlot(valueSide, value);
+		final int j = valueSlot == -1 ? -1 : table.position(valueSide, valueSlot);
+		if (i == -1) {
+			if (j == -1)
+				add(key, value);
+			else
+				table.replace(keySide, j, key);
+			return null;
+		}
+		final T2 oldValue = (T2) table.arrays[valueSide][i];
+		if (i == j)
+			return oldValue;
+		if (j != -1)
+			table.removeAt(valueSide, valueSlot);
+		table.replace(valueSide, i, value);
+		return oldValue;
+	}
+	
+	private void add(final T1 key, final T2 value) {
+		if (keySide == 0)
+			table.add(key, value);
+		else
+			table.add(value, key);
+	}
+	
+	@Override
+	public void putAll(final Map<? extends T1, ? extends T2> m) {
+		for (final Entry<? extends T1, ? extends T2> e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 remove(final @Nullable Object key) {
+		final Table table = this.table;
+		final int slot = table.findSlot(keySide, key);
+		if (slot == -1)
+			return null;
+		final T2 oldValue = (T2) table.arrays[1 - keySide][table.position(keySide, slot)];
+		table.removeAt(keySide, slot);
+		return oldValue;
+	}
+	
+	@Override
+	public void clear() {
+		table.clear();
+	}
+	
+	/**
+	 * Iterates over the positions of current pairs of the table.
+	 */
+	private abstract class TableIterator<E> implements Iterator<E> {
+		
+		private int next = 0;
+		
+		public TableIterator() {}
+		
+		@Override
+		public boolean hasNext() {
+			final Table table = CompactBidiMap.this.table;
+			while (next < table.end && table.arrays[0][next] == null)
+				next++;
+			return next < table.end;
+		}
+		
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return get(next++);
+		}
+		
+		protected abstract E get(int i);
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	/**
+	 * A read-only view of one side of the table.
+	 */
+	private final class SideView<E> extends AbstractSet<E> {
+		
+		private final int side;
+		
+		public SideView(final int side) {
+			this.side = side;
+		}
+		
+		@Override
+		public Iterator<E> iterator() {
+			return new TableIterator<E>() {
+				@SuppressWarnings("unchecked")
+				@Override
+				protected E get(final int i) {
+					return (E) table.arrays[side][i];
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			return table.size;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			return table.find(side, o) != -1;
+		}
+		
+	}
+	
+	@Override
+	public Set<Entry<T1, T2>> entrySet() {
+		return new AbstractSet<Entry<T1, T2>>() {
+			@Override
+			public Iterator<Entry<T1, T2>> iterator() {
+				return new TableIterator<Entry<T1, T2>>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected Entry<T1, T2> get(final int i) {
+						return new SimpleImmutableEntry<T1, T2>((T1) table.arrays[keySide][i], (T2) table.arrays[1 - keySide][i]);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return table.size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				if (!(o instanceof Entry))
+					return false;
+				final Entry<?, ?> e = (Entry<?, ?>) o;
+				final int i = table.find(keySide, e.getKey());
+				return i != -1 && table.arrays[1 - keySide][i].equals(e.getValue());
+			}
+		};
+	}
+	
+	@Override
+	public Set<T1> keySet() {
+		return new SideView<T1>(keySide);
+	}
+	
+	@Override
+	public Set<T2> values() {
+		return valueSet();
+	}
+	
+	@Override
+	public Set<T2> valueSet() {
+		return new SideView<T2>(1 - keySide);
+	}
+	
+	/**
+	 * Creates an immutable copy of this map which uses less memory and is faster to read from, e.g. for tables that are built once and read often. Changes to this map are
+	 * not reflected in the copy.
+	 * 
+	 * @return A new immutable map with the same pairs as this map
+	 */
+	public FrozenBidiMap<T1, T2> freeze() {
+		final Table t = new Table(table, keySide);
+		return new FrozenBidiMap<T1, T2>(t.arrays[0], t.arrays[1]);
+	}
+	
+	/**
+	 * @return A new map with the same pairs as this map. The copy of a reverse view is a normal map from this view's keys to its values.
+	 */
+	@Override
+	public CompactBidiMap<T1, T2> clone() {
+		return new CompactBidiMap<T1, T2>(new Table(table, keySide));
+	}
+	
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(table.size);
+		for (int i = 0; i < table.end; i++) {
+			if (table.arrays[0][i] == null)
+				continue;
+			out.writeObject(table.arrays[keySide][i]);
+			out.writeObject(table.arrays[1 - keySide][i]);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		table = new Table();
+		keySide = 0;
+		other = new CompactBidiMap<T2, T1>(this);
+		final int size = in.readInt();
+		for (int i = 0; i < size; i++)
+			put((T1) in.readObject(), (T2) in.readObject());
+	}
+	
+}
@@ -0,0 +1,406 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Callback;
+
+/**
+ * A thread-safe {@link BidiMap}.
+ * <p>
+ * Both directions are stored in {@link ConcurrentHashMap}s. Modifications are serialised by a lock and mark the map as being modified with a version counter (like a
+ * sequence lock): a read takes no lock and is repeated if the map was modified while it was running. Thus every read sees a state of the map between two modifications,
+ * i.e. a reader can never see a key mapped to a value while the value is not (yet or anymore) mapped back to the key.
+ * <p>
+ * Reads are not lock-free, as they wait for modifications in progress: a read that overlaps modifications is retried a few times, and then waits for the lock. Thus
+ * reads don't block each other and are very fast unless the map is modified constantly, but a writer that is delayed in the middle of a modification delays the readers
+ * as well. The {@link #getReverseView() reverse view} shares the storage, the version and the lock with this map.
+ * <p>
+ * Like {@link BidiHashMap}, putting a pair removes any existing pairs with the same key or value, null keys and values are not allowed, and the collection views are
+ * read-only. Iterating over a view is weakly consistent like iterating over a {@link ConcurrentHashMap}, i.e. it may or may not reflect concurrent modifications.
+ * 
+ * @author Peter Güttinger
+ */
+public final class ConcurrentBidiMap<T1, T2> extends AbstractMap<T1, T2> implements BidiMap<T1, T2>, ConcurrentMap<T1, T2> {
+	
+	/**
+	 * How often a read is retried while modifications are in progress before it waits for the lock
+	 */
+	private final static int SPINS = 100;
+	
+	/**
+	 * The storage shared by a map and its reverse view. Side 0 maps the keys of the forward map to its values, side 1 maps them back.
+	 */
+	private final static class Core {
+		
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		final ConcurrentHashMap<Object, Object>[] maps = new ConcurrentHashMap[] {new ConcurrentHashMap<Object, Object>(), new ConcurrentHashMap<Object, Object>()};
+		
+		/**
+		 * Odd while a modification is in progress. Only modified while holding the lock.
+		 */
+		volatile int version = 0;
+		
+		final Object lock = new Object();
+		
+		@Nullable
+		Object get(final int side, final @Nullable Object key) {
+			if (key == null)
+				return null;
+			final ConcurrentHashMap<Object, Object> map = maps[side];
+			int spins = 0;
+			while (true) {
+				final int v = version;
+				if ((v & 1) == 0) {
+					final Object r = map.get(key);
+					if (version == v)
+						return r;
+				}
+				if (++spins > SPINS) {
+					// reading while holding the lock waits for the current modification, and cannot be starved by constant modifications
+					synchronized (lock) {
+						return map.get(key);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Must be called while holding the lock.
+		 */
+		void put(final int side, final Object key, final Object value) {
+			final ConcurrentHashMap<Object, Object> map = maps[side], reverse = maps[1 - side];
+			final Object oldValue = map.get(key), oldKey = reverse.get(value);
+			if (value.equals(oldValue))
+				return;
+			version++;
+			try {
+				if (oldValue != null)
+					reverse.remove(oldValue);
+				if (oldKey != null)
+					map.remove(oldKey);
+				map.put(key, value);
+				reverse.put(value, key);
+			} finally {
+				version++;
+			}
+		}
+		
+		/**
+		 * Must be called while holding the lock.
+		 */
+		void remove(final int side, final Object key, final Object value) {
+			version++;
+			try {
+				maps[side].remove(key);
+				maps[1 - side].remove(value);
+			} finally {
+				version++;
+			}
+		}
+		
+	}
+	
+	private final Core core;
+	/**
+	 * The side of the core that maps this map's keys to its values
+	 */
+	private final int side;
+	private final ConcurrentBidiMap<T2, T1> other;
+	
+	public ConcurrentBidiMap() {
+		core = new Core();
+		side = 0;
+		other = new ConcurrentBidiMap<T2, T1>(this);
+	}
+	
+	public ConcurrentBidiMap(final Map<? extends T1, ? extends T2> values) {
+		this();
+		putAll(values);
+	}
+	
+	private ConcurrentBidiMap(final ConcurrentBidiMap<T2, T1> other) {
+		core = other.core;
+		side = 1 - other.side;
+		this.other = other;
+	}
+	
+	@Override
+	public ConcurrentBidiMap<T2, T1> getReverseView() {
+		return other;
+	}
+	
+	@Override
+	@Nullable
+	public T1 getKey(final @Nullable T2 value) {
+		return other.get(value);
+	}
+	
+	@Override
+	@Nullable
+	public T2 getValue(final @Nullable T1 key) {
+		return get(key);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 get(final @Nullable Object key) {
+		return (T2) core.get(side, key);
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return core.get(side, key) != null;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		return core.get(1 - side, value) != null;
+	}
+	
+	@Override
+	public int size() {
+		return core.maps[side].size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return core.maps[side].isEmpty();
+	}
+	
+	/**
+	 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+	 * 
+	 * @return The value previously mapped to the given key
+	 * @throws NullPointerException If the key or the value is null
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 put(final @Nullable T1 key, final @Nullable T2 value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in a ConcurrentBidiMap");
+		synchronized (core.lock) {
+			final T2 old = (T2) core.maps[side].get(key);
+			core.put(side, key, value);
+			return old;
+		}
+	}
+	
+	@Override
+	public void putAll(final Map<? extends T1, ? extends T2> m) {
+		for (final Entry<? extends T1, ? extends T2> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+	
+	/**
+	 * Maps the given key to the given value if the key is not mapped yet. Like {@link #put(Object, Object)} this removes an existing pair with the given value.
+	 * 
+	 * @return The value the key is mapped to, or null if it was not mapped and has been mapped to the given value
+	 * @throws NullPointerException If the key or the value is null
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 putIfAbsent(final @Nullable T1 key, final @Nullable T2 value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in a ConcurrentBidiMap");
+		synchronized (core.lock) {
+			final T2 old = (T2) core.maps[side].get(key);
+			if (old == null)
+				core.put(side, key, value);
+			return old;
+		}
+	}
+	
+	/**
+	 * Returns the value of the given key, or if the key is not mapped yet, computes a value and maps the key to it atomically.
+	 * <p>
+	 * The value is computed while holding the lock of this map, thus it is computed at most once even if multiple threads call this method with the same key at the same
+	 * time. For the same reason the computation should be short and must not modify this map.
+	 * 
+	 * @param key The key
+	 * @param computer Computes the value for the key. If it returns null nothing is mapped.
+	 * @return The existing or computed value of the key, or null if the computer returned null
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public T2 getOrCompute(final T1 key, final Callback<? extends T2, ? super T1> computer) {
+		final T2 existing = get(key);
+		if (existing != null)
+			return existing;
+		synchronized (core.lock) {
+			final T2 old = (T2) core.maps[side].get(key);
+			if (old != null)
+				return old;
+			final T2 value = computer.run(key);
+			if (value != null)
+				core.put(side, key, value);
+			return value;
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 remove(final @Nullable Object key) {
+		if (key == null)
+			return null;
+		synchronized (core.lock) {
+			final T2 old = (T2) core.maps[side].get(key);
+			if (old != null)
+				core.remove(side, key, old);
+			return old;
+		}
+	}
+	
+	@Override
+	public boolean remove(final @Nullable Object key, final @Nullable Object value) {
+		if (key == null || value == null)
+			return false;
+		synchronized (core.lock) {
+			if (!value.equals(core.maps[side].get(key)))
+				return false;
+			core.remove(side, key, value);
+			return true;
+		}
+	}
+	
+	/**
+	 * Replaces the value of the given key if the key is mapped. Like {@link #put(Object, Object)} this removes an existing pair with the given value.
+	 * 
+	 * @return The previous value of the key, or null if the key was not mapped
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 replace(final @Nullable T1 key, final @Nullable T2 value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in a ConcurrentBidiMap");
+		synchronized (core.lock) {
+			final T2 old = (T2) core.maps[side].get(key);
+			if (old != null)
+				core.put(side, key, value);
+			return old;
+		}
+	}
+	
+	/**
+	 * Replaces the value of the given key if it is currently mapped to the given old value. Like {@link #put(Object, Object)} this removes an existing pair with the new
+	 * value.
+	 * 
+	 * @return Whether the value was replaced
+	 */
+	@Override
+	public boolean replace(final @Nullable T1 key, final @Nullable T2 oldValue, final @Nullable T2 newValue) {
+		if (key == null || oldValue == null || newValue == null)
+			throw new NullPointerException("Can't store null in a ConcurrentBidiMap");
+		synchronized (core.lock) {
+			if (!oldValue.equals(core.maps[side].get(key)))
+				return false;
+			core.put(side, key, newValue);
+			return true;
+		}
+	}
+	
+	@Override
+	public void clear() {
+		synchronized (core.lock) {
+			core.version++;
+			try {
+				core.maps[0].clear();
+				core.maps[1].clear();
+			} finally {
+				core.version++;
+			}
+		}
+	}
+	
+	@SuppressWarnings({"unchecked", "rawtypes", "null"})
+	@Override
+	public Set<Entry<T1, T2>> entrySet() {
+		final Set<Entry<T1, T2>> entries = (Set) core.maps[side].entrySet();
+		return new AbstractSet<Entry<T1, T2>>() {
+			@Override
+			public Iterator<Entry<T1, T2>> iterator() {
+				final Iterator<Entry<T1, T2>> iter = entries.iterator();
+				return new Iterator<Entry<T1, T2>>() {
+					@Override
+					public boolean hasNext() {
+						return iter.hasNext();
+					}
+					
+					@Override
+					public Entry<T1, T2> next() {
+						final Entry<T1, T2> e = iter.next();
+						return new SimpleImmutableEntry<T1, T2>(e.getKey(), e.getValue());
+					}
+					
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return ConcurrentBidiMap.this.size();
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				if (!(o instanceof Entry))
+					return false;
+				final Entry<?, ?> e = (Entry<?, ?>) o;
+				final Object v = core.get(side, e.getKey());
+				return v != null && v.equals(e.getValue());
+			}
+		};
+	}
+	
+	@SuppressWarnings({"unchecked", "null"})
+	@Override
+	public Set<T1> keySet() {
+		return (Set<T1>) Collections.unmodifiableSet(core.maps[side].keySet());
+	}
+	
+	@Override
+	public Set<T2> values() {
+		return valueSet();
+	}
+	
+	@Override
+	public Set<T2> valueSet() {
+		return other.keySet();
+	}
+	
+}
@@ -0,0 +1,214 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.lang.reflect.Array;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.coll.iterator.ArrayIterator;
+
+/**
+ * A thread-safe buffer of the last elements added to it, e.g. a history of the last events written by many threads. Like {@link CyclicList} the buffer has a fixed
+ * capacity and overwrites the oldest element when a new one is added, but it is a collection instead of a list as indices would change while other threads add elements.
+ * <p>
+ * Adding an element is lock-free: the element's sequence number is claimed by incrementing an atomic counter (which is padded so that it doesn't share a cache line with
+ * other data), and the element is stored in the slot <tt>sequence % capacity</tt> together with its sequence number. If a thread is so slow that the slot already
+ * contains a newer element, the old element is dropped, as it would have been overwritten anyway.
+ * <p>
+ * {@link #toArray()} and {@link #iterator()} take a snapshot of the buffer: the elements of the last <tt>capacity</tt> sequence numbers in the order they were claimed.
+ * Elements whose threads have claimed a sequence number but not stored the element yet are left out. If writers overwrite slots while the snapshot is taken, it is
+ * retried a few times, and if writers are still faster the overwritten elements are left out as well. The collection is read-only except for {@link #add(Object)}.
+ * Null elements are allowed.
+ * 
+ * @author Peter Güttinger
+ */
+public final class ConcurrentCyclicBuffer<E> extends AbstractCollection<E> {
+	
+	/**
+	 * The number of times a snapshot is retried if writers overwrite slots while it is taken
+	 */
+	private final static int SNAPSHOT_ATTEMPTS = 4;
+	
+	/**
+	 * An element with its sequence number. Slots are immutable and replaced as a whole, thus a reader always sees a matching element and sequence number.
+	 */
+	private final static class Slot {
+		
+		final long sequence;
+		@Nullable
+		final Object element;
+		
+		Slot(final long sequence, final @Nullable Object element) {
+			this.sequence = sequence;
+			this.element = element;
+		}
+		
+	}
+	
+	/*
+	 * The sequence counter is surrounded by 56 bytes on each side, so that claiming sequence numbers does not invalidate the cache lines of the fields and objects next to
+	 * it. Subclasses are used as the JVM may reorder the fields of a single class.
+	 */
+	
+	static class LeftPadding {
+		long p01, p02, p03, p04, p05, p06, p07;
+	}
+	
+	static class Sequence extends LeftPadding {
+		volatile long value = 0;
+	}
+	
+	final static class PaddedSequence extends Sequence {
+		long p11, p12, p13, p14, p15, p16, p17;
+		
+		/**
+		 * Uses the padding so that it is not removed as unused.
+		 */
+		long padding() {
+			return p01 + p02 + p03 + p04 + p05 + p06 + p07 + p11 + p12 + p13 + p14 + p15 + p16 + p17;
+		}
+	}
+	
+	private final static AtomicLongFieldUpdater<Sequence> SEQUENCE = AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+	
+	private final AtomicReferenceArray<Slot> slots;
+	private final int capacity;
+	private final PaddedSequence next = new PaddedSequence();
+	
+	/**
+	 * @param capacity The number of elements this buffer holds
+	 * @throws IllegalArgumentException If the capacity is not positive
+	 */
+	public ConcurrentCyclicBuffer(final int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		this.capacity = capacity;
+		slots = new AtomicReferenceArray<Slot>(capacity);
+		assert next.padding() == 0;
+	}
+	
+	/**
+	 * Adds an element, overwriting the oldest element if the buffer is full.
+	 * 
+	 * @return true
+	 */
+	@Override
+	public boolean add(final @Nullable E e) {
+		final long sequence = SEQUENCE.getAndIncrement(next);
+		final int i = (int) (sequence % capacity);
+		final Slot slot = new Slot(sequence, e);
+		final AtomicReferenceArray<Slot> slots = this.slots;
+		while (true) {
+			final Slot old = slots.get(i);
+			if (old != null && old.sequence > sequence)
+				return true; // a newer element has already overwritten this one
+			if (slots.compareAndSet(i, old, slot))
+				return true;
+		}
+	}
+	
+	/**
+	 * @return The capacity of this buffer
+	 */
+	public int capacity() {
+		return capacity;
+	}
+	
+	/**
+	 * @return The total number of elements ever added to this buffer
+	 */
+	public long getAddCount() {
+		return next.value;
+	}
+	
+	/**
+	 * @return The number of elements in this buffer, i.e. the number of added elements up to the capacity. A snapshot can be smaller if other threads are adding elements.
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min(next.value, capacity);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return next.value == 0;
+	}
+	
+	@Override
+	public Object[] toArray() {
+		final AtomicReferenceArray<Slot> slots = this.slots;
+		final int capacity = this.capacity;
+		Object[] r = null;
+		int n = 0;
+		for (int attempt = 0; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+			final long end = next.value, start = Math.max(0, end - capacity);
+			if (r == null || r.length != end - start)
+				r = new Object[(int) (end - start)];
+			n = 0;
+			boolean overwritten = false;
+			int i = (int) (start % capacity);
+			for (long s = start; s < end; s++) {
+				final Slot slot = slots.get(i);
+				if (++i == capacity)
+					i = 0;
+				if (slot == null || slot.sequence < s)
+					continue; // claimed, but not yet stored
+				if (slot.sequence > s) {
+					overwritten = true;
+					continue;
+				}
+				r[n++] = slot.element;
+			}
+			if (!overwritten)
+				break;
+		}
+		assert r != null;
+		return n == r.length ? r : Arrays.copyOf(r, n);
+	}
+	
+	@SuppressWarnings({"unchecked", "null"})
+	@Override
+	public <T> T[] toArray(final @Nullable T[] array) {
+		final Object[] snapshot = toArray();
+		if (array == null)
+			return (T[]) snapshot;
+		final T[] r = array.length >= snapshot.length ? array : (T[]) Array.newInstance(array.getClass().getComponentType(), snapshot.length);
+		System.arraycopy(snapshot, 0, r, 0, snapshot.length);
+		if (r.length > snapshot.length)
+			r[snapshot.length] = null;
+		return r;
+	}
+	
+	/**
+	 * @return An iterator over a {@link #toArray() snapshot} of this buffer
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Iterator<E> iterator() {
+		return new ArrayIterator<E>((E[]) toArray());
+	}
+	
+}
@@ -0,0 +1,299 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A sliding window of the last added primitive doubles, e.g. of latency or TPS samples. Like {@link CyclicList} the window has a fixed capacity and overwrites the oldest element
+ * when a new one is added, but it does not box its elements, its size grows from 0 to its capacity, and it keeps statistics of its elements up to date in constant time
+ * per added element (amortised for the mean and variance):
+ * <ul>
+ * <li>the {@link #mean()}, {@link #sum()} and {@link #variance()}, calculated with Welford's numerically stable algorithm extended to replace the oldest element, and recalculated
+ * from the elements whenever all of them have been replaced, so that rounding errors don't accumulate,</li>
+ * <li>the {@link #min()} and {@link #max()}, taken from monotonic queues of the positions of the elements that can still become the minimum or maximum,</li>
+ * <li>and optionally approximate {@link #percentile(double) percentiles}, taken from a logarithmic histogram.</li>
+ * </ul>
+ * 
+ * @author Peter Güttinger
+ * @see CyclicIntList
+ * @see CyclicLongList
+ */
+public final class CyclicDoubleList {
+	
+	private final double[] elements;
+	/**
+	 * The position where the next element will be stored, which is the position of the oldest element if this list is full
+	 */
+	private int next = 0;
+	private int size = 0;
+	
+	private double mean = 0, m2 = 0;
+	
+	/**
+	 * The positions of the elements which are smaller (or greater, respectively) than all newer elements, from oldest to newest. Thus the first position is the one of the
+	 * minimum (maximum).
+	 */
+	private final PositionQueue minQueue, maxQueue;
+	
+	@Nullable
+	private final ApproximateHistogram histogram;
+	
+	/**
+	 * @param capacity The maximum number of elements of this list
+	 */
+	public CyclicDoubleList(final int capacity) {
+		this(capacity, false);
+	}
+	
+	/**
+	 * @param capacity The maximum number of elements of this list
+	 * @param percentiles Whether this list should support {@link #percentile(double)}, which costs some additional time per added element
+	 */
+	public CyclicDoubleList(final int capacity, final boolean percentiles) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		elements = new double[capacity];
+		minQueue = new PositionQueue(capacity);
+		maxQueue = new PositionQueue(capacity);
+		histogram = percentiles ? new ApproximateHistogram() : null;
+	}
+	
+	/**
+	 * Adds an element, removing the oldest element if this list is full.
+	 * 
+	 * @throws IllegalArgumentException If the value is NaN or infinite
+	 */
+	public void add(final double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			throw new IllegalArgumentException("Illegal value: " + value);
+		final double[] elements = this.elements;
+		final int i = next;
+		if (size == elements.length) {
+			final double old = elements[i];
+			if (minQueue.first() == i)
+				minQueue.removeFirst();
+			if (maxQueue.first() == i)
+				maxQueue.removeFirst();
+			final double oldMean = mean, delta = value - old;
+			mean += delta / size;
+			m2 = Math.max(0, m2 + delta * (value - mean + old - oldMean));
+			final ApproximateHistogram histogram = this.histogram;
+			if (histogram != null)
+				histogram.remove(old);
+		} else {
+			size++;
+			final double delta = value - mean;
+			mean += delta / size;
+			m2 += delta * (value - mean);
+		}
+		elements[i] = value;
+		if (i + 1 == elements.length && size == elements.length)
+			recompute();
+		final PositionQueue minQueue = this.minQueue, maxQueue = this.maxQueue;
+		while (!minQueue.isEmpty() && elements[minQueue.last()] >= value)
+			minQueue.removeLast();
+		minQueue.addLast(i);
+		while (!maxQueue.isEmpty() && elements[maxQueue.last()] <= value)
+			maxQueue.removeLast();
+		maxQueue.addLast(i);
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram != null)
+			histogram.add(value);
+		next = i + 1 == elements.length ? 0 : i + 1;
+	}
+	
+	/**
+	 * Calculates the mean and m2 anew from the elements of this full list, which discards the rounding errors accumulated by replacing elements, e.g. by a large outlier
+	 * that has left the window. This is done whenever all elements have been replaced, thus it takes amortised constant time per added element.
+	 */
+	private void recompute() {
+		final double[] elements = this.elements;
+		final int n = elements.length;
+		double sum = 0;
+		for (final double e : elements)
+			sum += e;
+		// the sum of large finite values may overflow
+		if (Double.isInfinite(sum)) {
+			sum = 0;
+			for (final double e : elements)
+				sum += e / n;
+		} else {
+			sum /= n;
+		}
+		final double mean = sum;
+		double m2 = 0, error = 0;
+		for (final double e : elements) {
+			final double d = e - mean;
+			m2 += d * d;
+			error += d;
+		}
+		this.mean = mean;
+		// subtracting the squared sum of the deviations corrects the rounding error of the mean (corrected two-pass algorithm)
+		this.m2 = Math.max(0, m2 - error * error / n);
+	}
+	
+	public void addAll(final double[] values) {
+		for (final double v : values)
+			add(v);
+	}
+	
+	/**
+	 * @param index The index of the element, where 0 is the oldest element
+	 */
+	public double get(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		final int i = start() + index;
+		return elements[i >= elements.length ? i - elements.length : i];
+	}
+	
+	/**
+	 * @return The position of the oldest element
+	 */
+	private int start() {
+		return size == elements.length ? next : 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int capacity() {
+		return elements.length;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean isFull() {
+		return size == elements.length;
+	}
+	
+	public void clear() {
+		next = size = 0;
+		mean = m2 = 0;
+		minQueue.clear();
+		maxQueue.clear();
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram != null)
+			histogram.clear();
+	}
+	
+	public boolean contains(final double value) {
+		final double[] elements = this.elements;
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return The sum of the elements of this list, or 0 if this list is empty
+	 */
+	public double sum() {
+		return mean * size;
+	}
+	
+	/**
+	 * @return The arithmetic mean of the elements of this list, or NaN if this list is empty
+	 */
+	public double mean() {
+		return size == 0 ? Double.NaN : mean;
+	}
+	
+	/**
+	 * @return The population variance of the elements of this list, or NaN if this list is empty
+	 */
+	public double variance() {
+		return size == 0 ? Double.NaN : m2 / size;
+	}
+	
+	/**
+	 * @return The population standard deviation of the elements of this list, or NaN if this list is empty
+	 */
+	public double standardDeviation() {
+		return Math.sqrt(variance());
+	}
+	
+	/**
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public double min() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return elements[minQueue.first()];
+	}
+	
+	/**
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public double max() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return elements[maxQueue.first()];
+	}
+	
+	/**
+	 * Finds an approximate percentile of the elements of this list, which is at most about 1.6% off from the actual element.
+	 * 
+	 * @param percentile The percentile from 0 to 100, e.g. 50 for the median or 99 for the 99th percentile
+	 * @return The approximate value of the element of the given percentile (using the nearest-rank method)
+	 * @throws IllegalStateException If this list has been created without percentile support
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public double percentile(final double percentile) {
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram == null)
+			throw new IllegalStateException("This list does not support percentiles");
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Illegal percentile: " + percentile);
+		if (size == 0)
+			throw new NoSuchElementException();
+		return Math.min(Math.max(histogram.percentile(percentile, size), min()), max());
+	}
+	
+	/**
+	 * @return A new array of the elements of this list from oldest to newest
+	 */
+	public double[] toDoubleArray() {
+		final double[] r = new double[size];
+		final int start = start();
+		System.arraycopy(elements, start, r, 0, size - start);
+		System.arraycopy(elements, 0, r, size - start, start);
+		return r;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i != 0)
+				b.append(", ");
+			b.append(get(i));
+		}
+		return b.append(']').toString();
+	}
+	
+}
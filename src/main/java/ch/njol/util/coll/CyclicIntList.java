@@ -0,0 +1,323 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.math.BigInteger;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.coll.iterator.IntIterator;
+
+/**
+ * A sliding window of the last added primitive ints, e.g. of the number of events per second. Like {@link CyclicList} the window has a fixed capacity and overwrites the oldest element
+ * when a new one is added, but it does not box its elements, its size grows from 0 to its capacity, and it keeps statistics of its elements up to date in constant time
+ * per added element:
+ * <ul>
+ * <li>the exact {@link #sum()},</li>
+ * <li>the {@link #mean()} and {@link #variance()}, calculated exactly from the sum and the sum of squares of the elements,</li>
+ * <li>the {@link #min()} and {@link #max()}, taken from monotonic queues of the positions of the elements that can still become the minimum or maximum,</li>
+ * <li>and optionally approximate {@link #percentile(double) percentiles}, taken from a logarithmic histogram.</li>
+ * </ul>
+ * 
+ * @author Peter Güttinger
+ * @see CyclicLongList
+ * @see CyclicDoubleList
+ */
+public final class CyclicIntList implements IntCollection {
+	
+	private final int[] elements;
+	/**
+	 * The position where the next element will be stored, which is the position of the oldest element if this list is full
+	 */
+	private int next = 0;
+	private int size = 0;
+	
+	private long sum = 0;
+	/**
+	 * The sum of the squares of the elements, which can exceed a long, is <tt>squaresHigh * 2<sup>62</sup> + squares</tt> with <tt>0 &lt;= squares &lt; 2<sup>62</sup></tt>.
+	 * As a square is at most 2<sup>62</sup>, adding one to <tt>squares</tt> cannot overflow before the carry is taken.
+	 */
+	private long squares = 0, squaresHigh = 0;
+	
+	private final static long SQUARES_LIMIT = 1L << 62;
+	
+	/**
+	 * The positions of the elements which are smaller (or greater, respectively) than all newer elements, from oldest to newest. Thus the first position is the one of the
+	 * minimum (maximum).
+	 */
+	private final PositionQueue minQueue, maxQueue;
+	
+	@Nullable
+	private final ApproximateHistogram histogram;
+	
+	/**
+	 * @param capacity The maximum number of elements of this list
+	 */
+	public CyclicIntList(final int capacity) {
+		this(capacity, false);
+	}
+	
+	/**
+	 * @param capacity The maximum number of elements of this list
+	 * @param percentiles Whether this list should support {@link #percentile(double)}, which costs some additional time per added element
+	 */
+	public CyclicIntList(final int capacity, final boolean percentiles) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		elements = new int[capacity];
+		minQueue = new PositionQueue(capacity);
+		maxQueue = new PositionQueue(capacity);
+		histogram = percentiles ? new ApproximateHistogram() : null;
+	}
+	
+	/**
+	 * Adds an element, removing the oldest element if this list is full.
+	 */
+	public void add(final int value) {
+		final int[] elements = this.elements;
+		final int i = next;
+		if (size == elements.length) {
+			final int old = elements[i];
+			if (minQueue.first() == i)
+				minQueue.removeFirst();
+			if (maxQueue.first() == i)
+				maxQueue.removeFirst();
+			sum += (long) value - old;
+			squares -= (long) old * old;
+			if (squares < 0) {
+				squares += SQUARES_LIMIT;
+				squaresHigh--;
+			}
+			final ApproximateHistogram histogram = this.histogram;
+			if (histogram != null)
+				histogram.remove(old);
+		} else {
+			size++;
+			sum += value;
+		}
+		squares += (long) value * value;
+		if (squares >= SQUARES_LIMIT) {
+			squares -= SQUARES_LIMIT;
+			squaresHigh++;
+		}
+		elements[i] = value;
+		final PositionQueue minQueue = this.minQueue, maxQueue = this.maxQueue;
+		while (!minQueue.isEmpty() && elements[minQueue.last()] >= value)
+			minQueue.removeLast();
+		minQueue.addLast(i);
+		while (!maxQueue.isEmpty() && elements[maxQueue.last()] <= value)
+			maxQueue.removeLast();
+		maxQueue.addLast(i);
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram != null)
+			histogram.add(value);
+		next = i + 1 == elements.length ? 0 : i + 1;
+	}
+	
+	public void addAll(final int[] values) {
+		for (final int v : values)
+			add(v);
+	}
+	
+	/**
+	 * @param index The index of the element, where 0 is the oldest element
+	 */
+	public int get(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		final int i = start() + index;
+		return elements[i >= elements.length ? i - elements.length : i];
+	}
+	
+	/**
+	 * @return The position of the oldest element
+	 */
+	private int start() {
+		return size == elements.length ? next : 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	public int capacity() {
+		return elements.length;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean isFull() {
+		return size == elements.length;
+	}
+	
+	public void clear() {
+		next = size = 0;
+		sum = squares = squaresHigh = 0;
+		minQueue.clear();
+		maxQueue.clear();
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram != null)
+			histogram.clear();
+	}
+	
+	@Override
+	public boolean contains(final int value) {
+		final int[] elements = this.elements;
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return The exact sum of the elements of this list, or 0 if this list is empty
+	 */
+	public long sum() {
+		return sum;
+	}
+	
+	/**
+	 * @return The arithmetic mean of the elements of this list, or NaN if this list is empty
+	 */
+	public double mean() {
+		return size == 0 ? Double.NaN : (double) sum / size;
+	}
+	
+	/**
+	 * @return The population variance of the elements of this list, or NaN if this list is empty
+	 */
+	public double variance() {
+		if (size == 0)
+			return Double.NaN;
+		// size * sum of squares - sum^2 is size^2 times the variance, and is calculated exactly
+		final BigInteger sum = BigInteger.valueOf(this.sum), squares = BigInteger.valueOf(squaresHigh).shiftLeft(62).add(BigInteger.valueOf(this.squares));
+		return BigInteger.valueOf(size).multiply(squares).subtract(sum.multiply(sum)).doubleValue() / size / size;
+	}
+	
+	/**
+	 * @return The population standard deviation of the elements of this list, or NaN if this list is empty
+	 */
+	public double standardDeviation() {
+		return Math.sqrt(variance());
+	}
+	
+	/**
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public int min() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return elements[minQueue.first()];
+	}
+	
+	/**
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public int max() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return elements[maxQueue.first()];
+	}
+	
+	/**
+	 * Finds an approximate percentile of the elements of this list, which is at most about 1.6% off from the actual element.
+	 * 
+	 * @param percentile The percentile from 0 to 100, e.g. 50 for the median or 99 for the 99th percentile
+	 * @return The approximate value of the element of the given percentile (using the nearest-rank method)
+	 * @throws IllegalStateException If this list has been created without percentile support
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public double percentile(final double percentile) {
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram == null)
+			throw new IllegalStateException("This list does not support percentiles");
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Illegal percentile: " + percentile);
+		if (size == 0)
+			throw new NoSuchElementException();
+		return Math.min(Math.max(histogram.percentile(percentile, size), min()), max());
+	}
+	
+	/**
+	 * @return A new array of the elements of this list from oldest to newest
+	 */
+	@Override
+	public int[] toIntArray() {
+		final int[] r = new int[size];
+		final int start = start();
+		System.arraycopy(elements, start, r, 0, size - start);
+		System.arraycopy(elements, 0, r, size - start, start);
+		return r;
+	}
+	
+	/**
+	 * Iterates over the elements of this list from oldest to newest.
+	 */
+	@Override
+	public IntIterator intIterator() {
+		return new IntIterator() {
+			private int i = start(), remaining = size;
+			
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+			
+			@Override
+			public int nextInt() {
+				if (remaining <= 0)
+					throw new NoSuchElementException();
+				remaining--;
+				final int v = elements[i];
+				if (++i == elements.length)
+					i = 0;
+				return v;
+			}
+			
+			@Override
+			public Integer next() {
+				return nextInt();
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i != 0)
+				b.append(", ");
+			b.append(get(i));
+		}
+		return b.append(']').toString();
+	}
+	
+}
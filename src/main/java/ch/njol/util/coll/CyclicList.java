@@ -21,14 +21,20 @@ package ch.njol.util.coll;
 
 import java.lang.reflect.Array;
 import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.eclipse.jdt.annotation.Nullable;
 
-import ch.njol.util.Math2;
-
 /**
  * A list with fixed size that overrides the oldest elements when new elements are added and no more space is available.
+ * <p>
+ * The elements are stored in a circular array, thus the list consists of at most two {@link #firstSegment() segments} of the array. Bulk operations copy each segment
+ * with a single {@link System#arraycopy(Object, int, Object, int, int) arraycopy}, and iteration walks the array without calculating a modulo per element.
  * 
  * @author Peter Güttinger
  */
@@ -53,12 +59,22 @@ public final class CyclicList<E> extends AbstractList<E> {
 		this.items = items;
 	}
 	
+	/**
+	 * @param index An index from 0 to the size of this list (exclusive)
+	 */
 	private final int toInternalIndex(final int index) {
-		return Math2.mod(start + index, items.length);
+		final int i = start + index;
+		return i >= items.length ? i - items.length : i;
 	}
 	
+	/**
+	 * @param internal A position in the array, or -1
+	 * @return The index of the given position, or -1 if -1 was given
+	 */
 	private final int toExternalIndex(final int internal) {
-		return Math2.mod(internal - start, items.length);
+		if (internal == -1)
+			return -1;
+		return internal >= start ? internal - start : internal - start + items.length;
 	}
 	
 	@Override
@@ -67,14 +83,15 @@ public final class CyclicList<E> extends AbstractList<E> {
 	}
 	
 	public boolean addFirst(final @Nullable E e) {
-		start = Math2.mod(start - 1, items.length);
+		start = (start == 0 ? items.length : start) - 1;
 		items[start] = e;
 		return true;
 	}
 	
 	public boolean addLast(final @Nullable E e) {
 		items[start] = e;
-		start = Math2.mod(start + 1, items.length);
+		if (++start == items.length)
+			start = 0;
 		return true;
 	}
 	
@@ -83,13 +100,46 @@ public final class CyclicList<E> extends AbstractList<E> {
 		throw new UnsupportedOperationException();
 	}
 	
+	@SuppressWarnings("unchecked")
 	@Override
 	public boolean addAll(final Collection<? extends E> c) {
-		for (final E e : c)
-			add(e);
+		final Object[] array = c.toArray();
+		addAll((E[]) array, 0, array.length);
 		return true;
 	}
 	
+	/**
+	 * Adds the given elements as if by calling {@link #addLast(Object)} for each of them, i.e. only the last {@link #size()} elements are kept if more are given.
+	 */
+	public void addAll(final E[] array) {
+		addAll(array, 0, array.length);
+	}
+	
+	/**
+	 * Adds the given range of elements as if by calling {@link #addLast(Object)} for each of them, i.e. only the last {@link #size()} elements of the range are kept if
+	 * it is longer than this list.
+	 * 
+	 * @throws IndexOutOfBoundsException If the range is not within the array
+	 */
+	public void addAll(final E[] array, final int offset, final int length) {
+		if (offset < 0 || length < 0 || offset > array.length - length)
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + length + ", Array length: " + array.length);
+		final Object[] items = this.items;
+		final int n = items.length;
+		if (n == 0)
+			return;
+		// the elements that would be overridden by later elements of the range are skipped
+		final int skipped = Math.max(0, length - n), copied = length - skipped;
+		int to = start + skipped % n;
+		if (to >= n)
+			to -= n;
+		final int first = Math.min(copied, n - to);
+		System.arraycopy(array, offset + skipped, items, to, first);
+		System.arraycopy(array, offset + skipped + first, items, 0, copied - first);
+		to += copied;
+		start = to >= n ? to - n : to;
+	}
+	
 	@Override
 	public boolean addAll(final int index, final Collection<? extends E> c) {
 		throw new UnsupportedOperationException();
@@ -115,7 +165,10 @@ public final class CyclicList<E> extends AbstractList<E> {
 	
 	@Override
 	public int indexOf(final @Nullable Object o) {
-		return toExternalIndex(CollectionUtils.indexOf(items, o));
+		int i = CollectionUtils.indexOf(items, o, start, items.length);
+		if (i == -1)
+			i = CollectionUtils.indexOf(items, o, 0, start);
+		return toExternalIndex(i);
 	}
 	
 	@Override
@@ -125,7 +178,10 @@ public final class CyclicList<E> extends AbstractList<E> {
 	
 	@Override
 	public int lastIndexOf(final @Nullable Object o) {
-		return toExternalIndex(CollectionUtils.lastIndexOf(items, o));
+		int i = CollectionUtils.lastIndexOf(items, o, 0, start);
+		if (i == -1)
+			i = CollectionUtils.lastIndexOf(items, o, start, items.length);
+		return toExternalIndex(i);
 	}
 	
 	@Override
@@ -183,4 +239,111 @@ public final class CyclicList<E> extends AbstractList<E> {
 		return array;
 	}
 	
+	/**
+	 * Copies a range of this list into an array.
+	 * 
+	 * @param index The index of the first element to copy
+	 * @param dest The array to copy the elements to
+	 * @param destOffset The position in the array to copy the first element to
+	 * @param length The number of elements to copy
+	 * @throws IndexOutOfBoundsException If the range is not within this list or the array
+	 */
+	public void copyRange(final int index, final Object[] dest, final int destOffset, final int length) {
+		if (index < 0 || length < 0 || index > items.length - length)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length + ", Size: " + items.length);
+		if (destOffset < 0 || destOffset > dest.length - length)
+			throw new IndexOutOfBoundsException("Offset: " + destOffset + ", Length: " + length + ", Array length: " + dest.length);
+		if (length == 0)
+			return;
+		final int from = toInternalIndex(index);
+		final int first = Math.min(length, items.length - from);
+		System.arraycopy(items, from, dest, destOffset, first);
+		System.arraycopy(items, 0, dest, destOffset + first, length - first);
+	}
+	
+	/**
+	 * Moves all elements of this list into an array, i.e. copies them and sets all elements of this list to null.
+	 * 
+	 * @param dest The array to copy the elements to
+	 * @param destOffset The position in the array to copy the first element to
+	 * @throws IndexOutOfBoundsException If the array is too small
+	 */
+	public void drainTo(final Object[] dest, final int destOffset) {
+		copyRange(0, dest, destOffset, items.length);
+		Arrays.fill(items, null);
+		start = 0;
+	}
+	
+	/**
+	 * Moves all elements of this list into a collection, i.e. adds them to the collection in order and sets all elements of this list to null.
+	 * 
+	 * @return The number of elements added to the collection
+	 */
+	@SuppressWarnings("unchecked")
+	public int drainTo(final Collection<? super E> c) {
+		final Object[] array = toArray();
+		Arrays.fill(items, null);
+		start = 0;
+		c.addAll(Arrays.asList((E[]) array));
+		return array.length;
+	}
+	
+	/**
+	 * Returns a view of the first part of this list which is stored in one piece in the backing array. Together with {@link #secondSegment()} it contains all elements of
+	 * this list in order, thus consumers can process the elements as two arrays without copying them.
+	 * <p>
+	 * The view is read-only and backed by the array, thus it becomes invalid when elements are added to this list.
+	 */
+	public List<E> firstSegment() {
+		return segment(start, items.length);
+	}
+	
+	/**
+	 * Returns a view of the second part of this list, which is empty if the first segment contains the whole list.
+	 * 
+	 * @see #firstSegment()
+	 */
+	public List<E> secondSegment() {
+		return segment(0, start);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<E> segment(final int from, final int to) {
+		final List<E> list = (List<E>) Arrays.asList(items);
+		return Collections.unmodifiableList(list.subList(from, to));
+	}
+	
+	/**
+	 * Iterates over the array from the oldest to the newest element, wrapping around once.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int i = start, remaining = items.length;
+			
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+			
+			@SuppressWarnings("unchecked")
+			@Override
+			@Nullable
+			public E next() {
+				if (remaining <= 0)
+					throw new NoSuchElementException();
+				remaining--;
+				final E e = (E) items[i];
+				if (++i == items.length)
+					i = 0;
+				return e;
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
 }
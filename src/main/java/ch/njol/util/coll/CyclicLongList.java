@@ -0,0 +1,342 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.coll.iterator.LongIterator;
+
+/**
+ * A sliding window of the last added primitive longs, e.g. of latency samples. Like {@link CyclicList} the window has a fixed capacity and overwrites the oldest element
+ * when a new one is added, but it does not box its elements, its size grows from 0 to its capacity, and it keeps statistics of its elements up to date in constant time
+ * per added element (amortised for the mean and variance):
+ * <ul>
+ * <li>the exact {@link #sum()},</li>
+ * <li>the {@link #mean()} and {@link #variance()}, calculated with Welford's numerically stable algorithm extended to replace the oldest element, and recalculated
+ * from the elements whenever all of them have been replaced, so that rounding errors don't accumulate,</li>
+ * <li>the {@link #min()} and {@link #max()}, taken from monotonic queues of the positions of the elements that can still become the minimum or maximum,</li>
+ * <li>and optionally approximate {@link #percentile(double) percentiles}, taken from a logarithmic histogram.</li>
+ * </ul>
+ * 
+ * @author Peter Güttinger
+ * @see CyclicIntList
+ * @see CyclicDoubleList
+ */
+public final class CyclicLongList implements LongCollection {
+	
+	private final long[] elements;
+	/**
+	 * The position where the next element will be stored, which is the position of the oldest element if this list is full
+	 */
+	private int next = 0;
+	private int size = 0;
+	
+	private long sum = 0;
+	private double mean = 0, m2 = 0;
+	
+	/**
+	 * The positions of the elements which are smaller (or greater, respectively) than all newer elements, from oldest to newest. Thus the first position is the one of the
+	 * minimum (maximum).
+	 */
+	private final PositionQueue minQueue, maxQueue;
+	
+	@Nullable
+	private final ApproximateHistogram histogram;
+	
+	/**
+	 * @param capacity The maximum number of elements of this list
+	 */
+	public CyclicLongList(final int capacity) {
+		this(capacity, false);
+	}
+	
+	/**
+	 * @param capacity The maximum number of elements of this list
+	 * @param percentiles Whether this list should support {@link #percentile(double)}, which costs some additional time per added element
+	 */
+	public CyclicLongList(final int capacity, final boolean percentiles) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		elements = new long[capacity];
+		minQueue = new PositionQueue(capacity);
+		maxQueue = new PositionQueue(capacity);
+		histogram = percentiles ? new ApproximateHistogram() : null;
+	}
+	
+	/**
+	 * Adds an element, removing the oldest element if this list is full.
+	 */
+	public void add(final long value) {
+		final long[] elements = this.elements;
+		final int i = next;
+		if (size == elements.length) {
+			final long old = elements[i];
+			if (minQueue.first() == i)
+				minQueue.removeFirst();
+			if (maxQueue.first() == i)
+				maxQueue.removeFirst();
+			sum += value - old;
+			final double oldMean = mean, delta = (double) value - old;
+			mean += delta / size;
+			m2 = Math.max(0, m2 + delta * (value - mean + old - oldMean));
+			final ApproximateHistogram histogram = this.histogram;
+			if (histogram != null)
+				histogram.remove(old);
+		} else {
+			size++;
+			sum += value;
+			final double delta = value - mean;
+			mean += delta / size;
+			m2 += delta * (value - mean);
+		}
+		elements[i] = value;
+		if (i + 1 == elements.length && size == elements.length)
+			recompute();
+		final PositionQueue minQueue = this.minQueue, maxQueue = this.maxQueue;
+		while (!minQueue.isEmpty() && elements[minQueue.last()] >= value)
+			minQueue.removeLast();
+		minQueue.addLast(i);
+		while (!maxQueue.isEmpty() && elements[maxQueue.last()] <= value)
+			maxQueue.removeLast();
+		maxQueue.addLast(i);
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram != null)
+			histogram.add(value);
+		next = i + 1 == elements.length ? 0 : i + 1;
+	}
+	
+	/**
+	 * Calculates the mean and m2 anew from the elements of this full list, which discards the rounding errors accumulated by replacing elements, e.g. by a large outlier
+	 * that has left the window. This is done whenever all elements have been replaced, thus it takes amortised constant time per added element.
+	 */
+	private void recompute() {
+		final long[] elements = this.elements;
+		final int n = elements.length;
+		double sum = 0;
+		for (final long e : elements)
+			sum += e;
+		// the sum of large finite values may overflow
+		if (Double.isInfinite(sum)) {
+			sum = 0;
+			for (final long e : elements)
+				sum += (double) e / n;
+		} else {
+			sum /= n;
+		}
+		final double mean = sum;
+		double m2 = 0, error = 0;
+		for (final long e : elements) {
+			final double d = e - mean;
+			m2 += d * d;
+			error += d;
+		}
+		this.mean = mean;
+		// subtracting the squared sum of the deviations corrects the rounding error of the mean (corrected two-pass algorithm)
+		this.m2 = Math.max(0, m2 - error * error / n);
+	}
+	
+	public void addAll(final long[] values) {
+		for (final long v : values)
+			add(v);
+	}
+	
+	/**
+	 * @param index The index of the element, where 0 is the oldest element
+	 */
+	public long get(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		final int i = start() + index;
+		return elements[i >= elements.length ? i - elements.length : i];
+	}
+	
+	/**
+	 * @return The position of the oldest element
+	 */
+	private int start() {
+		return size == elements.length ? next : 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	public int capacity() {
+		return elements.length;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean isFull() {
+		return size == elements.length;
+	}
+	
+	public void clear() {
+		next = size = 0;
+		sum = 0;
+		mean = m2 = 0;
+		minQueue.clear();
+		maxQueue.clear();
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram != null)
+			histogram.clear();
+	}
+	
+	@Override
+	public boolean contains(final long value) {
+		final long[] elements = this.elements;
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return The sum of the elements of this list, or 0 if this list is empty. Overflows like adding longs does.
+	 */
+	public long sum() {
+		return sum;
+	}
+	
+	/**
+	 * @return The arithmetic mean of the elements of this list, or NaN if this list is empty
+	 */
+	public double mean() {
+		return size == 0 ? Double.NaN : (double) sum / size;
+	}
+	
+	/**
+	 * @return The population variance of the elements of this list, or NaN if this list is empty
+	 */
+	public double variance() {
+		return size == 0 ? Double.NaN : m2 / size;
+	}
+	
+	/**
+	 * @return The population standard deviation of the elements of this list, or NaN if this list is empty
+	 */
+	public double standardDeviation() {
+		return Math.sqrt(variance());
+	}
+	
+	/**
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public long min() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return elements[minQueue.first()];
+	}
+	
+	/**
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public long max() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return elements[maxQueue.first()];
+	}
+	
+	/**
+	 * Finds an approximate percentile of the elements of this list, which is at most about 1.6% off from the actual element.
+	 * 
+	 * @param percentile The percentile from 0 to 100, e.g. 50 for the median or 99 for the 99th percentile
+	 * @return The approximate value of the element of the given percentile (using the nearest-rank method)
+	 * @throws IllegalStateException If this list has been created without percentile support
+	 * @throws NoSuchElementException If this list is empty
+	 */
+	public double percentile(final double percentile) {
+		final ApproximateHistogram histogram = this.histogram;
+		if (histogram == null)
+			throw new IllegalStateException("This list does not support percentiles");
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Illegal percentile: " + percentile);
+		if (size == 0)
+			throw new NoSuchElementException();
+		return Math.min(Math.max(histogram.percentile(percentile, size), min()), max());
+	}
+	
+	/**
+	 * @return A new array of the elements of this list from oldest to newest
+	 */
+	@Override
+	public long[] toLongArray() {
+		final long[] r = new long[size];
+		final int start = start();
+		System.arraycopy(elements, start, r, 0, size - start);
+		System.arraycopy(elements, 0, r, size - start, start);
+		return r;
+	}
+	
+	/**
+	 * Iterates over the elements of this list from oldest to newest.
+	 */
+	@Override
+	public LongIterator longIterator() {
+		return new LongIterator() {
+			private int i = start(), remaining = size;
+			
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+			
+			@Override
+			public long nextLong() {
+				if (remaining <= 0)
+					throw new NoSuchElementException();
+				remaining--;
+				final long v = elements[i];
+				if (++i == elements.length)
+					i = 0;
+				return v;
+			}
+			
+			@Override
+			public Long next() {
+				return nextLong();
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i != 0)
+				b.append(", ");
+			b.append(get(i));
+		}
+		return b.append(']').toString();
+	}
+	
+}
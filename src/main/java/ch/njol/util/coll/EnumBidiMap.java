@@ -0,0 +1,510 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A bidirectional map from the constants of an enum to other objects, e.g. external codes. The values are stored in an array indexed by the constants' ordinals (like in
+ * an {@link java.util.EnumMap}), thus getting the value of a constant is a single array access. The values are mapped back to their constants with a hash index of this
+ * array, or with a linear scan for enums with at most {@link ArrayMap#HASH_THRESHOLD} constants.
+ * <p>
+ * Like {@link BidiHashMap}, putting a pair removes any existing pairs with the same key or value, neither keys nor values may be null, and the collection views are
+ * read-only. Pairs are iterated in the order of the enum's constants.
+ * <p>
+ * Like an EnumMap, the map is serialised as a list of pairs, whose keys are serialised by name, thus a serialised map can still be read after the enum's constants have
+ * been reordered or new constants have been added.
+ * 
+ * @author Peter Güttinger
+ */
+public final class EnumBidiMap<E extends Enum<E>, T> extends AbstractMap<E, T> implements BidiMap<E, T>, Cloneable, Serializable {
+	
+	private static final long serialVersionUID = -1634416540431658432L;
+	
+	private final Class<E> type;
+	/**
+	 * The value of each constant, indexed by ordinal, or null if the constant is not mapped
+	 */
+	private transient Object[] values;
+	private transient int size = 0;
+	
+	/**
+	 * An index of {@link #values}, or null if the enum is small
+	 */
+	@Nullable
+	private transient ArrayIndex index;
+	private transient E[] universe;
+	private transient ReverseView reverse;
+	
+	@SuppressWarnings("null")
+	public EnumBidiMap(final Class<E> type) {
+		this.type = type;
+		universe = type.getEnumConstants();
+		values = new Object[universe.length];
+		index = universe.length > ArrayMap.HASH_THRESHOLD ? new ArrayIndex(values, 0) : null;
+		reverse = newReverseView();
+	}
+	
+	public EnumBidiMap(final Class<E> type, final Map<E, ? extends T> values) {
+		this(type);
+		putAll(values);
+	}
+	
+	@Override
+	public BidiMap<T, E> getReverseView() {
+		return reverse;
+	}
+	
+	private boolean isKey(final @Nullable Object o) {
+		if (o == null)
+			return false;
+		final Class<?> c = o.getClass();
+		// constants with a body are instances of an anonymous subclass of the enum
+		return c == type || c.getSuperclass() == type;
+	}
+	
+	/**
+	 * @return The ordinal of the constant mapped to the given value, or -1 if the value is not in this map
+	 */
+	private int find(final @Nullable Object value) {
+		if (value == null)
+			return -1;
+		final ArrayIndex index = this.index;
+		if (index != null)
+			return index.find(values, value);
+		final Object[] values = this.values;
+		for (int i = 0; i < values.length; i++) {
+			if (value.equals(values[i]))
+				return i;
+		}
+		return -1;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return isKey(key) && values[((Enum<?>) key).ordinal()] != null;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		return find(value) != -1;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T get(final @Nullable Object key) {
+		return isKey(key) ? (T) values[((Enum<?>) key).ordinal()] : null;
+	}
+	
+	@Override
+	@Nullable
+	public T getValue(final @Nullable E key) {
+		return get(key);
+	}
+	
+	@Override
+	@Nullable
+	public E getKey(final @Nullable T value) {
+		final int i = find(value);
+		return i == -1 ? null : universe[i];
+	}
+	
+	/**
+	 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+	 * 
+	 * @return The value previously mapped to the given key
+	 * @throws NullPointerException If the key or the value is null
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T put(final @Nullable E key, final @Nullable T value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in an EnumBidiMap");
+		final int i = key.ordinal();
+		final Object old = values[i];
+		if (value.equals(old))
+			return (T) old;
+		final int j = find(value);
+		if (j != -1)
+			removeAt(j);
+		if (old != null)
+			removeAt(i);
+		values[i] = value;
+		size++;
+		final ArrayIndex index = this.index;
+		if (index != null)
+			index.add(values, i, size);
+		return (T) old;
+	}
+	
+	@Override
+	public void putAll(final Map<? extends E, ? extends T> m) {
+		for (final Entry<? extends E, ? extends T> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T remove(final @Nullable Object key) {
+		if (!isKey(key))
+			return null;
+		final int i = ((Enum<?>) key).ordinal();
+		final Object old = values[i];
+		if (old != null)
+			removeAt(i);
+		return (T) old;
+	}
+	
+	private void removeAt(final int i) {
+		final ArrayIndex index = this.index;
+		if (index != null)
+			index.remove(values, i, i);
+		values[i] = null;
+		size--;
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+		if (index != null)
+			index = new ArrayIndex(values, 0);
+	}
+	
+	/**
+	 * Iterates over the ordinals of the mapped constants.
+	 */
+	private abstract class OrdinalIterator<X> implements Iterator<X> {
+		
+		private int next = advance(0);
+		
+		public OrdinalIterator() {}
+		
+		private int advance(int i) {
+			final Object[] values = EnumBidiMap.this.values;
+			while (i < values.length && values[i] == null)
+				i++;
+			return i;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return next < values.length;
+		}
+		
+		@Override
+		public X next() {
+			final int i = next;
+			if (i >= values.length)
+				throw new NoSuchElementException();
+			next = advance(i + 1);
+			return get(i);
+		}
+		
+		protected abstract X get(int ordinal);
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	@Override
+	public Set<Entry<E, T>> entrySet() {
+		return new AbstractSet<Entry<E, T>>() {
+			@Override
+			public Iterator<Entry<E, T>> iterator() {
+				return new OrdinalIterator<Entry<E, T>>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected Entry<E, T> get(final int ordinal) {
+						return new SimpleImmutableEntry<E, T>(universe[ordinal], (T) values[ordinal]);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				if (!(o instanceof Entry))
+					return false;
+				final Entry<?, ?> e = (Entry<?, ?>) o;
+				final Object v = get(e.getKey());
+				return v != null && v.equals(e.getValue());
+			}
+		};
+	}
+	
+	@Override
+	public Set<E> keySet() {
+		return new AbstractSet<E>() {
+			@Override
+			public Iterator<E> iterator() {
+				return new OrdinalIterator<E>() {
+					@Override
+					protected E get(final int ordinal) {
+						return universe[ordinal];
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				return containsKey(o);
+			}
+		};
+	}
+	
+	@Override
+	public Set<T> values() {
+		return valueSet();
+	}
+	
+	@Override
+	public Set<T> valueSet() {
+		return new AbstractSet<T>() {
+			@Override
+			public Iterator<T> iterator() {
+				return new OrdinalIterator<T>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected T get(final int ordinal) {
+						return (T) values[ordinal];
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				return containsValue(o);
+			}
+		};
+	}
+	
+	/**
+	 * The reverse view of an EnumBidiMap. Modifications of either map are immediately visible in the other one.
+	 */
+	private final class ReverseView extends AbstractMap<T, E> implements BidiMap<T, E> {
+		
+		public ReverseView() {}
+		
+		@Override
+		public BidiMap<E, T> getReverseView() {
+			return EnumBidiMap.this;
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public boolean containsKey(final @Nullable Object key) {
+			return find(key) != -1;
+		}
+		
+		@Override
+		public boolean containsValue(final @Nullable Object value) {
+			return EnumBidiMap.this.containsKey(value);
+		}
+		
+		@Override
+		@Nullable
+		public E get(final @Nullable Object key) {
+			final int i = find(key);
+			return i == -1 ? null : universe[i];
+		}
+		
+		@Override
+		@Nullable
+		public E getValue(final @Nullable T key) {
+			return get(key);
+		}
+		
+		@Override
+		@Nullable
+		public T getKey(final @Nullable E value) {
+			return EnumBidiMap.this.get(value);
+		}
+		
+		/**
+		 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+		 * 
+		 * @return The value previously mapped to the given key
+		 * @throws NullPointerException If the key or the value is null
+		 */
+		@Override
+		@Nullable
+		public E put(final @Nullable T key, final @Nullable E value) {
+			final E old = get(key);
+			EnumBidiMap.this.put(value, key);
+			return old;
+		}
+		
+		@Override
+		@Nullable
+		public E remove(final @Nullable Object key) {
+			final int i = find(key);
+			if (i == -1)
+				return null;
+			removeAt(i);
+			return universe[i];
+		}
+		
+		@Override
+		public void clear() {
+			EnumBidiMap.this.clear();
+		}
+		
+		@Override
+		public Set<Entry<T, E>> entrySet() {
+			return new AbstractSet<Entry<T, E>>() {
+				@Override
+				public Iterator<Entry<T, E>> iterator() {
+					return new OrdinalIterator<Entry<T, E>>() {
+						@SuppressWarnings("unchecked")
+						@Override
+						protected Entry<T, E> get(final int ordinal) {
+							return new SimpleImmutableEntry<T, E>((T) values[ordinal], universe[ordinal]);
+						}
+					};
+				}
+				
+				@Override
+				public int size() {
+					return size;
+				}
+				
+				@Override
+				public boolean contains(final @Nullable Object o) {
+					if (!(o instanceof Entry))
+						return false;
+					final Entry<?, ?> e = (Entry<?, ?>) o;
+					final int i = find(e.getKey());
+					return i != -1 && universe[i] == e.getValue();
+				}
+			};
+		}
+		
+		@Override
+		public Set<T> keySet() {
+			return EnumBidiMap.this.valueSet();
+		}
+		
+		@Override
+		public Set<E> values() {
+			return valueSet();
+		}
+		
+		@Override
+		public Set<E> valueSet() {
+			return EnumBidiMap.this.keySet();
+		}
+		
+	}
+	
+	private ReverseView newReverseView() {
+		return new ReverseView();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public EnumBidiMap<E, T> clone() {
+		try {
+			final EnumBidiMap<E, T> r = (EnumBidiMap<E, T>) super.clone();
+			r.values = values.clone();
+			final ArrayIndex index = this.index;
+			r.index = index == null ? null : index.clone();
+			r.reverse = r.newReverseView();
+			return r;
+		} catch (final CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null)
+				continue;
+			out.writeObject(universe[i]);
+			out.writeObject(values[i]);
+		}
+	}
+	
+	@SuppressWarnings({"null", "unchecked"})
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		universe = type.getEnumConstants();
+		values = new Object[universe.length];
+		index = universe.length > ArrayMap.HASH_THRESHOLD ? new ArrayIndex(values, 0) : null;
+		reverse = newReverseView();
+		final int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			final Object key = in.readObject(), value = in.readObject();
+			if (!isKey(key) || value == null)
+				throw new InvalidObjectException("Invalid pair " + key + "=" + value + " of an EnumBidiMap of " + type.getName());
+			put((E) key, (T) value);
+		}
+	}
+	
+}
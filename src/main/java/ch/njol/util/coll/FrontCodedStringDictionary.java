@@ -0,0 +1,448 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * An immutable sorted list of strings which stores its elements front coded, i.e. each string only stores the part which differs from its predecessor.
+ * <p>
+ * The strings are split into blocks of a fixed size, where the first string of each block (the block's head) is stored completely. Lookups perform a binary search over the
+ * heads and then decode at most one block, thus {@link #get(int)}, {@link #indexOf(Object)} and {@link #withPrefix(String)} take <tt>O(log n + blockSize)</tt> time.
+ * <p>
+ * Strings are stored as UTF-8, so the dictionary usually only uses a fraction of the memory of the equivalent <tt>String[]</tt>, especially if many strings share common
+ * prefixes.
+ * 
+ * @author Peter Güttinger
+ */
+public final class FrontCodedStringDictionary extends AbstractList<String> implements RandomAccess {
+	
+	public final static int DEFAULT_BLOCK_SIZE = 16;
+	
+	private final static Charset UTF_8 = Charset.forName("UTF-8");
+	
+	/**
+	 * "FCSD" - written at the start of the serialised form
+	 */
+	private final static int MAGIC = 0x46435344;
+	private final static int VERSION = 1;
+	
+	private final int size;
+	private final int blockSize;
+	private final boolean caseInsensitive;
+	
+	/**
+	 * Offsets of the block heads in {@link #data}
+	 */
+	private final int[] blocks;
+	/**
+	 * For each block: the head as <tt>[length, bytes]</tt>, followed by <tt>blockSize - 1</tt> strings as <tt>[shared prefix length, suffix length, suffix bytes]</tt>.
+	 * All lengths are variable length encoded.
+	 */
+	private final byte[] data;
+	
+	/**
+	 * Creates a case sensitive dictionary with the {@link #DEFAULT_BLOCK_SIZE default block size}.
+	 * 
+	 * @param strings The strings of this dictionary, sorted by their natural order and without duplicates
+	 * @throws IllegalArgumentException If the strings are not sorted or contain duplicates
+	 */
+	public FrontCodedStringDictionary(final String[] strings) {
+		this(strings, false, DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * @param strings The strings of this dictionary in iteration order
+	 * @param caseInsensitive Whether this dictionary uses {@link String#CASE_INSENSITIVE_ORDER}
+	 * @see #FrontCodedStringDictionary(String[], boolean, int)
+	 */
+	public FrontCodedStringDictionary(final Collection<String> strings, final boolean caseInsensitive) {
+		this(strings.toArray(new String[strings.size()]), caseInsensitive, DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * @param strings The strings of this dictionary, sorted by {@link String#compareTo(String)} or {@link String#CASE_INSENSITIVE_ORDER} respectively and without duplicates
+	 *            (which also means that if the dictionary is case insensitive, strings must not only differ in case).
+	 * @param caseInsensitive Whether to use a case insensitive order. Strings retain their case in any case.
+	 * @param blockSize How many strings to store per block. Larger blocks save memory, but make lookups slower.
+	 * @throws IllegalArgumentException If the strings are not sorted, contain duplicates, or if <tt>blockSize < 1</tt>
+	 * @throws NullPointerException If the array contains null
+	 */
+	public FrontCodedStringDictionary(final String[] strings, final boolean caseInsensitive, final int blockSize) {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("blockSize must be positive, but is " + blockSize);
+		this.size = strings.length;
+		this.blockSize = blockSize;
+		this.caseInsensitive = caseInsensitive;
+		final Comparator<String> comparator = comparator();
+		blocks = new int[(size + blockSize - 1) / blockSize];
+		final ByteArrayBuilder out = new ByteArrayBuilder(Math.max(16, size * 4));
+		byte[] last = new byte[0];
+		for (int i = 0; i < size; i++) {
+			final String s = strings[i];
+			if (s == null)
+				throw new NullPointerException("Can't store null in a FrontCodedStringDictionary");
+			if (i > 0 && comparator.compare(strings[i - 1], s) >= 0)
+				throw new IllegalArgumentException("Strings must be sorted and unique, but '" + strings[i - 1] + "' is followed by '" + s + "'");
+			final byte[] b = s.getBytes(UTF_8);
+			if (i % blockSize == 0) {
+				blocks[i / blockSize] = out.size();
+				out.writeVInt(b.length);
+				out.write(b, 0, b.length);
+			} else {
+				final int prefix = commonPrefix(last, b);
+				out.writeVInt(prefix);
+				out.writeVInt(b.length - prefix);
+				out.write(b, prefix, b.length - prefix);
+			}
+			last = b;
+		}
+		data = out.toByteArray();
+	}
+	
+	private FrontCodedStringDictionary(final int size, final int blockSize, final boolean caseInsensitive, final int[] blocks, final byte[] data) {
+		this.size = size;
+		this.blockSize = blockSize;
+		this.caseInsensitive = caseInsensitive;
+		this.blocks = blocks;
+		this.data = data;
+	}
+	
+	private final static int commonPrefix(final byte[] a, final byte[] b) {
+		final int max = Math.min(a.length, b.length);
+		for (int i = 0; i < max; i++) {
+			if (a[i] != b[i])
+				return i;
+		}
+		return max;
+	}
+	
+	@SuppressWarnings("null")
+	private Comparator<String> comparator() {
+		return caseInsensitive ? String.CASE_INSENSITIVE_ORDER : naturalOrder;
+	}
+	
+	private final static Comparator<String> naturalOrder = new Comparator<String>() {
+		@Override
+		public int compare(final String s1, final String s2) {
+			return s1.compareTo(s2);
+		}
+	};
+	
+	public boolean isCaseInsensitive() {
+		return caseInsensitive;
+	}
+	
+	public int getBlockSize() {
+		return blockSize;
+	}
+	
+	/**
+	 * @return The number of bytes used to store the strings. The total memory usage of this dictionary is roughly this value plus <tt>4 * size() / blockSize</tt>.
+	 */
+	public int getDataSize() {
+		return data.length;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Decodes strings sequentially starting at a block's head. Not thread-safe, so a new cursor is created for every query.
+	 */
+	private final class Cursor {
+		private int pos;
+		private byte[] buf = new byte[32];
+		private int length;
+		
+		public Cursor(final int block) {
+			pos = blocks[block];
+			final int l = readVInt();
+			ensureCapacity(l);
+			System.arraycopy(data, pos, buf, 0, l);
+			pos += l;
+			length = l;
+		}
+		
+		public void next() {
+			final int prefix = readVInt();
+			final int suffix = readVInt();
+			ensureCapacity(prefix + suffix);
+			System.arraycopy(data, pos, buf, prefix, suffix);
+			pos += suffix;
+			length = prefix + suffix;
+		}
+		
+		public String current() {
+			return new String(buf, 0, length, UTF_8);
+		}
+		
+		private void ensureCapacity(final int capacity) {
+			if (buf.length < capacity)
+				buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+		}
+		
+		private int readVInt() {
+			int r = 0, shift = 0;
+			byte b;
+			do {
+				b = data[pos++];
+				r |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return r;
+		}
+	}
+	
+	@Override
+	public String get(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		final Cursor c = new Cursor(index / blockSize);
+		for (int i = index % blockSize; i > 0; i--)
+			c.next();
+		return c.current();
+	}
+	
+	/**
+	 * Compares a string of this dictionary with a key. If <tt>prefix</tt> is true all strings starting with the key are considered equal to it.
+	 */
+	private int compare(final String s, final String key, final boolean prefix) {
+		if (prefix && s.regionMatches(caseInsensitive, 0, key, 0, key.length()))
+			return 0;
+		return comparator().compare(s, key);
+	}
+	
+	/**
+	 * Finds the index of the first string which is greater than or equal to the key (or strictly greater if <tt>strict</tt> is true).
+	 * 
+	 * @return An index in the range [0, size]
+	 */
+	private int search(final String key, final boolean prefix, final boolean strict) {
+		// find the last block whose head is still less than the key
+		int low = 0, high = blocks.length - 1, block = -1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int c = compare(new Cursor(mid).current(), key, prefix);
+			if (c < 0 || strict && c == 0) {
+				block = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (block == -1)
+			return 0;
+		final int start = block * blockSize, end = Math.min(start + blockSize, size);
+		final Cursor cursor = new Cursor(block);
+		for (int i = start + 1; i < end; i++) {
+			cursor.next();
+			final int c = compare(cursor.current(), key, prefix);
+			if (strict ? c > 0 : c >= 0)
+				return i;
+		}
+		return end;
+	}
+	
+	/**
+	 * @param key A string
+	 * @return The index of the first string in this dictionary which is greater than or equal to the given string, or {@link #size()} if there is no such string.
+	 */
+	public int ceilingIndex(final String key) {
+		return search(key, false, false);
+	}
+	
+	/**
+	 * Finds a string in this dictionary. If this dictionary is case insensitive strings differing only in case are considered equal.
+	 * 
+	 * @return The index of the given string or -1 if not found
+	 */
+	@Override
+	public int indexOf(final @Nullable Object o) {
+		if (!(o instanceof String))
+			return -1;
+		final String key = (String) o;
+		final int i = ceilingIndex(key);
+		if (i < size && comparator().compare(get(i), key) == 0)
+			return i;
+		return -1;
+	}
+	
+	/**
+	 * As this dictionary does not contain duplicates this is the same as {@link #indexOf(Object)}.
+	 */
+	@Override
+	public int lastIndexOf(final @Nullable Object o) {
+		return indexOf(o);
+	}
+	
+	@Override
+	public boolean contains(final @Nullable Object o) {
+		return indexOf(o) != -1;
+	}
+	
+	/**
+	 * @param prefix
+	 * @return The indices <tt>[start, end)</tt> of the strings that start with the given prefix. If there are no such strings <tt>start == end</tt>.
+	 */
+	public int[] prefixRange(final String prefix) {
+		final int start = search(prefix, true, false);
+		if (start == size || !get(start).regionMatches(caseInsensitive, 0, prefix, 0, prefix.length()))
+			return new int[] {start, start};
+		return new int[] {start, search(prefix, true, true)};
+	}
+	
+	/**
+	 * @param prefix
+	 * @return A view of all strings of this dictionary that start with the given prefix
+	 */
+	@SuppressWarnings("null")
+	public List<String> withPrefix(final String prefix) {
+		final int[] range = prefixRange(prefix);
+		return subList(range[0], range[1]);
+	}
+	
+	@Override
+	public Object[] toArray() {
+		return toArray(new String[size]);
+	}
+	
+	@SuppressWarnings({"unchecked", "null"})
+	@Override
+	public <T> T[] toArray(final @Nullable T[] array) {
+		if (array == null)
+			return (T[]) toArray();
+		final T[] r = array.length >= size ? array : (T[]) java.lang.reflect.Array.newInstance(array.getClass().getComponentType(), size);
+		for (int b = 0; b < blocks.length; b++) {
+			final Cursor c = new Cursor(b);
+			final int start = b * blockSize, end = Math.min(start + blockSize, size);
+			r[start] = (T) c.current();
+			for (int i = start + 1; i < end; i++) {
+				c.next();
+				r[i] = (T) c.current();
+			}
+		}
+		if (r.length > size)
+			r[size] = null;
+		return r;
+	}
+	
+	/**
+	 * Serialises this dictionary into a byte array that can be read with {@link #fromByteArray(byte[])}.
+	 */
+	@SuppressWarnings("null")
+	public byte[] toByteArray() {
+		final ByteBuffer b = ByteBuffer.allocate(4 * 5 + 1 + 4 * blocks.length + data.length);
+		b.putInt(MAGIC);
+		b.putInt(VERSION);
+		b.put((byte) (caseInsensitive ? 1 : 0));
+		b.putInt(size);
+		b.putInt(blockSize);
+		b.putInt(data.length);
+		for (final int block : blocks)
+			b.putInt(block);
+		b.put(data);
+		return b.array();
+	}
+	
+	/**
+	 * @param bytes A byte array created with {@link #toByteArray()}
+	 * @return The deserialised dictionary
+	 * @throws IllegalArgumentException If the given bytes are not a valid dictionary
+	 */
+	public static FrontCodedStringDictionary fromByteArray(final byte[] bytes) {
+		final ByteBuffer b = ByteBuffer.wrap(bytes);
+		try {
+			if (b.getInt() != MAGIC)
+				throw new IllegalArgumentException("Not a serialised FrontCodedStringDictionary");
+			final int version = b.getInt();
+			if (version != VERSION)
+				throw new IllegalArgumentException("Unsupported version " + version);
+			final boolean caseInsensitive = b.get() != 0;
+			final int size = b.getInt();
+			final int blockSize = b.getInt();
+			final int dataLength = b.getInt();
+			if (size < 0 || blockSize < 1 || dataLength < 0)
+				throw new IllegalArgumentException("Corrupt FrontCodedStringDictionary header");
+			final int[] blocks = new int[(size + blockSize - 1) / blockSize];
+			for (int i = 0; i < blocks.length; i++)
+				blocks[i] = b.getInt();
+			final byte[] data = new byte[dataLength];
+			b.get(data);
+			return new FrontCodedStringDictionary(size, blockSize, caseInsensitive, blocks, data);
+		} catch (final BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated FrontCodedStringDictionary", e);
+		}
+	}
+	
+	/**
+	 * A minimal growable byte array, used instead of a ByteArrayOutputStream to write variable length integers directly.
+	 */
+	private final static class ByteArrayBuilder {
+		private byte[] bytes;
+		private int size = 0;
+		
+		public ByteArrayBuilder(final int capacity) {
+			bytes = new byte[capacity];
+		}
+		
+		private void ensureCapacity(final int capacity) {
+			if (capacity > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length + (bytes.length >> 1)));
+		}
+		
+		public void writeVInt(int i) {
+			ensureCapacity(size + 5);
+			while ((i & ~0x7F) != 0) {
+				bytes[size++] = (byte) (i & 0x7F | 0x80);
+				i >>>= 7;
+			}
+			bytes[size++] = (byte) i;
+		}
+		
+		public void write(final byte[] b, final int off, final int len) {
+			ensureCapacity(size + len);
+			System.arraycopy(b, off, bytes, size, len);
+			size += len;
+		}
+		
+		public int size() {
+			return size;
+		}
+		
+		@SuppressWarnings("null")
+		public byte[] toByteArray() {
+			return Arrays.copyOf(bytes, size);
+		}
+	}
+	
+}
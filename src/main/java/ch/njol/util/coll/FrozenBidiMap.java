@@ -0,0 +1,444 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * An immutable {@link BidiMap}, usually created with {@link BidiHashMap#freeze()}, {@link CompactBidiMap#freeze()} or a {@link Builder}.
+ * <p>
+ * The pairs are stored in two arrays of exactly the map's size, and each side has a hash index of positions in these arrays (the same one as used by {@link ArrayMap},
+ * whose table is at most half full). Small maps don't have an index and are searched linearly instead. Lookups don't allocate any objects, and the pairs can be iterated
+ * without allocating anything with {@link #keyAt(int)} and {@link #valueAt(int)}:
+ * 
+ * <pre>
+ * for (int i = 0; i &lt; map.size(); i++) {
+ * 	// use map.keyAt(i) and map.valueAt(i)
+ * }
+ * </pre>
+ * 
+ * The reverse view and the collection views are created only once, the entries of {@link #entrySet()} are created on first use and are then reused as well. The hash code
+ * is calculated only once.
+ * <p>
+ * All methods that would modify the map throw an {@link UnsupportedOperationException}.
+ * 
+ * @author Peter Güttinger
+ */
+public final class FrozenBidiMap<T1, T2> extends AbstractMap<T1, T2> implements BidiMap<T1, T2> {
+	
+	/**
+	 * The storage shared by a map and its reverse view. Side 0 contains the keys of the forward map, side 1 its values.
+	 */
+	private final static class Data {
+		
+		final Object[][] arrays;
+		/**
+		 * The hash indices of both sides, or null if the map is small
+		 */
+		@Nullable
+		final ArrayIndex[] indices;
+		final int size;
+		
+		/**
+		 * 0 if not calculated yet. Calculated like {@link Map#hashCode()}, which is the same for both directions of a map.
+		 */
+		int hashCode = 0;
+		
+		Data(final Object[] keys, final Object[] values) {
+			assert keys.length == values.length;
+			size = keys.length;
+			arrays = new Object[][] {keys, values};
+			indices = size > ArrayMap.HASH_THRESHOLD ? new ArrayIndex[] {new ArrayIndex(arrays[0], size), new ArrayIndex(arrays[1], size)} : null;
+		}
+		
+		/**
+		 * @return The position of the given object on the given side, or -1 if it is not in the map
+		 */
+		int find(final int side, final @Nullable Object o) {
+			if (o == null)
+				return -1;
+			final ArrayIndex[] indices = this.indices;
+			if (indices != null)
+				return indices[side].find(arrays[side], o);
+			final Object[] a = arrays[side];
+			for (int i = 0; i < a.length; i++) {
+				if (o.equals(a[i]))
+					return i;
+			}
+			return -1;
+		}
+		
+	}
+	
+	private final Data data;
+	private final Object[] keys, values;
+	private final int keySide;
+	private final FrozenBidiMap<T2, T1> other;
+	private final Set<T1> keySet;
+	private final Set<Entry<T1, T2>> entrySet;
+	@Nullable
+	private volatile Entry<T1, T2>[] entries = null;
+	
+	/**
+	 * Creates a map with the pairs of the given arrays. The arrays are not copied, so they must be of the same length, only contain the pairs, and must not be modified
+	 * afterwards.
+	 */
+	FrozenBidiMap(final Object[] keys, final Object[] values) {
+		this(new Data(keys, values));
+	}
+	
+	private FrozenBidiMap(final Data data) {
+		this.data = data;
+		keySide = 0;
+		keys = data.arrays[0];
+		values = data.arrays[1];
+		keySet = new SideView<T1>(0);
+		entrySet = new EntrySet();
+		other = new FrozenBidiMap<T2, T1>(this);
+	}
+	
+	private FrozenBidiMap(final FrozenBidiMap<T2, T1> other) {
+		data = other.data;
+		keySide = 1 - other.keySide;
+		keys = data.arrays[keySide];
+		values = data.arrays[1 - keySide];
+		keySet = new SideView<T1>(keySide);
+		entrySet = new EntrySet();
+		this.other = other;
+	}
+	
+	/**
+	 * Returns an immutable copy of the given map. If the given map is a FrozenBidiMap it is returned as-is. Otherwise the pairs are added like to a {@link BidiHashMap}, i.e.
+	 * pairs with the same value as a previous pair replace that pair.
+	 * 
+	 * @throws NullPointerException If the map contains null keys or values
+	 */
+	@SuppressWarnings("unchecked")
+	public final static <T1, T2> FrozenBidiMap<T1, T2> copyOf(final Map<? extends T1, ? extends T2> map) {
+		if (map instanceof FrozenBidiMap)
+			return (FrozenBidiMap<T1, T2>) map;
+		return new CompactBidiMap<T1, T2>(map).freeze();
+	}
+	
+	/**
+	 * @return A new builder for a FrozenBidiMap
+	 */
+	public final static <T1, T2> Builder<T1, T2> builder() {
+		return new Builder<T1, T2>();
+	}
+	
+	/**
+	 * Collects pairs for a new {@link FrozenBidiMap}, e.g. for a constant table. Pairs are added like to a {@link BidiHashMap}, i.e. a pair replaces any previous pairs with
+	 * the same key or value. The pairs are collected in a {@link CompactBidiMap}, thus no objects are created per pair, and {@link #build()} only copies the arrays.
+	 */
+	public final static class Builder<T1, T2> {
+		
+		private final CompactBidiMap<T1, T2> map = new CompactBidiMap<T1, T2>();
+		
+		public Builder() {}
+		
+		/**
+		 * @return This builder
+		 * @throws NullPointerException If the key or the value is null
+		 */
+		public Builder<T1, T2> put(final @Nullable T1 key, final @Nullable T2 value) {
+			if (key == null || value == null)
+				throw new NullPointerException("Can't store null in a FrozenBidiMap");
+			map.put(key, value);
+			return this;
+		}
+		
+		/**
+		 * @return This builder
+		 * @throws NullPointerException If the map contains null keys or values
+		 */
+		public Builder<T1, T2> putAll(final Map<? extends T1, ? extends T2> m) {
+			for (final Entry<? extends T1, ? extends T2> e : m.entrySet())
+				put(e.getKey(), e.getValue());
+			return this;
+		}
+		
+		/**
+		 * @return A new map with the pairs added so far. The builder can be used further without affecting the returned map.
+		 */
+		public FrozenBidiMap<T1, T2> build() {
+			return map.freeze();
+		}
+		
+	}
+	
+	@Override
+	public FrozenBidiMap<T2, T1> getReverseView() {
+		return other;
+	}
+	
+	@Override
+	public int size() {
+		return data.size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return data.size == 0;
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return data.find(keySide, key) != -1;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		return data.find(1 - keySide, value) != -1;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 get(final @Nullable Object key) {
+		final int i = data.find(keySide, key);
+		return i == -1 ? null : (T2) values[i];
+	}
+	
+	@Override
+	@Nullable
+	public T2 getValue(final @Nullable T1 key) {
+		return get(key);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T1 getKey(final @Nullable T2 value) {
+		final int i = data.find(1 - keySide, value);
+		return i == -1 ? null : (T1) keys[i];
+	}
+	
+	/**
+	 * @return The key of the pair at the given position. The position of a pair is the same in this map and its reverse view.
+	 * @throws IndexOutOfBoundsException If the position is negative or not less than the map's size
+	 */
+	@SuppressWarnings("unchecked")
+	public T1 keyAt(final int i) {
+		return (T1) keys[i];
+	}
+	
+	/**
+	 * @return The value of the pair at the given position. The position of a pair is the same in this map and its reverse view.
+	 * @throws IndexOutOfBoundsException If the position is negative or not less than the map's size
+	 */
+	@SuppressWarnings("unchecked")
+	public T2 valueAt(final int i) {
+		return (T2) values[i];
+	}
+	
+	@Override
+	@Nullable
+	public T2 put(final @Nullable T1 key, final @Nullable T2 value) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void putAll(final Map<? extends T1, ? extends T2> m) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	@Nullable
+	public T2 remove(final @Nullable Object key) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Iterates over the positions of the arrays.
+	 */
+	private abstract class ArrayIterator<E> implements Iterator<E> {
+		
+		private int next = 0;
+		
+		public ArrayIterator() {}
+		
+		@Override
+		public boolean hasNext() {
+			return next < data.size;
+		}
+		
+		@Override
+		public E next() {
+			if (next >= data.size)
+				throw new NoSuchElementException();
+			return get(next++);
+		}
+		
+		protected abstract E get(int i);
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	/**
+	 * A view of one side of the map.
+	 */
+	private final class SideView<E> extends AbstractSet<E> {
+		
+		private final int side;
+		
+		public SideView(final int side) {
+			this.side = side;
+		}
+		
+		@Override
+		public Iterator<E> iterator() {
+			return new ArrayIterator<E>() {
+				@SuppressWarnings("unchecked")
+				@Override
+				protected E get(final int i) {
+					return (E) data.arrays[side][i];
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			return data.size;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			return data.find(side, o) != -1;
+		}
+		
+		@Override
+		public Object[] toArray() {
+			return data.arrays[side].clone();
+		}
+		
+		@Override
+		public int hashCode() {
+			int hashCode = 0;
+			for (final Object o : data.arrays[side])
+				hashCode += o.hashCode();
+			return hashCode;
+		}
+		
+	}
+	
+	private final class EntrySet extends AbstractSet<Entry<T1, T2>> {
+		
+		public EntrySet() {}
+		
+		@Override
+		public Iterator<Entry<T1, T2>> iterator() {
+			final Entry<T1, T2>[] entries = entries();
+			return new ArrayIterator<Entry<T1, T2>>() {
+				@Override
+				protected Entry<T1, T2> get(final int i) {
+					return entries[i];
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			return data.size;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			if (!(o instanceof Entry))
+				return false;
+			final Entry<?, ?> e = (Entry<?, ?>) o;
+			final int i = data.find(keySide, e.getKey());
+			return i != -1 && values[i].equals(e.getValue());
+		}
+		
+		@Override
+		public int hashCode() {
+			return FrozenBidiMap.this.hashCode();
+		}
+		
+	}
+	
+	/**
+	 * Creates the entries on first use. This is not synchronised as creating them twice is harmless, and the volatile field makes sure other threads see complete entries.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes", "null"})
+	private Entry<T1, T2>[] entries() {
+		Entry<T1, T2>[] entries = this.entries;
+		if (entries == null) {
+			entries = new Entry[data.size];
+			for (int i = 0; i < entries.length; i++)
+				entries[i] = new SimpleImmutableEntry<T1, T2>((T1) keys[i], (T2) values[i]);
+			this.entries = entries;
+		}
+		return entries;
+	}
+	
+	@Override
+	public Set<Entry<T1, T2>> entrySet() {
+		return entrySet;
+	}
+	
+	@Override
+	public Set<T1> keySet() {
+		return keySet;
+	}
+	
+	@Override
+	public Set<T2> values() {
+		return other.keySet;
+	}
+	
+	@Override
+	public Set<T2> valueSet() {
+		return other.keySet;
+	}
+	
+	/**
+	 * Calculated only once, like {@link String#hashCode()}.
+	 */
+	@Override
+	public int hashCode() {
+		int hashCode = data.hashCode;
+		if (hashCode == 0) {
+			final Object[] keys = this.keys, values = this.values;
+			for (int i = 0; i < keys.length; i++)
+				hashCode += keys[i].hashCode() ^ values[i].hashCode();
+			data.hashCode = hashCode;
+		}
+		return hashCode;
+	}
+	
+}
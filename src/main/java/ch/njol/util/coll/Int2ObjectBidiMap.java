@@ -0,0 +1,649 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Math2;
+
+/**
+ * A bidirectional map between primitive ints and objects, e.g. a registry of IDs. Unlike a <tt>BidiHashMap&lt;Integer, V&gt;</tt> it never boxes the ints.
+ * <p>
+ * Non-negative keys which are small relative to the size of the map (i.e. dense IDs) are stored in a plain array indexed by the key, thus {@link #get(int)} is a single
+ * array access for them. All other keys are stored in an {@link Int2ObjectHashMap}. The objects are mapped back to their keys with an {@link Object2IntHashMap}.
+ * <p>
+ * Like in a {@link BidiHashMap}, putting a pair removes any existing pairs with the same key or value. Values must not be null. As ints cannot be null, {@link #getKey(Object)}
+ * returns the map's {@link #getDefaultKey() default key} for values that are not in the map, which is -1 unless specified otherwise.
+ * <p>
+ * {@link #getReverseView()} returns an {@link Object2IntBidiMap} view of this map, and {@link #asMap()} a {@link BidiMap}&lt;Integer, V&gt; view for code that requires a
+ * {@link Map}.
+ * 
+ * @author Peter Güttinger
+ * @see Int2ObjectBidiMap.Cursor
+ */
+public final class Int2ObjectBidiMap<V> {
+	
+	/**
+	 * Keys below this are always stored in the array
+	 */
+	private final static int MIN_DENSE_LENGTH = 16;
+	
+	private final static Object[] EMPTY = new Object[0];
+	
+	/**
+	 * Values of the keys [0, dense.length), null for keys that are not mapped
+	 */
+	private Object[] dense = EMPTY;
+	/**
+	 * All other keys. Contains no keys in [0, dense.length).
+	 */
+	@Nullable
+	private Int2ObjectHashMap<Object> sparse = null;
+	private final Object2IntHashMap<Object> keys;
+	private int size = 0;
+	
+	private final Object2IntBidiMap<V> reverse;
+	
+	@Nullable
+	private IntKeyView intKeyView = null;
+	
+	public Int2ObjectBidiMap() {
+		this(8, -1);
+	}
+	
+	/**
+	 * @param expectedSize The number of pairs this map will hold without having to resize
+	 */
+	public Int2ObjectBidiMap(final int expectedSize) {
+		this(expectedSize, -1);
+	}
+	
+	/**
+	 * @param expectedSize The number of pairs this map will hold without having to resize
+	 * @param defaultKey The key to return for values that are not in this map
+	 */
+	public Int2ObjectBidiMap(final int expectedSize, final int defaultKey) {
+		keys = new Object2IntHashMap<Object>(expectedSize, defaultKey);
+		reverse = new Object2IntBidiMap<V>(this);
+	}
+	
+	/**
+	 * Creates the forward map of the given reverse map.
+	 */
+	Int2ObjectBidiMap(final Object2IntBidiMap<V> reverse, final int expectedSize, final int defaultKey) {
+		keys = new Object2IntHashMap<Object>(expectedSize, defaultKey);
+		this.reverse = reverse;
+	}
+	
+	/**
+	 * @return A view of this map with keys and values swapped. The view shares its storage with this map.
+	 */
+	public Object2IntBidiMap<V> getReverseView() {
+		return reverse;
+	}
+	
+	/**
+	 * @return The key returned for values that are not in this map
+	 */
+	public int getDefaultKey() {
+		return keys.getDefaultValue();
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean containsKey(final int key) {
+		return get(key) != null;
+	}
+	
+	public boolean containsValue(final @Nullable Object value) {
+		return keys.containsKey(value);
+	}
+	
+	/**
+	 * @return The value mapped to the given key, or null if there is no such value
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public V get(final int key) {
+		final Object[] dense = this.dense;
+		if (key >= 0 && key < dense.length)
+			return (V) dense[key];
+		final Int2ObjectHashMap<Object> sparse = this.sparse;
+		return sparse == null ? null : (V) sparse.get(key);
+	}
+	
+	/**
+	 * Same as {@link #get(int)}.
+	 */
+	@Nullable
+	public V getValue(final int key) {
+		return get(key);
+	}
+	
+	/**
+	 * @return The key mapped to the given value, or the {@link #getDefaultKey() default key} if the value is not in this map
+	 */
+	public int getKey(final @Nullable Object value) {
+		return keys.get(value);
+	}
+	
+	/**
+	 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+	 * 
+	 * @return The value previously mapped to the given key, or null if there was no such value
+	 * @throws NullPointerException If the value is null
+	 */
+	@Nullable
+	public V put(final int key, final V value) {
+		if (value == null)
+			throw new NullPointerException("Can't store null in an Int2ObjectBidiMap");
+		final V old = get(key);
+		if (value.equals(old))
+			return old;
+		if (old != null)
+			keys.remove(old);
+		else
+			size++;
+		if (keys.containsKey(value)) {
+			clear(keys.get(value));
+			size--;
+		}
+		set(key, value);
+		keys.put(value, key);
+		return old;
+	}
+	
+	public void putAll(final Int2ObjectBidiMap<? extends V> map) {
+		final Int2ObjectBidiMap<? extends V>.Cursor c = map.cursor();
+		while (c.next())
+			put(c.key(), c.value());
+	}
+	
+	/**
+	 * @return The value that was mapped to the given key, or null if there was no such value
+	 */
+	@Nullable
+	public V remove(final int key) {
+		final V old = get(key);
+		if (old == null)
+			return null;
+		clear(key);
+		keys.remove(old);
+		size--;
+		return old;
+	}
+	
+	/**
+	 * Removes the pair with the given value.
+	 * 
+	 * @return The key that was mapped to the given value, or the {@link #getDefaultKey() default key} if the value was not in this map
+	 */
+	public int removeValue(final @Nullable Object value) {
+		if (!keys.containsKey(value))
+			return keys.getDefaultValue();
+		final int key = keys.remove(value);
+		clear(key);
+		size--;
+		return key;
+	}
+	
+	private void set(final int key, final Object value) {
+		if (key >= 0) {
+			if (key < dense.length) {
+				dense[key] = value;
+				return;
+			}
+			if (key < Math.max(MIN_DENSE_LENGTH, size * 2)) {
+				growDense(key);
+				dense[key] = value;
+				return;
+			}
+		}
+		Int2ObjectHashMap<Object> sparse = this.sparse;
+		if (sparse == null)
+			this.sparse = sparse = new Int2ObjectHashMap<Object>();
+		sparse.put(key, value);
+	}
+	
+	/**
+	 * Removes the given key from the forward mapping only.
+	 */
+	private void clear(final int key) {
+		if (key >= 0 && key < dense.length) {
+			dense[key] = null;
+		} else {
+			final Int2ObjectHashMap<Object> sparse = this.sparse;
+			assert sparse != null;
+			sparse.remove(key);
+		}
+	}
+	
+	/**
+	 * Grows the array to include the given key and moves the keys that now fit into the array from the hash map to the array.
+	 */
+	private void growDense(final int key) {
+		final int oldLength = dense.length;
+		dense = Arrays.copyOf(dense, Math.max(MIN_DENSE_LENGTH, Math2.nextPowerOfTwo(key + 1)));
+		final Int2ObjectHashMap<Object> sparse = this.sparse;
+		if (sparse == null)
+			return;
+		for (final int k : sparse.keys()) {
+			if (k >= oldLength && k < dense.length)
+				dense[k] = sparse.remove(k);
+		}
+		if (sparse.isEmpty())
+			this.sparse = null;
+	}
+	
+	public void clear() {
+		dense = EMPTY;
+		sparse = null;
+		keys.clear();
+		size = 0;
+	}
+	
+	/**
+	 * @return A new array containing all keys of this map, in the same order as a {@link Cursor} returns them
+	 */
+	public int[] keys() {
+		final int[] r = new int[size];
+		int j = 0;
+		final Object[] dense = this.dense;
+		for (int i = 0; i < dense.length; i++) {
+			if (dense[i] != null)
+				r[j++] = i;
+		}
+		final Int2ObjectHashMap<Object> sparse = this.sparse;
+		if (sparse != null) {
+			for (final int k : sparse.keys())
+				r[j++] = k;
+		}
+		assert j == size;
+		return r;
+	}
+	
+	/**
+	 * @return A new cursor positioned before the first pair of this map
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+	
+	/**
+	 * Iterates over the pairs of the map without allocating any objects per pair. Usage:
+	 * 
+	 * <pre>
+	 * final Int2ObjectBidiMap&lt;V&gt;.Cursor c = map.cursor();
+	 * while (c.next()) {
+	 * 	// use c.key() and c.value()
+	 * }
+	 * </pre>
+	 * 
+	 * The map must not be modified while a cursor is in use. A cursor can be {@link #reset() reset} to iterate the map again.
+	 */
+	public final class Cursor {
+		
+		private int next;
+		private int key;
+		@Nullable
+		private Object value;
+		@Nullable
+		private Int2ObjectHashMap<Object>.Cursor sparseCursor;
+		
+		Cursor() {
+			reset();
+		}
+		
+		/**
+		 * Moves this cursor back before the first pair.
+		 */
+		public void reset() {
+			next = 0;
+			value = null;
+			sparseCursor = null;
+		}
+		
+		/**
+		 * Advances this cursor to the next pair.
+		 * 
+		 * @return Whether there was another pair
+		 */
+		public boolean next() {
+			final Object[] dense = Int2ObjectBidiMap.this.dense;
+			int i = next;
+			while (i < dense.length && dense[i] == null)
+				i++;
+			if (i < dense.length) {
+				key = i;
+				value = dense[i];
+				next = i + 1;
+				return true;
+			}
+			next = i;
+			final Int2ObjectHashMap<Object> sparse = Int2ObjectBidiMap.this.sparse;
+			if (sparse != null) {
+				Int2ObjectHashMap<Object>.Cursor sparseCursor = this.sparseCursor;
+				if (sparseCursor == null)
+					this.sparseCursor = sparseCursor = sparse.cursor();
+				if (sparseCursor.next()) {
+					key = sparseCursor.key();
+					value = sparseCursor.value();
+					return true;
+				}
+			}
+			value = null;
+			return false;
+		}
+		
+		public int key() {
+			if (value == null)
+				throw new NoSuchElementException();
+			return key;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public V value() {
+			final Object value = this.value;
+			if (value == null)
+				throw new NoSuchElementException();
+			return (V) value;
+		}
+		
+	}
+	
+	/**
+	 * @return A view of this map as a <tt>BidiMap&lt;Integer, V&gt;</tt>. Pairs can be added and removed through the view, but not through its collection views. The view
+	 *         does not support null keys.
+	 */
+	public BidiMap<Integer, V> asMap() {
+		IntKeyView view = intKeyView;
+		if (view == null)
+			intKeyView = view = new IntKeyView();
+		return view;
+	}
+	
+	private final class IntKeyView extends AbstractMap<Integer, V> implements BidiMap<Integer, V> {
+		
+		final ObjectKeyView reverseView = new ObjectKeyView(this);
+		
+		public IntKeyView() {}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public boolean containsKey(final @Nullable Object key) {
+			return key instanceof Integer && Int2ObjectBidiMap.this.containsKey((Integer) key);
+		}
+		
+		@Override
+		public boolean containsValue(final @Nullable Object value) {
+			return Int2ObjectBidiMap.this.containsValue(value);
+		}
+		
+		@Override
+		@Nullable
+		public V get(final @Nullable Object key) {
+			return key instanceof Integer ? Int2ObjectBidiMap.this.get((Integer) key) : null;
+		}
+		
+		@Override
+		@Nullable
+		public V getValue(final @Nullable Integer key) {
+			return get(key);
+		}
+		
+		@Override
+		@Nullable
+		public Integer getKey(final @Nullable V value) {
+			return reverseView.get(value);
+		}
+		
+		@Override
+		@Nullable
+		public V put(final Integer key, final V value) {
+			return Int2ObjectBidiMap.this.put(key, value);
+		}
+		
+		@Override
+		@Nullable
+		public V remove(final @Nullable Object key) {
+			return key instanceof Integer ? Int2ObjectBidiMap.this.remove((Integer) key) : null;
+		}
+		
+		@Override
+		public void clear() {
+			Int2ObjectBidiMap.this.clear();
+		}
+		
+		@Override
+		public BidiMap<V, Integer> getReverseView() {
+			return reverseView;
+		}
+		
+		@Override
+		public Set<V> valueSet() {
+			return reverseView.keySet();
+		}
+		
+		@Override
+		public Set<Entry<Integer, V>> entrySet() {
+			return new AbstractSet<Entry<Integer, V>>() {
+				@Override
+				public Iterator<Entry<Integer, V>> iterator() {
+					return new PairIterator<Entry<Integer, V>>() {
+						@Override
+						Entry<Integer, V> entry(final int key, final V value) {
+							return new SimpleImmutableEntry<Integer, V>(key, value);
+						}
+					};
+				}
+				
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+		
+	}
+	
+	private final class ObjectKeyView extends AbstractMap<V, Integer> implements BidiMap<V, Integer> {
+		
+		private final IntKeyView reverseView;
+		
+		public ObjectKeyView(final IntKeyView reverseView) {
+			this.reverseView = reverseView;
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public boolean containsKey(final @Nullable Object key) {
+			return Int2ObjectBidiMap.this.containsValue(key);
+		}
+		
+		@Override
+		public boolean containsValue(final @Nullable Object value) {
+			return reverseView.containsKey(value);
+		}
+		
+		@Override
+		@Nullable
+		public Integer get(final @Nullable Object key) {
+			return keys.containsKey(key) ? keys.get(key) : null;
+		}
+		
+		@Override
+		@Nullable
+		public Integer getValue(final @Nullable V key) {
+			return get(key);
+		}
+		
+		@Override
+		@Nullable
+		public V getKey(final @Nullable Integer value) {
+			return reverseView.get(value);
+		}
+		
+		@Override
+		@Nullable
+		public Integer put(final V key, final Integer value) {
+			final Integer old = get(key);
+			Int2ObjectBidiMap.this.put(value, key);
+			return old;
+		}
+		
+		@Override
+		@Nullable
+		public Integer remove(final @Nullable Object key) {
+			return keys.containsKey(key) ? removeValue(key) : null;
+		}
+		
+		@Override
+		public void clear() {
+			Int2ObjectBidiMap.this.clear();
+		}
+		
+		@Override
+		public BidiMap<Integer, V> getReverseView() {
+			return reverseView;
+		}
+		
+		@Override
+		public Set<Integer> valueSet() {
+			return reverseView.keySet();
+		}
+		
+		@Override
+		public Set<Entry<V, Integer>> entrySet() {
+			return new AbstractSet<Entry<V, Integer>>() {
+				@Override
+				public Iterator<Entry<V, Integer>> iterator() {
+					return new PairIterator<Entry<V, Integer>>() {
+						@Override
+						Entry<V, Integer> entry(final int key, final V value) {
+							return new SimpleImmutableEntry<V, Integer>(value, key);
+						}
+					};
+				}
+				
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+		
+	}
+	
+	private abstract class PairIterator<E> implements Iterator<E> {
+		
+		private final Cursor c = cursor();
+		private boolean hasNext = c.next();
+		
+		PairIterator() {}
+		
+		abstract E entry(int key, V value);
+		
+		@Override
+		public boolean hasNext() {
+			return hasNext;
+		}
+		
+		@Override
+		public E next() {
+			if (!hasNext)
+				throw new NoSuchElementException();
+			final E e = entry(c.key(), c.value());
+			hasNext = c.next();
+			return e;
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	/**
+	 * Calculated like {@link Map#hashCode()}, thus equal to the hash code of an equal <tt>Map&lt;Integer, V&gt;</tt>.
+	 */
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+		final Cursor c = cursor();
+		while (c.next())
+			hashCode += c.key() ^ c.value().hashCode();
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof Int2ObjectBidiMap))
+			return false;
+		final Int2ObjectBidiMap<?> other = (Int2ObjectBidiMap<?>) obj;
+		if (other.size != size)
+			return false;
+		final Cursor c = cursor();
+		while (c.next()) {
+			if (!c.value().equals(other.get(c.key())))
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("{");
+		final Cursor c = cursor();
+		boolean first = true;
+		while (c.next()) {
+			if (!first)
+				b.append(", ");
+			first = false;
+			b.append(c.key()).append('=').append(c.value());
+		}
+		return b.append('}').toString();
+	}
+	
+}
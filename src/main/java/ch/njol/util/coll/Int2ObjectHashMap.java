@@ -0,0 +1,537 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+
+package ch.njol.util.coll;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Math2;
+
+/**
+ * A map from primitive ints to objects using open addressing with linear probing. Unlike a <tt>HashMap&lt;Integer, V&gt;</tt> it neither boxes its keys nor allocates an
+ * object per entry, and keys and values are stored in two parallel arrays.
+ * <p>
+ * The table's size is always a power of two and is doubled when it becomes more than half full. Removed entries do not leave tombstones, instead subsequent entries are
+ * shifted back into the freed slot. Values may be null.
+ * <p>
+ * Entries can be iterated without allocating anything per entry with a {@link Cursor}. {@link #asMap()} returns a <tt>Map&lt;Integer, V&gt;</tt> view of this map for code that
+ * requires a {@link Map}.
+ * 
+ * @author Peter Güttinger
+ * @see Int2ObjectHashMap.Cursor
+ */
+public final class Int2ObjectHashMap<V> implements Cloneable {
+	
+	/**
+	 * Marks free slots. The value of this key itself is stored in {@link #freeValue}.
+	 */
+	private final static int FREE = 0;
+	
+	private int[] keys;
+	private Object[] values;
+	private int mask;
+	private boolean containsFreeKey = false;
+	@Nullable
+	private Object freeValue = null;
+	private int size = 0;
+	
+	public Int2ObjectHashMap() {
+		this(8);
+	}
+	
+	/**
+	 * @param expectedSize The number of entries this map will hold without having to resize
+	 */
+	public Int2ObjectHashMap(final int expectedSize) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal size: " + expectedSize);
+		final int n = tableSize(expectedSize);
+		keys = new int[n];
+		values = new Object[n];
+		mask = n - 1;
+	}
+	
+	private final static int tableSize(final int expectedSize) {
+		final int n = Math2.nextPowerOfTwo(Math.max(4, expectedSize) * 2);
+		if (n <= 0)
+			throw new IllegalArgumentException("Map too large: " + expectedSize);
+		return n;
+	}
+	
+	private int slot(final int value) {
+		final int h = value * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+	
+	/**
+	 * @return The slot of the given key, -1 for the free key, or -2 if the key is not in this map
+	 */
+	private int find(final int key) {
+		if (key == FREE)
+			return containsFreeKey ? -1 : -2;
+		final int[] keys = this.keys;
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			final int k = keys[i];
+			if (k == key)
+				return i;
+			if (k == FREE)
+				return -2;
+		}
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean containsKey(final int key) {
+		return find(key) != -2;
+	}
+	
+	public boolean containsValue(final @Nullable Object value) {
+		if (containsFreeKey && equals(freeValue, value))
+			return true;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE && equals(values[i], value))
+				return true;
+		}
+		return false;
+	}
+	
+	private final static boolean equals(final @Nullable Object o1, final @Nullable Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+	
+	/**
+	 * @return The value mapped to the given key, or null if there is no such value
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public V get(final int key) {
+		if (key == FREE)
+			return (V) freeValue;
+		final int[] keys = this.keys;
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			final int k = keys[i];
+			if (k == key)
+				return (V) values[i];
+			if (k == FREE)
+				return null;
+		}
+	}
+	
+	/**
+	 * @return The previous value mapped to the given key, or null if there was no such value
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public V put(final int key, final @Nullable V value) {
+		if (key == FREE) {
+			final Object old = freeValue;
+			freeValue = value;
+			if (!containsFreeKey) {
+				containsFreeKey = true;
+				size++;
+			}
+			return (V) old;
+		}
+		int i = slot(key);
+		int k;
+		while ((k = keys[i]) != FREE) {
+			if (k == key) {
+				final Object old = values[i];
+				values[i] = value;
+				return (V) old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length / 2)
+			rehash(keys.length * 2);
+		return null;
+	}
+	
+	public void putAll(final Int2ObjectHashMap<? extends V> map) {
+		final Int2ObjectHashMap<? extends V>.Cursor c = map.cursor();
+		while (c.next())
+			put(c.key(), c.value());
+	}
+	
+	/**
+	 * @return The value that was mapped to the given key, or null if there was no such value
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public V remove(final int key) {
+		final int i = find(key);
+		if (i == -2)
+			return null;
+		size--;
+		if (i == -1) {
+			final Object old = freeValue;
+			freeValue = null;
+			containsFreeKey = false;
+			return (V) old;
+		}
+		final Object old = values[i];
+		removeSlot(i);
+		return (V) old;
+	}
+	
+	/**
+	 * Frees the given slot and moves subsequent entries of the probe sequence back so that no entry becomes unreachable.
+	 */
+	private void removeSlot(int free) {
+		final int[] keys = this.keys;
+		final Object[] values = this.values;
+		int i = free;
+		while (true) {
+			i = (i + 1) & mask;
+			final int k = keys[i];
+			if (k == FREE)
+				break;
+			final int home = slot(k);
+			// move the entry back if its home slot is not in the cyclic range (free, i]
+			if (free <= i ? home <= free || home > i : home <= free && home > i) {
+				keys[free] = k;
+				values[free] = values[i];
+				free = i;
+			}
+		}
+		keys[free] = FREE;
+		values[free] = null;
+	}
+	
+	private void rehash(final int newSize) {
+		final int[] oldKeys = keys;
+		final Object[] oldValues = values;
+		keys = new int[newSize];
+		values = new Object[newSize];
+		mask = newSize - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			final int k = oldKeys[j];
+			if (k == FREE)
+				continue;
+			int i = slot(k);
+			while (keys[i] != FREE)
+				i = (i + 1) & mask;
+			keys[i] = k;
+			values[i] = oldValues[j];
+		}
+	}
+	
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		Arrays.fill(values, null);
+		containsFreeKey = false;
+		freeValue = null;
+		size = 0;
+	}
+	
+	/**
+	 * @return A new array containing all keys of this map, in the same order as a {@link Cursor} returns them
+	 */
+	public int[] keys() {
+		final int[] r = new int[size];
+		int j = 0;
+		if (containsFreeKey)
+			r[j++] = FREE;
+		for (final int k : keys) {
+			if (k != FREE)
+				r[j++] = k;
+		}
+		assert j == size;
+		return r;
+	}
+	
+	/**
+	 * @return A new cursor positioned before the first entry of this map
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+	
+	/**
+	 * Iterates over the entries of the map without allocating any objects. Usage:
+	 * 
+	 * <pre>
+	 * final Int2ObjectHashMap&lt;V&gt;.Cursor c = map.cursor();
+	 * while (c.next()) {
+	 * 	// use c.key() and c.value()
+	 * }
+	 * </pre>
+	 * 
+	 * The map must not be structurally modified while a cursor is in use, but the current entry's value can be changed with {@link #setValue(Object)}. A cursor can be
+	 * {@link #reset() reset} to iterate the map again.
+	 */
+	public final class Cursor {
+		
+		private boolean freePending;
+		private int next;
+		/**
+		 * The slot of the current entry, -1 for the free key, or -2 if there is no current entry
+		 */
+		private int current;
+		
+		Cursor() {
+			reset();
+		}
+		
+		/**
+		 * Moves this cursor back before the first entry.
+		 */
+		public void reset() {
+			freePending = containsFreeKey;
+			next = 0;
+			current = -2;
+		}
+		
+		/**
+		 * Advances this cursor to the next entry.
+		 * 
+		 * @return Whether there was another entry
+		 */
+		public boolean next() {
+			if (freePending) {
+				freePending = false;
+				current = -1;
+				return true;
+			}
+			final int[] keys = Int2ObjectHashMap.this.keys;
+			int i = next;
+			while (i < keys.length && keys[i] == FREE)
+				i++;
+			if (i >= keys.length) {
+				next = i;
+				current = -2;
+				return false;
+			}
+			current = i;
+			next = i + 1;
+			return true;
+		}
+		
+		private int current() {
+			if (current == -2)
+				throw new NoSuchElementException();
+			return current;
+		}
+		
+		public int key() {
+			final int c = current();
+			return c == -1 ? FREE : keys[c];
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Nullable
+		public V value() {
+			final int c = current();
+			return (V) (c == -1 ? freeValue : values[c]);
+		}
+		
+		/**
+		 * @return The previous value of the current entry
+		 */
+		@SuppressWarnings("unchecked")
+		@Nullable
+		public V setValue(final @Nullable V value) {
+			final int c = current();
+			final Object old;
+			if (c == -1) {
+				old = freeValue;
+				freeValue = value;
+			} else {
+				old = values[c];
+				values[c] = value;
+			}
+			return (V) old;
+		}
+		
+	}
+	
+	/**
+	 * @return A view of this map as a <tt>Map&lt;Integer, V&gt;</tt>. Entries can be added and removed through the view, but not through the iterators of its collection
+	 *         views. The view does not support null keys.
+	 */
+	public Map<Integer, V> asMap() {
+		return new MapView();
+	}
+	
+	private final class MapView extends AbstractMap<Integer, V> {
+		
+		public MapView() {}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public boolean containsKey(final @Nullable Object key) {
+			return key instanceof Integer && Int2ObjectHashMap.this.containsKey((Integer) key);
+		}
+		
+		@Override
+		public boolean containsValue(final @Nullable Object value) {
+			return Int2ObjectHashMap.this.containsValue(value);
+		}
+		
+		@Override
+		@Nullable
+		public V get(final @Nullable Object key) {
+			return key instanceof Integer ? Int2ObjectHashMap.this.get((Integer) key) : null;
+		}
+		
+		@Override
+		@Nullable
+		public V put(final Integer key, final V value) {
+			return Int2ObjectHashMap.this.put(key, value);
+		}
+		
+		@Override
+		@Nullable
+		public V remove(final @Nullable Object key) {
+			return key instanceof Integer ? Int2ObjectHashMap.this.remove((Integer) key) : null;
+		}
+		
+		@Override
+		public void clear() {
+			Int2ObjectHashMap.this.clear();
+		}
+		
+		@Override
+		public Set<Entry<Integer, V>> entrySet() {
+			return new AbstractSet<Entry<Integer, V>>() {
+				@Override
+				public Iterator<Entry<Integer, V>> iterator() {
+					final Cursor c = cursor();
+					return new Iterator<Entry<Integer, V>>() {
+						private boolean hasNext = c.next();
+						
+						@Override
+						public boolean hasNext() {
+							return hasNext;
+						}
+						
+						@SuppressWarnings("null")
+						@Override
+						public Entry<Integer, V> next() {
+							if (!hasNext)
+								throw new NoSuchElementException();
+							final Entry<Integer, V> e = new SimpleEntry<Integer, V>(c.key(), c.value());
+							hasNext = c.next();
+							return e;
+						}
+						
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+		
+	}
+	
+	@Override
+	public Int2ObjectHashMap<V> clone() {
+		final Int2ObjectHashMap<V> r = new Int2ObjectHashMap<V>(0);
+		r.keys = keys.clone();
+		r.values = values.clone();
+		r.mask = mask;
+		r.containsFreeKey = containsFreeKey;
+		r.freeValue = freeValue;
+		r.size = size;
+		return r;
+	}
+	
+	/**
+	 * Calculated like {@link Map#hashCode()}, thus equal to the hash code of an equal <tt>Map&lt;Integer, V&gt;</tt>.
+	 */
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+		if (containsFreeKey)
+			hashCode += freeValue == null ? 0 : freeValue.hashCode();
+		for (int i = 0; i < keys.length; i++) {
+			final int k = keys[i];
+			if (k != FREE) {
+				final Object v = values[i];
+				hashCode += k ^ (v == null ? 0 : v.hashCode());
+			}
+		}
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof Int2ObjectHashMap))
+			return false;
+		final Int2ObjectHashMap<?> other = (Int2ObjectHashMap<?>) obj;
+		if (other.size != size || other.containsFreeKey != containsFreeKey)
+			return false;
+		if (containsFreeKey && !equals(freeValue, other.freeValue))
+			return false;
+		for (int i = 0; i < keys.length; i++) {
+			final int k = keys[i];
+			if (k == FREE)
+				continue;
+			final int j = other.find(k);
+			if (j < 0 || !equals(values[i], other.values[j]))
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("{");
+		final Cursor c = cursor();
+		boolean first = true;
+		while (c.next()) {
+			if (!first)
+				b.append(", ");
+			first = false;
+			b.append(c.key()).append('=').append(c.value());
+		}
+		return b.append('}').toString();
+	}
+	
+}
@@ -0,0 +1,405 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+
+package ch.njol.util.coll;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Closeable;
+
+/**
+ * An array of ints indexed by longs, thus it can hold more than 2^31 elements. The elements are stored outside of the Java heap, either in direct buffers or in a
+ * memory-mapped file.
+ * <p>
+ * The memory is released when the array is {@link #close() closed}, or otherwise when it is garbage collected. The array must not be used anymore after it has been
+ * closed, and must not be closed while another thread is still accessing it.
+ * <p>
+ * Like Java arrays this class does no synchronisation.
+ * 
+ * @author Peter Güttinger
+ */
+public final class IntBigArray implements Closeable {
+	
+	private final static int ELEMENT_SHIFT = 2;
+	private final static int SEGMENT_SHIFT = BigArrays.SEGMENT_BYTES_SHIFT - ELEMENT_SHIFT;
+	private final static int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private final static int SEGMENT_MASK = SEGMENT_SIZE - 1;
+	
+	/**
+	 * Number of elements copied at once if source and destination of {@link #copy(IntBigArray, long, IntBigArray, long, long)} overlap
+	 */
+	private final static int COPY_CHUNK = 8192;
+	
+	private final long size;
+	private final ByteBuffer[] buffers;
+	@Nullable
+	private IntBuffer[] segments;
+	
+	/**
+	 * Allocates a new array in direct memory. All elements are initially 0.
+	 * 
+	 * @param size The number of elements of the array
+	 * @throws IllegalArgumentException If the size is negative
+	 */
+	public IntBigArray(final long size) {
+		this(BigArrays.allocate(size, ELEMENT_SHIFT), size);
+	}
+	
+	private IntBigArray(final ByteBuffer[] buffers, final long size) {
+		this.size = size;
+		this.buffers = buffers;
+		final IntBuffer[] segments = new IntBuffer[buffers.length];
+		for (int i = 0; i < buffers.length; i++)
+			segments[i] = buffers[i].asIntBuffer();
+		this.segments = segments;
+	}
+	
+	/**
+	 * Maps a region of a file to a new array. Changes to the array are written to the file if the mode is {@link MapMode#READ_WRITE}.
+	 * 
+	 * @param channel The channel to map. The array stays valid if the channel is closed.
+	 * @param mode The mapping mode, as in {@link FileChannel#map(MapMode, long, long)}
+	 * @param position The position in the file where the array starts, in bytes
+	 * @param size The number of elements of the array
+	 * @param order The byte order of the elements in the file
+	 * @throws IOException If the file could not be mapped
+	 */
+	public static IntBigArray map(final FileChannel channel, final MapMode mode, final long position, final long size, final ByteOrder order) throws IOException {
+		return new IntBigArray(BigArrays.map(channel, mode, position, size, ELEMENT_SHIFT, order), size);
+	}
+	
+	/**
+	 * Maps a whole file to a new array in read-write mode. The file is created or extended if necessary, and its elements are stored in big-endian byte order.
+	 * 
+	 * @param file The file to map
+	 * @param size The number of elements of the array
+	 * @throws IOException If the file could not be opened or mapped
+	 */
+	public static IntBigArray map(final File file, final long size) throws IOException {
+		final RandomAccessFile f = new RandomAccessFile(file, "rw");
+		try {
+			if (f.length() < size << ELEMENT_SHIFT)
+				f.setLength(size << ELEMENT_SHIFT);
+			return map(f.getChannel(), MapMode.READ_WRITE, 0, size, ByteOrder.BIG_ENDIAN);
+		} finally {
+			f.close();
+		}
+	}
+	
+	private IntBuffer[] segments() {
+		final IntBuffer[] segments = this.segments;
+		if (segments == null)
+			throw BigArrays.closed();
+		return segments;
+	}
+	
+	private void checkIndex(final long index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+	
+	/**
+	 * @return The number of elements of this array
+	 */
+	public long size() {
+		return size;
+	}
+	
+	public int get(final long index) {
+		checkIndex(index);
+		return segments()[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+	}
+	
+	public void set(final long index, final int value) {
+		checkIndex(index);
+		segments()[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+	}
+	
+	/**
+	 * Copies elements of this array into a Java array.
+	 * 
+	 * @param index The index of the first element to copy
+	 * @param dst The array to copy to
+	 * @param off The index in <tt>dst</tt> to copy the first element to
+	 * @param len The number of elements to copy
+	 */
+	public void get(long index, final int[] dst, int off, int len) {
+		BigArrays.checkRange(index, index + len, size);
+		if (off < 0 || len < 0 || off > dst.length - len)
+			throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + dst.length);
+		final IntBuffer[] segments = segments();
+		while (len > 0) {
+			final int pos = (int) (index & SEGMENT_MASK);
+			final int n = Math.min(len, SEGMENT_SIZE - pos);
+			final IntBuffer s = segments[(int) (index >>> SEGMENT_SHIFT)].duplicate();
+			s.position(pos);
+			s.get(dst, off, n);
+			index += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	/**
+	 * Copies elements of a Java array into this array.
+	 * 
+	 * @param index The index in this array to copy the first element to
+	 * @param src The array to copy from
+	 * @param off The index of the first element in <tt>src</tt> to copy
+	 * @param len The number of elements to copy
+	 */
+	public void set(long index, final int[] src, int off, int len) {
+		BigArrays.checkRange(index, index + len, size);
+		if (off < 0 || len < 0 || off > src.length - len)
+			throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", length: " + src.length);
+		final IntBuffer[] segments = segments();
+		while (len > 0) {
+			final int pos = (int) (index & SEGMENT_MASK);
+			final int n = Math.min(len, SEGMENT_SIZE - pos);
+			final IntBuffer s = segments[(int) (index >>> SEGMENT_SHIFT)].duplicate();
+			s.position(pos);
+			s.put(src, off, n);
+			index += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	/**
+	 * Copies elements from one big array to another like {@link System#arraycopy(Object, int, Object, int, int)}. The arrays may be the same and the ranges may overlap.
+	 * 
+	 * @param src The array to copy from
+	 * @param srcPos The index of the first element to copy
+	 * @param dst The array to copy to
+	 * @param dstPos The index in <tt>dst</tt> to copy the first element to
+	 * @param length The number of elements to copy
+	 */
+	public static void copy(final IntBigArray src, long srcPos, final IntBigArray dst, long dstPos, long length) {
+		if (length < 0)
+			throw new IndexOutOfBoundsException("Negative length: " + length);
+		BigArrays.checkRange(srcPos, srcPos + length, src.size);
+		BigArrays.checkRange(dstPos, dstPos + length, dst.size);
+		if (src == dst && srcPos < dstPos + length && dstPos < srcPos + length) {
+			// overlapping ranges - bulk puts between buffers sharing memory don't handle this, thus the elements are copied in chunks through a temporary array, backwards if
+			// the destination is after the source
+			final int[] tmp = new int[(int) Math.min(COPY_CHUNK, length)];
+			final boolean backwards = srcPos < dstPos;
+			for (long done = 0; done < length;) {
+				final int n = (int) Math.min(tmp.length, length - done);
+				final long offset = backwards ? length - done - n : done;
+				src.get(srcPos + offset, tmp, 0, n);
+				dst.set(dstPos + offset, tmp, 0, n);
+				done += n;
+			}
+			return;
+		}
+		final IntBuffer[] srcSegments = src.segments(), dstSegments = dst.segments();
+		while (length > 0) {
+			final int srcOff = (int) (srcPos & SEGMENT_MASK), dstOff = (int) (dstPos & SEGMENT_MASK);
+			final int n = (int) Math.min(length, SEGMENT_SIZE - Math.max(srcOff, dstOff));
+			final IntBuffer s = srcSegments[(int) (srcPos >>> SEGMENT_SHIFT)].duplicate();
+			s.limit(srcOff + n).position(srcOff);
+			final IntBuffer d = dstSegments[(int) (dstPos >>> SEGMENT_SHIFT)].duplicate();
+			d.position(dstOff);
+			d.put(s);
+			srcPos += n;
+			dstPos += n;
+			length -= n;
+		}
+	}
+	
+	public void fill(final int value) {
+		fill(0, size, value);
+	}
+	
+	/**
+	 * Sets all elements in the range [from, to) to the given value.
+	 */
+	public void fill(final long from, final long to, final int value) {
+		BigArrays.checkRange(from, to, size);
+		final IntBuffer[] segments = segments();
+		for (long i = from; i < to;) {
+			final IntBuffer s = segments[(int) (i >>> SEGMENT_SHIFT)];
+			final int start = (int) (i & SEGMENT_MASK), end = (int) Math.min(SEGMENT_SIZE, start + to - i);
+			for (int j = start; j < end; j++)
+				s.put(j, value);
+			i += end - start;
+		}
+	}
+	
+	public long indexOf(final int num) {
+		return indexOf(num, 0, size);
+	}
+	
+	public long indexOf(final int num, final long start) {
+		return indexOf(num, start, size);
+	}
+	
+	/**
+	 * Finds a number in this array.
+	 * 
+	 * @param num The number to search for
+	 * @param start The index to start at (inclusive)
+	 * @param end The index to end at (exclusive)
+	 * @return The index of the first occurrence of the given number in the given range or -1 if not found
+	 */
+	public long indexOf(final int num, final long start, final long end) {
+		BigArrays.checkRange(start, end, size);
+		final IntBuffer[] segments = segments();
+		for (long i = start; i < end;) {
+			final IntBuffer s = segments[(int) (i >>> SEGMENT_SHIFT)];
+			final int from = (int) (i & SEGMENT_MASK), to = (int) Math.min(SEGMENT_SIZE, from + end - i);
+			for (int j = from; j < to; j++) {
+				if (s.get(j) == num)
+					return i + j - from;
+			}
+			i += to - from;
+		}
+		return -1;
+	}
+	
+	public long lastIndexOf(final int num) {
+		return lastIndexOf(num, 0, size);
+	}
+	
+	/**
+	 * @return The index of the last occurrence of the given number in the range [start, end) of this array or -1 if not found
+	 */
+	public long lastIndexOf(final int num, final long start, final long end) {
+		BigArrays.checkRange(start, end, size);
+		final IntBuffer[] segments = segments();
+		for (long i = end; i > start;) {
+			// i is exclusive, thus look at the segment of i - 1
+			final IntBuffer s = segments[(int) ((i - 1) >>> SEGMENT_SHIFT)];
+			final int to = (int) ((i - 1) & SEGMENT_MASK) + 1, from = (int) Math.max(0, to - (i - start));
+			for (int j = to - 1; j >= from; j--) {
+				if (s.get(j) == num)
+					return i - to + j;
+			}
+			i -= to - from;
+		}
+		return -1;
+	}
+	
+	public boolean contains(final int num) {
+		return indexOf(num) != -1;
+	}
+	
+	public long count(final int num) {
+		return count(num, 0, size);
+	}
+	
+	/**
+	 * @return How often the given number occurs in the range [start, end) of this array
+	 */
+	public long count(final int num, final long start, final long end) {
+		BigArrays.checkRange(start, end, size);
+		final IntBuffer[] segments = segments();
+		long r = 0;
+		for (long i = start; i < end;) {
+			final IntBuffer s = segments[(int) (i >>> SEGMENT_SHIFT)];
+			final int from = (int) (i & SEGMENT_MASK), to = (int) Math.min(SEGMENT_SIZE, from + end - i);
+			for (int j = from; j < to; j++) {
+				if (s.get(j) == num)
+					r++;
+			}
+			i += to - from;
+		}
+		return r;
+	}
+	
+	/**
+	 * Like {@link java.util.Arrays#binarySearch(int[], int)}: finds a number in this array, which must be sorted in ascending order.
+	 * 
+	 * @return The index of the number if found, or <tt>-(insertion point) - 1</tt> otherwise
+	 */
+	public long binarySearch(final int num) {
+		return binarySearch(num, 0, size);
+	}
+	
+	/**
+	 * Like {@link java.util.Arrays#binarySearch(int[], int, int, int)}: finds a number in the range [from, to) of this array, which must be sorted in ascending order.
+	 * 
+	 * @return The index of the number if found, or <tt>-(insertion point) - 1</tt> otherwise
+	 */
+	public long binarySearch(final int num, final long from, final long to) {
+		BigArrays.checkRange(from, to, size);
+		final IntBuffer[] segments = segments();
+		long low = from, high = to - 1;
+		while (low <= high) {
+			final long mid = (low + high) >>> 1;
+			final int v = segments[(int) (mid >>> SEGMENT_SHIFT)].get((int) (mid & SEGMENT_MASK));
+			final int c = v < num ? -1 : v == num ? 0 : 1;
+			if (c < 0)
+				low = mid + 1;
+			else if (c > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+	
+	/**
+	 * Writes changes to the underlying file if this array is memory-mapped. Does nothing otherwise.
+	 */
+	public void force() {
+		segments();
+		for (final ByteBuffer b : buffers) {
+			if (b instanceof MappedByteBuffer)
+				((MappedByteBuffer) b).force();
+		}
+	}
+	
+	/**
+	 * @return Whether this array has been {@link #close() closed}
+	 */
+	public boolean isClosed() {
+		return segments == null;
+	}
+	
+	/**
+	 * Releases the memory of this array, or unmaps it if it is memory-mapped. Calling any other method except {@link #size()} and {@link #isClosed()} afterwards throws
+	 * an {@link IllegalStateException}. Closing an array multiple times has no effect.
+	 */
+	@Override
+	public void close() {
+		if (segments == null)
+			return;
+		segments = null;
+		BigArrays.free(buffers);
+	}
+	
+	@Override
+	public String toString() {
+		return "IntBigArray[size=" + size + (segments == null ? ", closed" : "") + "]";
+	}
+	
+}
@@ -0,0 +1,46 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import ch.njol.util.coll.iterator.IntIterator;
+
+/**
+ * A collection of primitive ints.
+ * 
+ * @author Peter Güttinger
+ * @see IntArrayList
+ * @see IntHashSet
+ */
+public interface IntCollection {
+	
+	public int size();
+	
+	public boolean isEmpty();
+	
+	public boolean contains(int value);
+	
+	public IntIterator intIterator();
+	
+	/**
+	 * @return A new array containing all elements of this collection in iteration order
+	 */
+	public int[] toIntArray();
+	
+}
@@ -0,0 +1,398 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Math2;
+import ch.njol.util.coll.iterator.IntIterator;
+
+/**
+ * A set of primitive ints using open addressing with linear probing, which neither boxes its elements nor allocates an object per element like a
+ * <tt>HashSet&lt;Integer&gt;</tt> does.
+ * <p>
+ * The table's size is always a power of two and is doubled when it becomes more than half full. Removed elements do not leave tombstones, instead subsequent elements are
+ * shifted back into the freed slot.
+ * <p>
+ * {@link #asSet()} returns a <tt>Set&lt;Integer&gt;</tt> view of this set for code that requires a {@link Set}.
+ * 
+ * @author Peter Güttinger
+ */
+public final class IntHashSet implements IntCollection, Cloneable {
+	
+	/**
+	 * Marks free slots. Whether the set contains this value itself is stored in {@link #containsFree}.
+	 */
+	private final static int FREE = 0;
+	
+	private int[] table;
+	private int mask;
+	private boolean containsFree = false;
+	private int size = 0;
+	
+	public IntHashSet() {
+		this(8);
+	}
+	
+	/**
+	 * @param expectedSize The number of elements this set will hold without having to resize
+	 */
+	public IntHashSet(final int expectedSize) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal size: " + expectedSize);
+		table = new int[tableSize(expectedSize)];
+		mask = table.length - 1;
+	}
+	
+	public IntHashSet(final int[] values) {
+		this(values.length);
+		for (final int v : values)
+			add(v);
+	}
+	
+	public IntHashSet(final IntCollection values) {
+		this(values.size());
+		final IntIterator iter = values.intIterator();
+		while (iter.hasNext())
+			add(iter.nextInt());
+	}
+	
+	private final static int tableSize(final int expectedSize) {
+		final int n = Math2.nextPowerOfTwo(Math.max(4, expectedSize) * 2);
+		if (n <= 0)
+			throw new IllegalArgumentException("Set too large: " + expectedSize);
+		return n;
+	}
+	
+	private int slot(final int value) {
+		final int h = value * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean contains(final int value) {
+		if (value == FREE)
+			return containsFree;
+		final int[] table = this.table;
+		for (int i = slot(value);; i = (i + 1) & mask) {
+			final int e = table[i];
+			if (e == value)
+				return true;
+			if (e == FREE)
+				return false;
+		}
+	}
+	
+	/**
+	 * @return Whether the value was not already in this set
+	 */
+	public boolean add(final int value) {
+		if (value == FREE) {
+			if (containsFree)
+				return false;
+			containsFree = true;
+			size++;
+			return true;
+		}
+		int i = slot(value);
+		int e;
+		while ((e = table[i]) != FREE) {
+			if (e == value)
+				return false;
+			i = (i + 1) & mask;
+		}
+		table[i] = value;
+		if (++size > table.length / 2)
+			rehash(table.length * 2);
+		return true;
+	}
+	
+	public void addAll(final int[] values) {
+		for (final int v : values)
+			add(v);
+	}
+	
+	/**
+	 * @return Whether the value was in this set
+	 */
+	public boolean remove(final int value) {
+		if (value == FREE) {
+			if (!containsFree)
+				return false;
+			containsFree = false;
+			size--;
+			return true;
+		}
+		for (int i = slot(value);; i = (i + 1) & mask) {
+			final int e = table[i];
+			if (e == FREE)
+				return false;
+			if (e == value) {
+				removeSlot(i);
+				size--;
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Frees the given slot and moves subsequent elements of the probe sequence back so that no element becomes unreachable.
+	 */
+	private void removeSlot(int free) {
+		final int[] table = this.table;
+		int i = free;
+		while (true) {
+			i = (i + 1) & mask;
+			final int e = table[i];
+			if (e == FREE)
+				break;
+			final int home = slot(e);
+			// move e back if its home slot is not in the cyclic range (free, i]
+			if (free <= i ? home <= free || home > i : home <= free && home > i) {
+				table[free] = e;
+				free = i;
+			}
+		}
+		table[free] = FREE;
+	}
+	
+	private void rehash(final int newSize) {
+		final int[] old = table;
+		table = new int[newSize];
+		mask = newSize - 1;
+		for (final int e : old) {
+			if (e == FREE)
+				continue;
+			int i = slot(e);
+			while (table[i] != FREE)
+				i = (i + 1) & mask;
+			table[i] = e;
+		}
+	}
+	
+	public void clear() {
+		Arrays.fill(table, FREE);
+		containsFree = false;
+		size = 0;
+	}
+	
+	@Override
+	public int[] toIntArray() {
+		final int[] r = new int[size];
+		int j = 0;
+		if (containsFree)
+			r[j++] = FREE;
+		for (final int e : table) {
+			if (e != FREE)
+				r[j++] = e;
+		}
+		assert j == size;
+		return r;
+	}
+	
+	/**
+	 * The returned iterator does not support removal.
+	 */
+	@Override
+	public IntIterator intIterator() {
+		return new IntIterator() {
+			private final int[] table = IntHashSet.this.table;
+			private boolean returnedFree = !containsFree;
+			private int next = findNext(0);
+			
+			private int findNext(int i) {
+				while (i < table.length && table[i] == FREE)
+					i++;
+				return i;
+			}
+			
+			@Override
+			public boolean hasNext() {
+				return !returnedFree || next < table.length;
+			}
+			
+			@Override
+			public int nextInt() {
+				if (!returnedFree) {
+					returnedFree = true;
+					return FREE;
+				}
+				if (next >= table.length)
+					throw new NoSuchElementException();
+				final int r = table[next];
+				next = findNext(next + 1);
+				return r;
+			}
+			
+			@Override
+			public Integer next() {
+				return nextInt();
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	/**
+	 * @return A view of this set as a <tt>Set&lt;Integer&gt;</tt>. Elements can be added and removed through the view, but not through its iterator. The view does not support
+	 *         null elements.
+	 */
+	public Set<Integer> asSet() {
+		return new SetView();
+	}
+	
+	private final class SetView extends AbstractSet<Integer> implements IntCollection {
+		
+		public SetView() {}
+		
+		@Override
+		public IntIterator iterator() {
+			return intIterator();
+		}
+		
+		@Override
+		public IntIterator intIterator() {
+			return IntHashSet.this.intIterator();
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			return o instanceof Integer && IntHashSet.this.contains((Integer) o);
+		}
+		
+		@Override
+		public boolean contains(final int value) {
+			return IntHashSet.this.contains(value);
+		}
+		
+		@Override
+		public boolean add(final Integer e) {
+			return IntHashSet.this.add(e);
+		}
+		
+		@Override
+		public boolean remove(final @Nullable Object o) {
+			return o instanceof Integer && IntHashSet.this.remove((Integer) o);
+		}
+		
+		@Override
+		public boolean removeAll(final Collection<?> c) {
+			boolean changed = false;
+			for (final Object o : c)
+				changed |= remove(o);
+			return changed;
+		}
+		
+		@Override
+		public boolean retainAll(final Collection<?> c) {
+			boolean changed = false;
+			for (final int e : toIntArray()) {
+				if (!c.contains(e))
+					changed |= IntHashSet.this.remove(e);
+			}
+			return changed;
+		}
+		
+		@Override
+		public void clear() {
+			IntHashSet.this.clear();
+		}
+		
+		@Override
+		public int[] toIntArray() {
+			return IntHashSet.this.toIntArray();
+		}
+		
+	}
+	
+	@Override
+	public IntHashSet clone() {
+		final IntHashSet r = new IntHashSet(0);
+		r.table = table.clone();
+		r.mask = mask;
+		r.containsFree = containsFree;
+		r.size = size;
+		return r;
+	}
+	
+	/**
+	 * Calculated like {@link Set#hashCode()}, thus equal to the hash code of an equal <tt>Set&lt;Integer&gt;</tt>.
+	 */
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+		for (final int e : table)
+			hashCode += e;
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof IntHashSet))
+			return false;
+		final IntHashSet other = (IntHashSet) obj;
+		if (other.size != size || other.containsFree != containsFree)
+			return false;
+		for (final int e : table) {
+			if (e != FREE && !other.contains(e))
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("[");
+		final IntIterator iter = intIterator();
+		while (iter.hasNext()) {
+			b.append(iter.nextInt());
+			if (iter.hasNext())
+				b.append(", ");
+		}
+		return b.append(']').toString();
+	}
+	
+}
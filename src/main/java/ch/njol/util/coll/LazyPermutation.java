@@ -0,0 +1,236 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A pseudo-random permutation of all numbers in an interval [start, end] which is computed on demand and thus uses constant memory regardless of the interval's size.
+ * <p>
+ * The permutation is a keyed Feistel network over the smallest power of four that is at least the interval's size, restricted to the interval by cycle walking (i.e. values
+ * outside the interval are permuted again until they fall into it). On average this takes less than four Feistel evaluations per element.
+ * <p>
+ * This is not a cryptographically secure permutation, but it is good enough to e.g. visit all elements of a large range in an unpredictable order. Instances are immutable
+ * and thus thread-safe.
+ * 
+ * @author Peter Güttinger
+ * @see CollectionUtils#permutation(int, int)
+ */
+public final class LazyPermutation {
+	
+	private final static int ROUNDS = 4;
+	
+	private final long start;
+	/**
+	 * The number of elements of this permutation
+	 */
+	private final long size;
+	
+	private final int halfBits;
+	private final long halfMask;
+	private final long[] keys = new long[ROUNDS];
+	
+	/**
+	 * Creates a permutation of all numbers in [start, end] with the given seed. Permutations with the same interval and seed are equal.
+	 * 
+	 * @param start The lowest number which will be included in the permutation
+	 * @param end The highest number which will be included in the permutation
+	 * @param seed The seed of the permutation
+	 * @throws IllegalArgumentException If start > end or if the interval contains more than {@link Long#MAX_VALUE} numbers
+	 */
+	public LazyPermutation(final long start, final long end, final long seed) {
+		if (start > end)
+			throw new IllegalArgumentException("start > end (" + start + " > " + end + ")");
+		size = end - start + 1;
+		if (size <= 0)
+			throw new IllegalArgumentException("The interval [" + start + ", " + end + "] is too large");
+		this.start = start;
+		final int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(size - 1));
+		halfBits = (bits + 1) / 2;
+		halfMask = (1L << halfBits) - 1;
+		long s = seed;
+		for (int i = 0; i < ROUNDS; i++) {
+			s += 0x9E3779B97F4A7C15L;
+			keys[i] = mix(s);
+		}
+	}
+	
+	/**
+	 * Creates a permutation of all numbers in [start, end] with a random seed.
+	 * 
+	 * @see #LazyPermutation(long, long, long)
+	 */
+	public LazyPermutation(final long start, final long end) {
+		this(start, end, CollectionUtils.random().nextLong());
+	}
+	
+	/**
+	 * Finalisation step of MurmurHash3
+	 */
+	private final static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+	
+	private long encrypt(final long x) {
+		long l = x >>> halfBits, r = x & halfMask;
+		for (int i = 0; i < ROUNDS; i++) {
+			final long t = r;
+			r = l ^ (mix(r ^ keys[i]) & halfMask);
+			l = t;
+		}
+		return l << halfBits | r;
+	}
+	
+	private long decrypt(final long x) {
+		long l = x >>> halfBits, r = x & halfMask;
+		for (int i = ROUNDS - 1; i >= 0; i--) {
+			final long t = l;
+			l = r ^ (mix(l ^ keys[i]) & halfMask);
+			r = t;
+		}
+		return l << halfBits | r;
+	}
+	
+	/**
+	 * @return The number of elements of this permutation, i.e. <tt>end - start + 1</tt>
+	 */
+	public long size() {
+		return size;
+	}
+	
+	/**
+	 * @param index An index in the range [0, size())
+	 * @return The element at the given index
+	 * @throws IndexOutOfBoundsException If the index is out of range
+	 */
+	public long get(final long index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		long x = index;
+		do {
+			x = encrypt(x);
+		} while (x < 0 || x >= size);
+		return start + x;
+	}
+	
+	/**
+	 * The inverse of {@link #get(long)}.
+	 * 
+	 * @param value A number in the interval of this permutation
+	 * @return The index of the given number, or -1 if it is not in the interval
+	 */
+	public long indexOf(final long value) {
+		final long x0 = value - start;
+		if (value < start || x0 >= size || x0 < 0)
+			return -1;
+		long x = x0;
+		do {
+			x = decrypt(x);
+		} while (x < 0 || x >= size);
+		return x;
+	}
+	
+	/**
+	 * @return A cursor over all elements of this permutation
+	 */
+	public Cursor cursor() {
+		return new Cursor(0, size);
+	}
+	
+	/**
+	 * @param from The index of the first element to return (inclusive)
+	 * @param to The index to stop at (exclusive)
+	 * @return A cursor over the elements at the indices [from, to) of this permutation
+	 */
+	public Cursor cursor(final long from, final long to) {
+		if (from < 0 || to > size || from > to)
+			throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+		return new Cursor(from, to);
+	}
+	
+	/**
+	 * Iterates over a range of indices of the permutation without boxing its elements. Cursors can be {@link #split() split} to consume a permutation from multiple threads,
+	 * but a single cursor must not be used by multiple threads concurrently.
+	 */
+	public final class Cursor {
+		
+		private long index;
+		private long end;
+		
+		Cursor(final long index, final long end) {
+			this.index = index;
+			this.end = end;
+		}
+		
+		public boolean hasNext() {
+			return index < end;
+		}
+		
+		public long next() {
+			if (index >= end)
+				throw new NoSuchElementException();
+			return get(index++);
+		}
+		
+		/**
+		 * @return The number of elements left in this cursor
+		 */
+		public long remaining() {
+			return end - index;
+		}
+		
+		/**
+		 * Splits off the second half of the remaining elements into a new cursor.
+		 * 
+		 * @return A new cursor which will return the second half of the remaining elements, or null if less than two elements remain
+		 */
+		@Nullable
+		public Cursor split() {
+			final long remaining = end - index;
+			if (remaining < 2)
+				return null;
+			final long mid = index + remaining / 2;
+			final Cursor c = new Cursor(mid, end);
+			end = mid;
+			return c;
+		}
+		
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof LazyPermutation))
+			return false;
+		final LazyPermutation other = (LazyPermutation) obj;
+		return start == other.start && size == other.size && keys[0] == other.keys[0];
+	}
+	
+	@Override
+	public int hashCode() {
+		return (int) (start ^ start >>> 32 ^ size * 31 ^ keys[0]);
+	}
+	
+}
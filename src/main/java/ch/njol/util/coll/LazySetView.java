@@ -0,0 +1,306 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.NullableChecker;
+import ch.njol.util.coll.iterator.CheckedIterator;
+
+/**
+ * A read-only view of the intersection or union of several sets which does not copy any elements. Membership is computed on the fly, thus the view reflects any changes
+ * made to the underlying sets.
+ * <p>
+ * Iterating the view or calling {@link #size()} evaluates the operation every time. If the result is used more than once it should be copied with {@link #materialize()}.
+ * 
+ * @author Peter Güttinger
+ * @see CollectionUtils#intersectionView(Set...)
+ * @see CollectionUtils#unionView(Set...)
+ */
+public abstract class LazySetView<E> extends AbstractSet<E> {
+	
+	/**
+	 * Minimum number of candidate elements per task of {@link #materialize(ExecutorService)}. Smaller results are materialised sequentially.
+	 */
+	public final static int PARALLEL_CHUNK_SIZE = 1 << 14;
+	
+	/**
+	 * The underlying sets, without nulls
+	 */
+	final Set<E>[] sets;
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	LazySetView(final Set<E>[] sets) {
+		final List<Set<E>> l = new ArrayList<Set<E>>(sets.length);
+		for (final Set<E> s : sets) {
+			if (s != null)
+				l.add(s);
+		}
+		this.sets = l.toArray(new Set[l.size()]);
+	}
+	
+	/**
+	 * @return The indices of the sets whose elements are candidates for this view's elements
+	 */
+	abstract int[] candidateSets();
+	
+	/**
+	 * @param e An element of the set at index <tt>source</tt>
+	 * @param source The index of a set returned by {@link #candidateSets()}
+	 * @return Whether the element is part of this view and has not already been returned by an earlier candidate set
+	 */
+	abstract boolean accept(@Nullable E e, int source);
+	
+	/**
+	 * @return An upper bound for the size of this set, computed in O(number of sets).
+	 */
+	public abstract int estimatedSize();
+	
+	@Override
+	public Iterator<E> iterator() {
+		final int[] candidates = candidateSets();
+		return new Iterator<E>() {
+			private int i = 0;
+			@Nullable
+			private Iterator<E> current = null;
+			
+			@SuppressWarnings("null")
+			@Override
+			public boolean hasNext() {
+				while ((current == null || !current.hasNext()) && i < candidates.length) {
+					final int source = candidates[i++];
+					current = new CheckedIterator<E>(Collections.unmodifiableSet(sets[source]).iterator(), new NullableChecker<E>() {
+						@Override
+						public boolean check(final @Nullable E e) {
+							return accept(e, source);
+						}
+					});
+				}
+				return current != null && current.hasNext();
+			}
+			
+			@Override
+			@Nullable
+			public E next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				final Iterator<E> current = this.current;
+				assert current != null;
+				return current.next();
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	/**
+	 * Computes the size of this set by iterating it. Use {@link #estimatedSize()} if an approximation is sufficient.
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+		final Iterator<E> iter = iterator();
+		while (iter.hasNext()) {
+			iter.next();
+			size++;
+		}
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return !iterator().hasNext();
+	}
+	
+	/**
+	 * @return A new modifiable set containing the current elements of this view
+	 */
+	public Set<E> materialize() {
+		final Set<E> r = new HashSet<E>(Math.max(16, (int) (Math.min(estimatedSize(), 1 << 20) / .75f) + 1));
+		for (final E e : this)
+			r.add(e);
+		return r;
+	}
+	
+	/**
+	 * Like {@link #materialize()}, but checks the candidate elements in parallel using the given executor. Only worth it for very large sets, thus if there are less than
+	 * twice {@link #PARALLEL_CHUNK_SIZE} candidates this simply calls {@link #materialize()}.
+	 * <p>
+	 * The underlying sets must not be modified while this method is running.
+	 * 
+	 * @param executor The executor to run the tasks on
+	 * @return A new modifiable set containing the current elements of this view
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public Set<E> materialize(final ExecutorService executor) throws InterruptedException {
+		final int[] candidates = candidateSets();
+		long total = 0;
+		for (final int c : candidates)
+			total += sets[c].size();
+		if (total < 2 * PARALLEL_CHUNK_SIZE)
+			return materialize();
+		
+		final List<Future<List<E>>> futures = new ArrayList<Future<List<E>>>();
+		for (final int c : candidates) {
+			@SuppressWarnings("unchecked")
+			final E[] elements = (E[]) sets[c].toArray();
+			for (int start = 0; start < elements.length; start += PARALLEL_CHUNK_SIZE) {
+				final int source = c, from = start, to = Math.min(start + PARALLEL_CHUNK_SIZE, elements.length);
+				futures.add(executor.submit(new Callable<List<E>>() {
+					@Override
+					public List<E> call() {
+						final List<E> r = new ArrayList<E>();
+						for (int i = from; i < to; i++) {
+							if (accept(elements[i], source))
+								r.add(elements[i]);
+						}
+						return r;
+					}
+				}));
+			}
+		}
+		
+		final Set<E> r = new HashSet<E>();
+		try {
+			for (final Future<List<E>> f : futures)
+				r.addAll(f.get());
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		} finally {
+			for (final Future<List<E>> f : futures)
+				f.cancel(true);
+		}
+		return r;
+	}
+	
+	final static class Intersection<E> extends LazySetView<E> {
+		
+		Intersection(final Set<E>[] sets) {
+			super(sets);
+		}
+		
+		private int smallest() {
+			int smallest = 0;
+			for (int i = 1; i < sets.length; i++) {
+				if (sets[i].size() < sets[smallest].size())
+					smallest = i;
+			}
+			return smallest;
+		}
+		
+		@Override
+		int[] candidateSets() {
+			return sets.length == 0 ? new int[0] : new int[] {smallest()};
+		}
+		
+		@Override
+		boolean accept(final @Nullable E e, final int source) {
+			for (int i = 0; i < sets.length; i++) {
+				if (i != source && !sets[i].contains(e))
+					return false;
+			}
+			return true;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			if (sets.length == 0)
+				return false;
+			for (final Set<E> s : sets) {
+				if (!s.contains(o))
+					return false;
+			}
+			return true;
+		}
+		
+		@Override
+		public int estimatedSize() {
+			return sets.length == 0 ? 0 : sets[smallest()].size();
+		}
+		
+	}
+	
+	final static class Union<E> extends LazySetView<E> {
+		
+		Union(final Set<E>[] sets) {
+			super(sets);
+		}
+		
+		@Override
+		int[] candidateSets() {
+			final int[] r = new int[sets.length];
+			for (int i = 0; i < r.length; i++)
+				r[i] = i;
+			return r;
+		}
+		
+		/**
+		 * Elements are only returned by the first set that contains them.
+		 */
+		@Override
+		boolean accept(final @Nullable E e, final int source) {
+			for (int i = 0; i < source; i++) {
+				if (sets[i].contains(e))
+					return false;
+			}
+			return true;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			for (final Set<E> s : sets) {
+				if (s.contains(o))
+					return true;
+			}
+			return false;
+		}
+		
+		@Override
+		public int estimatedSize() {
+			long size = 0;
+			for (final Set<E> s : sets)
+				size += s.size();
+			return (int) Math.min(size, Integer.MAX_VALUE);
+		}
+		
+	}
+	
+}
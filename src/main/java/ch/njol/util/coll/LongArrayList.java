@@ -0,0 +1,347 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.coll.iterator.LongIterator;
+
+/**
+ * A list of primitive longs backed by an array, which neither boxes its elements nor allocates an object per element like an <tt>ArrayList&lt;Long&gt;</tt> does.
+ * <p>
+ * {@link #asList()} returns a <tt>List&lt;Long&gt;</tt> view of this list for code that requires a {@link List}.
+ * 
+ * @author Peter Güttinger
+ */
+public final class LongArrayList implements LongCollection, RandomAccess, Cloneable {
+	
+	private long[] elements;
+	private int size = 0;
+	
+	public LongArrayList() {
+		this(10);
+	}
+	
+	public LongArrayList(final int initialCapacity) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		elements = new long[initialCapacity];
+	}
+	
+	/**
+	 * Creates a list containing a copy of the given array, e.g. the result of {@link CollectionUtils#permutation(int)}.
+	 */
+	public LongArrayList(final long[] values) {
+		elements = values.clone();
+		size = values.length;
+	}
+	
+	public LongArrayList(final LongCollection values) {
+		elements = values.toLongArray();
+		size = elements.length;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public void ensureCapacity(final int capacity) {
+		if (capacity > elements.length)
+			elements = Arrays.copyOf(elements, Math.max(capacity, elements.length + (elements.length >> 1) + 1));
+	}
+	
+	public void trimToSize() {
+		if (size < elements.length)
+			elements = Arrays.copyOf(elements, size);
+	}
+	
+	private void rangeCheck(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+	
+	public long get(final int index) {
+		rangeCheck(index);
+		return elements[index];
+	}
+	
+	/**
+	 * @return The previous element at the given index
+	 */
+	public long set(final int index, final long value) {
+		rangeCheck(index);
+		final long old = elements[index];
+		elements[index] = value;
+		return old;
+	}
+	
+	public void add(final long value) {
+		ensureCapacity(size + 1);
+		elements[size++] = value;
+	}
+	
+	/**
+	 * Inserts a value at the given index, shifting all subsequent elements to the right.
+	 */
+	public void add(final int index, final long value) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		elements[index] = value;
+		size++;
+	}
+	
+	public void addAll(final long[] values) {
+		addAll(values, 0, values.length);
+	}
+	
+	public void addAll(final long[] values, final int offset, final int length) {
+		ensureCapacity(size + length);
+		System.arraycopy(values, offset, elements, size, length);
+		size += length;
+	}
+	
+	public void addAll(final LongCollection values) {
+		addAll(values.toLongArray());
+	}
+	
+	/**
+	 * Removes the element at the given index, shifting all subsequent elements to the left.
+	 * 
+	 * @return The removed element
+	 */
+	public long removeAt(final int index) {
+		rangeCheck(index);
+		final long old = elements[index];
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+		return old;
+	}
+	
+	/**
+	 * Removes the first occurrence of the given value.
+	 * 
+	 * @return Whether the value was found
+	 */
+	public boolean removeValue(final long value) {
+		final int i = indexOf(value);
+		if (i == -1)
+			return false;
+		removeAt(i);
+		return true;
+	}
+	
+	public void clear() {
+		size = 0;
+	}
+	
+	public int indexOf(final long value) {
+		return CollectionUtils.indexOf(elements, value, 0, size);
+	}
+	
+	public int lastIndexOf(final long value) {
+		return CollectionUtils.lastIndexOf(elements, value, 0, size);
+	}
+	
+	@Override
+	public boolean contains(final long value) {
+		return indexOf(value) != -1;
+	}
+	
+	public void sort() {
+		Arrays.sort(elements, 0, size);
+	}
+	
+	@Override
+	public long[] toLongArray() {
+		return Arrays.copyOf(elements, size);
+	}
+	
+	@Override
+	public LongIterator longIterator() {
+		return new LongIterator() {
+			private int next = 0;
+			private int last = -1;
+			
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+			
+			@Override
+			public long nextLong() {
+				if (next >= size)
+					throw new NoSuchElementException();
+				last = next;
+				return elements[next++];
+			}
+			
+			@Override
+			public Long next() {
+				return nextLong();
+			}
+			
+			@Override
+			public void remove() {
+				if (last == -1)
+					throw new IllegalStateException();
+				removeAt(last);
+				next = last;
+				last = -1;
+			}
+		};
+	}
+	
+	/**
+	 * @return A modifiable view of this list as a <tt>List&lt;Long&gt;</tt>. The view does not support null elements.
+	 */
+	public List<Long> asList() {
+		return new ListView();
+	}
+	
+	private final class ListView extends AbstractList<Long> implements LongCollection, RandomAccess {
+		
+		public ListView() {}
+		
+		@Override
+		public Long get(final int index) {
+			return LongArrayList.this.get(index);
+		}
+		
+		@Override
+		public Long set(final int index, final Long element) {
+			return LongArrayList.this.set(index, element);
+		}
+		
+		@Override
+		public void add(final int index, final Long element) {
+			LongArrayList.this.add(index, element);
+			modCount++;
+		}
+		
+		@Override
+		public Long remove(final int index) {
+			modCount++;
+			return removeAt(index);
+		}
+		
+		@Override
+		public void clear() {
+			modCount++;
+			LongArrayList.this.clear();
+		}
+		
+		@Override
+		public int indexOf(final @Nullable Object o) {
+			return o instanceof Long ? LongArrayList.this.indexOf((Long) o) : -1;
+		}
+		
+		@Override
+		public int lastIndexOf(final @Nullable Object o) {
+			return o instanceof Long ? LongArrayList.this.lastIndexOf((Long) o) : -1;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			return indexOf(o) != -1;
+		}
+		
+		@Override
+		public boolean contains(final long value) {
+			return LongArrayList.this.contains(value);
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public LongIterator longIterator() {
+			return LongArrayList.this.longIterator();
+		}
+		
+		@Override
+		public long[] toLongArray() {
+			return LongArrayList.this.toLongArray();
+		}
+		
+	}
+	
+	@Override
+	public LongArrayList clone() {
+		final LongArrayList r = new LongArrayList(0);
+		r.elements = toLongArray();
+		r.size = size;
+		return r;
+	}
+	
+	/**
+	 * Calculated like {@link List#hashCode()}, thus equal to the hash code of an equal <tt>List&lt;Long&gt;</tt>.
+	 */
+	@Override
+	public int hashCode() {
+		int hashCode = 1;
+		for (int i = 0; i < size; i++)
+			hashCode = 31 * hashCode + (int) (elements[i] ^ (elements[i] >>> 32));
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof LongArrayList))
+			return false;
+		final LongArrayList other = (LongArrayList) obj;
+		if (other.size != size)
+			return false;
+		for (int i = 0; i < size; i++) {
+			if (elements[i] != other.elements[i])
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i != 0)
+				b.append(", ");
+			b.append(elements[i]);
+		}
+		return b.append(']').toString();
+	}
+	
+}
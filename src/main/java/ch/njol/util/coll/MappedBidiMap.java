@@ -0,0 +1,349 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.coll.BidiMapSnapshot.Codec;
+import ch.njol.util.coll.BidiMapSnapshot.Header;
+
+/**
+ * A read-only {@link BidiMap} backed by a memory-mapped {@link BidiMapSnapshot snapshot}. Lookups encode the given key or value, find it in the snapshot's hash table
+ * (which is either part of the file or has been built when the file was mapped) and decode only the object that is returned, thus the map never decodes the whole file,
+ * and only uses memory for the parts of the file that are actually accessed. Objects are decoded again on every access, thus maps that are read often should be {@link #hydrate() hydrated} into a normal map, e.g. in a
+ * background thread while this map serves the first lookups.
+ * <p>
+ * This map is thread-safe. The collection views are read-only and decode the pairs while iterating. The file is unmapped when this map and its reverse view are garbage
+ * collected.
+ * 
+ * @author Peter Güttinger
+ * @see BidiMapSnapshot#map(java.nio.channels.FileChannel, Codec, Codec)
+ */
+public final class MappedBidiMap<T1, T2> extends AbstractMap<T1, T2> implements BidiMap<T1, T2> {
+	
+	/**
+	 * The mapped file. Only absolute methods are used on this buffer so that it can be shared by threads.
+	 */
+	private final ByteBuffer buffer;
+	private final int size;
+	/**
+	 * The length of the encoded objects of both sides, or -1 if it varies
+	 */
+	private final int[] lengths;
+	/**
+	 * The position of each pair in the file, or null if all pairs have the same length
+	 */
+	@Nullable
+	private final IntBuffer offsets;
+	/**
+	 * The hash tables of both sides. Only absolute methods are used on these buffers as well.
+	 */
+	private final IntBuffer[] tables;
+	private final Codec<?>[] codecs;
+	private final int keySide;
+	private final MappedBidiMap<T2, T1> other;
+	
+	MappedBidiMap(final ByteBuffer buffer, final Header header, final @Nullable IntBuffer offsets, final IntBuffer[] tables, final Codec<T1> keyCodec,
+			final Codec<T2> valueCodec) {
+		this.buffer = buffer;
+		size = header.size;
+		lengths = new int[] {header.keyLength, header.valueLength};
+		this.offsets = offsets;
+		this.tables = tables;
+		codecs = new Codec<?>[] {keyCodec, valueCodec};
+		keySide = 0;
+		other = new MappedBidiMap<T2, T1>(this);
+	}
+	
+	private MappedBidiMap(final MappedBidiMap<T2, T1> other) {
+		buffer = other.buffer;
+		size = other.size;
+		lengths = other.lengths;
+		tables = other.tables;
+		offsets = other.offsets;
+		codecs = other.codecs;
+		keySide = 1 - other.keySide;
+		this.other = other;
+	}
+	
+	@Override
+	public MappedBidiMap<T2, T1> getReverseView() {
+		return other;
+	}
+	
+	/**
+	 * @return The position of the encoded object of the given side of the given pair in the file, i.e. the position of its length if its length varies
+	 */
+	private int position(final int side, final int pair) {
+		final IntBuffer offsets = this.offsets;
+		final int offset = offsets == null ? BidiMapSnapshot.HEADER_SIZE + pair * (lengths[0] + lengths[1]) : offsets.get(pair);
+		if (side == 0)
+			return offset;
+		final int keyLength = lengths[0];
+		if (keyLength >= 0)
+			return offset + keyLength;
+		final int l = BidiMapSnapshot.readLength(buffer, offset);
+		return offset + BidiMapSnapshot.lengthSize(l) + l;
+	}
+	
+	/**
+	 * @return The number of the pair containing the given object on the given side, or -1 if the object is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	private int find(final int side, final @Nullable Object o) {
+		if (o == null)
+			return -1;
+		final byte[] encoded;
+		try {
+			encoded = ((Codec<Object>) codecs[side]).encode(o);
+		} catch (final ClassCastException e) {
+			return -1;
+		}
+		final IntBuffer table = tables[side];
+		final int length = table.capacity();
+		for (int i = BidiMapSnapshot.slot(BidiMapSnapshot.hash(encoded), length);; i = i + 1 == length ? 0 : i + 1) {
+			final int pair = table.get(i) - 1;
+			if (pair == -1)
+				return -1;
+			if (equals(side, position(side, pair), encoded))
+				return pair;
+		}
+	}
+	
+	private boolean equals(final int side, int position, final byte[] encoded) {
+		final ByteBuffer buffer = this.buffer;
+		if (lengths[side] < 0) {
+			final int l = BidiMapSnapshot.readLength(buffer, position);
+			if (l != encoded.length)
+				return false;
+			position += BidiMapSnapshot.lengthSize(l);
+		} else if (lengths[side] != encoded.length) {
+			return false;
+		}
+		for (int i = 0; i < encoded.length; i++) {
+			if (buffer.get(position + i) != encoded[i])
+				return false;
+		}
+		return true;
+	}
+	
+	private Object decode(final int side, final int pair) {
+		int position = position(side, pair), length = lengths[side];
+		if (length < 0) {
+			length = BidiMapSnapshot.readLength(buffer, position);
+			position += BidiMapSnapshot.lengthSize(length);
+		}
+		final ByteBuffer b = buffer.duplicate();
+		b.limit(position + length).position(position);
+		return codecs[side].decode(b);
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return find(keySide, key) != -1;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		return find(1 - keySide, value) != -1;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 get(final @Nullable Object key) {
+		final int pair = find(keySide, key);
+		return pair == -1 ? null : (T2) decode(1 - keySide, pair);
+	}
+	
+	@Override
+	@Nullable
+	public T2 getValue(final @Nullable T1 key) {
+		return get(key);
+	}
+	
+	@Override
+	@Nullable
+	public T1 getKey(final @Nullable T2 value) {
+		return other.get(value);
+	}
+	
+	@Override
+	@Nullable
+	public T2 put(final @Nullable T1 key, final @Nullable T2 value) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void putAll(final Map<? extends T1, ? extends T2> m) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	@Nullable
+	public T2 remove(final @Nullable Object key) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Decodes all pairs into a new modifiable map.
+	 */
+	@SuppressWarnings("unchecked")
+	public BidiHashMap<T1, T2> hydrate() {
+		final BidiHashMap<T1, T2> map = new BidiHashMap<T1, T2>();
+		for (int i = 0; i < size; i++)
+			map.put((T1) decode(keySide, i), (T2) decode(1 - keySide, i));
+		return map;
+	}
+	
+	/**
+	 * Iterates over the pairs in the order they are stored in the file.
+	 */
+	private abstract class PairIterator<E> implements Iterator<E> {
+		
+		private int next = 0;
+		
+		public PairIterator() {}
+		
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+		
+		@Override
+		public E next() {
+			if (next >= size)
+				throw new NoSuchElementException();
+			return get(next++);
+		}
+		
+		protected abstract E get(int pair);
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	/**
+	 * A view of one side of the map.
+	 */
+	private final class SideView<E> extends AbstractSet<E> {
+		
+		private final int side;
+		
+		public SideView(final int side) {
+			this.side = side;
+		}
+		
+		@Override
+		public Iterator<E> iterator() {
+			return new PairIterator<E>() {
+				@SuppressWarnings("unchecked")
+				@Override
+				protected E get(final int pair) {
+					return (E) decode(side, pair);
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public boolean contains(final @Nullable Object o) {
+			return find(side, o) != -1;
+		}
+		
+	}
+	
+	@Override
+	public Set<Entry<T1, T2>> entrySet() {
+		return new AbstractSet<Entry<T1, T2>>() {
+			@Override
+			public Iterator<Entry<T1, T2>> iterator() {
+				return new PairIterator<Entry<T1, T2>>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected Entry<T1, T2> get(final int pair) {
+						return new SimpleImmutableEntry<T1, T2>((T1) decode(keySide, pair), (T2) decode(1 - keySide, pair));
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				if (!(o instanceof Entry))
+					return false;
+				final Entry<?, ?> e = (Entry<?, ?>) o;
+				final int pair = find(keySide, e.getKey());
+				return pair != -1 && pair == find(1 - keySide, e.getValue());
+			}
+		};
+	}
+	
+	@Override
+	public Set<T1> keySet() {
+		return new SideView<T1>(keySide);
+	}
+	
+	@Override
+	public Set<T2> values() {
+		return valueSet();
+	}
+	
+	@Override
+	public Set<T2> valueSet() {
+		return new SideView<T2>(1 - keySide);
+	}
+	
+}
@@ -0,0 +1,199 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A bidirectional map between objects and primitive ints, e.g. a registry of names to IDs. This is the reverse view of an {@link Int2ObjectBidiMap} and shares its
+ * storage, thus the int side of the map uses plain array indexing for dense values and none of the ints are ever boxed.
+ * <p>
+ * Like in a {@link BidiHashMap}, putting a pair removes any existing pairs with the same key or value. Keys must not be null. As ints cannot be null,
+ * {@link #get(Object)} returns the map's {@link #getDefaultValue() default value} for keys that are not in the map, which is -1 unless specified otherwise.
+ * <p>
+ * Pairs can be iterated with a cursor of the {@link #getReverseView() reverse view}, and {@link #asMap()} returns a {@link BidiMap}&lt;K, Integer&gt; view of this map for
+ * code that requires a {@link java.util.Map}.
+ * 
+ * @author Peter Güttinger
+ */
+public final class Object2IntBidiMap<K> {
+	
+	private final Int2ObjectBidiMap<K> reverse;
+	
+	public Object2IntBidiMap() {
+		this(8, -1);
+	}
+	
+	/**
+	 * @param expectedSize The number of pairs this map will hold without having to resize
+	 */
+	public Object2IntBidiMap(final int expectedSize) {
+		this(expectedSize, -1);
+	}
+	
+	/**
+	 * @param expectedSize The number of pairs this map will hold without having to resize
+	 * @param defaultValue The value to return for keys that are not in this map
+	 */
+	public Object2IntBidiMap(final int expectedSize, final int defaultValue) {
+		reverse = new Int2ObjectBidiMap<K>(this, expectedSize, defaultValue);
+	}
+	
+	/**
+	 * Creates the reverse view of the given map.
+	 */
+	Object2IntBidiMap(final Int2ObjectBidiMap<K> reverse) {
+		this.reverse = reverse;
+	}
+	
+	/**
+	 * @return A view of this map with keys and values swapped. The view shares its storage with this map.
+	 */
+	public Int2ObjectBidiMap<K> getReverseView() {
+		return reverse;
+	}
+	
+	/**
+	 * @return The value returned for keys that are not in this map
+	 */
+	public int getDefaultValue() {
+		return reverse.getDefaultKey();
+	}
+	
+	public int size() {
+		return reverse.size();
+	}
+	
+	public boolean isEmpty() {
+		return reverse.isEmpty();
+	}
+	
+	public boolean containsKey(final @Nullable Object key) {
+		return reverse.containsValue(key);
+	}
+	
+	public boolean containsValue(final int value) {
+		return reverse.containsKey(value);
+	}
+	
+	/**
+	 * @return The value mapped to the given key, or the {@link #getDefaultValue() default value} if the key is not in this map
+	 */
+	public int get(final @Nullable Object key) {
+		return reverse.getKey(key);
+	}
+	
+	/**
+	 * Same as {@link #get(Object)}.
+	 */
+	public int getValue(final @Nullable Object key) {
+		return reverse.getKey(key);
+	}
+	
+	/**
+	 * @return The key mapped to the given value, or null if there is no such key
+	 */
+	@Nullable
+	public K getKey(final int value) {
+		return reverse.get(value);
+	}
+	
+	/**
+	 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+	 * 
+	 * @return The value previously mapped to the given key, or the {@link #getDefaultValue() default value} if there was no such value
+	 * @throws NullPointerException If the key is null
+	 */
+	public int put(final K key, final int value) {
+		final int old = reverse.getKey(key);
+		reverse.put(value, key);
+		return old;
+	}
+	
+	public void putAll(final Object2IntBidiMap<? extends K> map) {
+		final Int2ObjectBidiMap<? extends K>.Cursor c = map.reverse.cursor();
+		while (c.next())
+			put(c.value(), c.key());
+	}
+	
+	/**
+	 * @return The value that was mapped to the given key, or the {@link #getDefaultValue() default value} if there was no such value
+	 */
+	public int remove(final @Nullable Object key) {
+		return reverse.removeValue(key);
+	}
+	
+	/**
+	 * Removes the pair with the given value.
+	 * 
+	 * @return The key that was mapped to the given value, or null if there was no such key
+	 */
+	@Nullable
+	public K removeValue(final int value) {
+		return reverse.remove(value);
+	}
+	
+	public void clear() {
+		reverse.clear();
+	}
+	
+	/**
+	 * @return A new array containing all values of this map
+	 */
+	public int[] values() {
+		return reverse.keys();
+	}
+	
+	/**
+	 * @return A view of this map as a <tt>BidiMap&lt;K, Integer&gt;</tt>. Pairs can be added and removed through the view, but not through its collection views.
+	 */
+	public BidiMap<K, Integer> asMap() {
+		return reverse.asMap().getReverseView();
+	}
+	
+	@Override
+	public int hashCode() {
+		return reverse.hashCode();
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof Object2IntBidiMap))
+			return false;
+		return reverse.equals(((Object2IntBidiMap<?>) obj).reverse);
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("{");
+		final Int2ObjectBidiMap<K>.Cursor c = reverse.cursor();
+		boolean first = true;
+		while (c.next()) {
+			if (!first)
+				b.append(", ");
+			first = false;
+			b.append(c.value()).append('=').append(c.key());
+		}
+		return b.append('}').toString();
+	}
+	
+}
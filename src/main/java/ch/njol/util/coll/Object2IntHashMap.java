@@ -0,0 +1,557 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+
+package ch.njol.util.coll;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Math2;
+
+/**
+ * A map from objects to primitive ints using open addressing with linear probing. Unlike a <tt>HashMap&lt;K, Integer&gt;</tt> it neither boxes its values nor allocates an
+ * object per entry, and keys and values are stored in two parallel arrays.
+ * <p>
+ * The table's size is always a power of two and is doubled when it becomes more than half full. Removed entries do not leave tombstones, instead subsequent entries are
+ * shifted back into the freed slot. The null key is supported.
+ * <p>
+ * As ints cannot be null, methods that would return null for a missing key in a {@link Map} return the map's {@link #getDefaultValue() default value} instead, which is 0
+ * unless specified otherwise.
+ * <p>
+ * Entries can be iterated without allocating anything per entry with a {@link Cursor}. {@link #asMap()} returns a <tt>Map&lt;K, Integer&gt;</tt> view of this map for code
+ * that requires a {@link Map}.
+ * 
+ * @author Peter Güttinger
+ * @see Object2IntHashMap.Cursor
+ */
+public final class Object2IntHashMap<K> implements Cloneable {
+	
+	/**
+	 * Free slots contain null. The value of the null key is stored in {@link #nullValue}.
+	 */
+	private Object[] keys;
+	private int[] values;
+	private int mask;
+	private boolean containsNullKey = false;
+	private int nullValue;
+	private int size = 0;
+	
+	private final int defaultValue;
+	
+	public Object2IntHashMap() {
+		this(8, 0);
+	}
+	
+	/**
+	 * @param expectedSize The number of entries this map will hold without having to resize
+	 */
+	public Object2IntHashMap(final int expectedSize) {
+		this(expectedSize, 0);
+	}
+	
+	/**
+	 * @param expectedSize The number of entries this map will hold without having to resize
+	 * @param defaultValue The value to return for missing keys, e.g. -1 for maps to indices
+	 */
+	public Object2IntHashMap(final int expectedSize, final int defaultValue) {
+		if (expectedSize < 0)
+			throw new IllegalArgumentException("Illegal size: " + expectedSize);
+		final int n = tableSize(expectedSize);
+		keys = new Object[n];
+		values = new int[n];
+		mask = n - 1;
+		this.defaultValue = defaultValue;
+		nullValue = defaultValue;
+	}
+	
+	private final static int tableSize(final int expectedSize) {
+		final int n = Math2.nextPowerOfTwo(Math.max(4, expectedSize) * 2);
+		if (n <= 0)
+			throw new IllegalArgumentException("Map too large: " + expectedSize);
+		return n;
+	}
+	
+	private int slot(final Object key) {
+		final int h = key.hashCode() * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+	
+	/**
+	 * @return The slot of the given key, -1 for the null key, or -2 if the key is not in this map
+	 */
+	private int find(final @Nullable Object key) {
+		if (key == null)
+			return containsNullKey ? -1 : -2;
+		final Object[] keys = this.keys;
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			final Object k = keys[i];
+			if (k == null)
+				return -2;
+			if (k == key || k.equals(key))
+				return i;
+		}
+	}
+	
+	/**
+	 * @return The value returned for keys that are not in this map
+	 */
+	public int getDefaultValue() {
+		return defaultValue;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public boolean containsKey(final @Nullable Object key) {
+		return find(key) != -2;
+	}
+	
+	public boolean containsValue(final int value) {
+		if (containsNullKey && nullValue == value)
+			return true;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null && values[i] == value)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return The value mapped to the given key, or the {@link #getDefaultValue() default value} if there is no such value
+	 */
+	public int get(final @Nullable Object key) {
+		final int i = find(key);
+		return i == -2 ? defaultValue : i == -1 ? nullValue : values[i];
+	}
+	
+	/**
+	 * @return The previous value mapped to the given key, or the {@link #getDefaultValue() default value} if there was no such value
+	 */
+	public int put(final @Nullable K key, final int value) {
+		if (key == null) {
+			final int old = nullValue;
+			nullValue = value;
+			if (!containsNullKey) {
+				containsNullKey = true;
+				size++;
+				return defaultValue;
+			}
+			return old;
+		}
+		int i = slot(key);
+		Object k;
+		while ((k = keys[i]) != null) {
+			if (k == key || k.equals(key)) {
+				final int old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length / 2)
+			rehash(keys.length * 2);
+		return defaultValue;
+	}
+	
+	/**
+	 * Adds the given amount to the value of the given key. If the key is not in this map it is added with a value of <tt>{@link #getDefaultValue() default value} +
+	 * amount</tt>. Useful for counting occurrences.
+	 * 
+	 * @return The new value of the key
+	 */
+	public int addTo(final @Nullable K key, final int amount) {
+		final int i = find(key);
+		if (i == -2) {
+			put(key, defaultValue + amount);
+			return defaultValue + amount;
+		}
+		if (i == -1)
+			return nullValue += amount;
+		return values[i] += amount;
+	}
+	
+	public void putAll(final Object2IntHashMap<? extends K> map) {
+		final Object2IntHashMap<? extends K>.Cursor c = map.cursor();
+		while (c.next())
+			put(c.key(), c.value());
+	}
+	
+	/**
+	 * @return The value that was mapped to the given key, or the {@link #getDefaultValue() default value} if there was no such value
+	 */
+	public int remove(final @Nullable Object key) {
+		final int i = find(key);
+		if (i == -2)
+			return defaultValue;
+		size--;
+		if (i == -1) {
+			final int old = nullValue;
+			nullValue = defaultValue;
+			containsNullKey = false;
+			return old;
+		}
+		final int old = values[i];
+		removeSlot(i);
+		return old;
+	}
+	
+	/**
+	 * Frees the given slot and moves subsequent entries of the probe sequence back so that no entry becomes unreachable.
+	 */
+	private void removeSlot(int free) {
+		final Object[] keys = this.keys;
+		final int[] values = this.values;
+		int i = free;
+		while (true) {
+			i = (i + 1) & mask;
+			final Object k = keys[i];
+			if (k == null)
+				break;
+			final int home = slot(k);
+			// move the entry back if its home slot is not in the cyclic range (free, i]
+			if (free <= i ? home <= free || home > i : home <= free && home > i) {
+				keys[free] = k;
+				values[free] = values[i];
+				free = i;
+			}
+		}
+		keys[free] = null;
+		values[free] = 0;
+	}
+	
+	private void rehash(final int newSize) {
+		final Object[] oldKeys = keys;
+		final int[] oldValues = values;
+		keys = new Object[newSize];
+		values = new int[newSize];
+		mask = newSize - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			final Object k = oldKeys[j];
+			if (k == null)
+				continue;
+			int i = slot(k);
+			while (keys[i] != null)
+				i = (i + 1) & mask;
+			keys[i] = k;
+			values[i] = oldValues[j];
+		}
+	}
+	
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, 0);
+		containsNullKey = false;
+		nullValue = defaultValue;
+		size = 0;
+	}
+	
+	/**
+	 * @return A new array containing all values of this map, in the same order as a {@link Cursor} returns them
+	 */
+	public int[] values() {
+		final int[] r = new int[size];
+		int j = 0;
+		if (containsNullKey)
+			r[j++] = nullValue;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null)
+				r[j++] = values[i];
+		}
+		assert j == size;
+		return r;
+	}
+	
+	/**
+	 * @return A new cursor positioned before the first entry of this map
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+	
+	/**
+	 * Iterates over the entries of the map without allocating any objects. Usage:
+	 * 
+	 * <pre>
+	 * final Object2IntHashMap&lt;K&gt;.Cursor c = map.cursor();
+	 * while (c.next()) {
+	 * 	// use c.key() and c.value()
+	 * }
+	 * </pre>
+	 * 
+	 * The map must not be structurally modified while a cursor is in use, but the current entry's value can be changed with {@link #setValue(int)}. A cursor can be
+	 * {@link #reset() reset} to iterate the map again.
+	 */
+	public final class Cursor {
+		
+		private boolean nullPending;
+		private int next;
+		/**
+		 * The slot of the current entry, -1 for the null key, or -2 if there is no current entry
+		 */
+		private int current;
+		
+		Cursor() {
+			reset();
+		}
+		
+		/**
+		 * Moves this cursor back before the first entry.
+		 */
+		public void reset() {
+			nullPending = containsNullKey;
+			next = 0;
+			current = -2;
+		}
+		
+		/**
+		 * Advances this cursor to the next entry.
+		 * 
+		 * @return Whether there was another entry
+		 */
+		public boolean next() {
+			if (nullPending) {
+				nullPending = false;
+				current = -1;
+				return true;
+			}
+			final Object[] keys = Object2IntHashMap.this.keys;
+			int i = next;
+			while (i < keys.length && keys[i] == null)
+				i++;
+			if (i >= keys.length) {
+				next = i;
+				current = -2;
+				return false;
+			}
+			current = i;
+			next = i + 1;
+			return true;
+		}
+		
+		private int current() {
+			if (current == -2)
+				throw new NoSuchElementException();
+			return current;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Nullable
+		public K key() {
+			final int c = current();
+			return c == -1 ? null : (K) keys[c];
+		}
+		
+		public int value() {
+			final int c = current();
+			return c == -1 ? nullValue : values[c];
+		}
+		
+		/**
+		 * @return The previous value of the current entry
+		 */
+		public int setValue(final int value) {
+			final int c = current();
+			final int old;
+			if (c == -1) {
+				old = nullValue;
+				nullValue = value;
+			} else {
+				old = values[c];
+				values[c] = value;
+			}
+			return old;
+		}
+		
+	}
+	
+	/**
+	 * @return A view of this map as a <tt>Map&lt;K, Integer&gt;</tt>. Entries can be added and removed through the view, but not through the iterators of its collection
+	 *         views. Unlike this map the view returns null for missing keys and does not support null values.
+	 */
+	public Map<K, Integer> asMap() {
+		return new MapView();
+	}
+	
+	private final class MapView extends AbstractMap<K, Integer> {
+		
+		public MapView() {}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		public boolean containsKey(final @Nullable Object key) {
+			return Object2IntHashMap.this.containsKey(key);
+		}
+		
+		@Override
+		public boolean containsValue(final @Nullable Object value) {
+			return value instanceof Integer && Object2IntHashMap.this.containsValue((Integer) value);
+		}
+		
+		@Override
+		@Nullable
+		public Integer get(final @Nullable Object key) {
+			final int i = find(key);
+			return i == -2 ? null : i == -1 ? nullValue : values[i];
+		}
+		
+		@Override
+		@Nullable
+		public Integer put(final K key, final Integer value) {
+			final boolean had = Object2IntHashMap.this.containsKey(key);
+			final int old = Object2IntHashMap.this.put(key, value);
+			return had ? old : null;
+		}
+		
+		@Override
+		@Nullable
+		public Integer remove(final @Nullable Object key) {
+			if (!Object2IntHashMap.this.containsKey(key))
+				return null;
+			return Object2IntHashMap.this.remove(key);
+		}
+		
+		@Override
+		public void clear() {
+			Object2IntHashMap.this.clear();
+		}
+		
+		@Override
+		public Set<Entry<K, Integer>> entrySet() {
+			return new AbstractSet<Entry<K, Integer>>() {
+				@Override
+				public Iterator<Entry<K, Integer>> iterator() {
+					final Cursor c = cursor();
+					return new Iterator<Entry<K, Integer>>() {
+						private boolean hasNext = c.next();
+						
+						@Override
+						public boolean hasNext() {
+							return hasNext;
+						}
+						
+						@SuppressWarnings("null")
+						@Override
+						public Entry<K, Integer> next() {
+							if (!hasNext)
+								throw new NoSuchElementException();
+							final Entry<K, Integer> e = new SimpleEntry<K, Integer>(c.key(), c.value());
+							hasNext = c.next();
+							return e;
+						}
+						
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+				
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+		
+	}
+	
+	@Override
+	public Object2IntHashMap<K> clone() {
+		final Object2IntHashMap<K> r = new Object2IntHashMap<K>(0, defaultValue);
+		r.keys = keys.clone();
+		r.values = values.clone();
+		r.mask = mask;
+		r.containsNullKey = containsNullKey;
+		r.nullValue = nullValue;
+		r.size = size;
+		return r;
+	}
+	
+	/**
+	 * Calculated like {@link Map#hashCode()}, thus equal to the hash code of an equal <tt>Map&lt;K, Integer&gt;</tt>.
+	 */
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+		if (containsNullKey)
+			hashCode += nullValue;
+		for (int i = 0; i < keys.length; i++) {
+			final Object k = keys[i];
+			if (k != null)
+				hashCode += k.hashCode() ^ values[i];
+		}
+		return hashCode;
+	}
+	
+	@Override
+	public boolean equals(final @Nullable Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof Object2IntHashMap))
+			return false;
+		final Object2IntHashMap<?> other = (Object2IntHashMap<?>) obj;
+		if (other.size != size || other.containsNullKey != containsNullKey)
+			return false;
+		if (containsNullKey && nullValue != other.nullValue)
+			return false;
+		for (int i = 0; i < keys.length; i++) {
+			final Object k = keys[i];
+			if (k == null)
+				continue;
+			final int j = other.find(k);
+			if (j < 0 || values[i] != other.values[j])
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder("{");
+		final Cursor c = cursor();
+		boolean first = true;
+		while (c.next()) {
+			if (!first)
+				b.append(", ");
+			first = false;
+			b.append(c.key()).append('=').append(c.value());
+		}
+		return b.append('}').toString();
+	}
+	
+}
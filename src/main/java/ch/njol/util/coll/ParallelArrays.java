@@ -0,0 +1,394 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import ch.njol.util.Checker;
+import ch.njol.util.NullableChecker;
+
+/**
+ * Parallel versions of searching and filtering arrays with a {@link Checker}.
+ * <p>
+ * The array is split into chunks which are claimed one after another by the current thread and by tasks submitted to the given executor, thus the work is balanced even
+ * if the checker is slower for some elements than for others. The tasks never wait for each other, so any executor can be used, even one with a single thread or one that
+ * is busy with other tasks (in which case the current thread simply does most of the work). Ranges with less than {@link #SEQUENTIAL_THRESHOLD} elements are always
+ * processed in the current thread. The array is split among as many threads as a {@link ThreadPoolExecutor} of limited size has plus the current thread, or as many
+ * threads as there are processors for other executors.
+ * <p>
+ * Null elements are only passed to the checker if it is a {@link NullableChecker}, otherwise they are never matched. The array must not be modified while a method of this
+ * class is running, and the checker must be thread-safe.
+ * 
+ * @author Peter Güttinger
+ */
+public final class ParallelArrays {
+	
+	private ParallelArrays() {}
+	
+	/**
+	 * Ranges smaller than this are processed sequentially. Determined with a benchmark using a trivial checker, i.e. the cheapest possible case - arrays with expensive
+	 * checkers profit from parallelism even if they are smaller than this.
+	 */
+	public final static int SEQUENTIAL_THRESHOLD = 1 << 14;
+	
+	private final static int MIN_CHUNK_SIZE = 1 << 12;
+	
+	/**
+	 * How many chunks to create per processor, to balance the work if some chunks take longer than others
+	 */
+	private final static int CHUNKS_PER_THREAD = 8;
+	
+	/**
+	 * How many elements are checked between checks of whether the search can be stopped
+	 */
+	private final static int STOP_CHECK_INTERVAL = 256;
+	
+	/**
+	 * Thread pools with at least this many threads are considered unlimited
+	 */
+	private final static int MAX_PARALLELISM = 1 << 10;
+	
+	private static abstract class Scan {
+		
+		/**
+		 * Checks the elements in the range [from, to).
+		 */
+		abstract void scan(int from, int to);
+		
+		/**
+		 * @param from The start of the next chunk. Chunks are claimed in ascending order.
+		 * @return Whether the remaining chunks can be skipped
+		 */
+		boolean done(final int from) {
+			return false;
+		}
+		
+	}
+	
+	/**
+	 * A task that scans chunks in another thread. It may only run if it can be claimed, which the current thread does with tasks that haven't started when it has finished
+	 * its own work, so that it only has to wait for tasks which are actually running.
+	 */
+	private final static class Task implements Runnable {
+		
+		private final Runnable worker;
+		final AtomicBoolean claimed = new AtomicBoolean();
+		/**
+		 * Counted down when the task has finished running, which also makes the task's writes visible to the thread that waits for it
+		 */
+		final CountDownLatch done = new CountDownLatch(1);
+		@Nullable
+		volatile Throwable error = null;
+		
+		Task(final Runnable worker) {
+			this.worker = worker;
+		}
+		
+		@Override
+		public void run() {
+			if (!claimed.compareAndSet(false, true))
+				return;
+			try {
+				worker.run();
+			} catch (final Throwable t) {
+				error = t;
+			} finally {
+				done.countDown();
+			}
+		}
+		
+	}
+	
+	/**
+	 * @return How many threads should scan an array, including the current thread: the size of the pool plus one if the executor is a thread pool of limited size,
+	 *         otherwise the number of processors
+	 */
+	private final static int parallelism(final ExecutorService executor) {
+		if (executor instanceof ThreadPoolExecutor) {
+			final int max = ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+			if (max < MAX_PARALLELISM)
+				return max + 1;
+		}
+		return Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Runs the scan over the range [start, end) in chunks whose starts are multiples of 64 relative to <tt>start</tt>. Returns only after all threads have finished
+	 * scanning.
+	 */
+	private final static void run(final ExecutorService executor, final int start, final int end, final Scan scan) throws InterruptedException {
+		final int length = end - start;
+		if (length < SEQUENTIAL_THRESHOLD) {
+			scan.scan(start, end);
+			return;
+		}
+		final int threads = parallelism(executor);
+		final int chunkSize = (Math.max(MIN_CHUNK_SIZE, length / (threads * CHUNKS_PER_THREAD)) + 63) & ~63;
+		final int chunks = (int) (((long) length + chunkSize - 1) / chunkSize);
+		final AtomicInteger nextChunk = new AtomicInteger();
+		final Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int c;
+				while ((c = nextChunk.getAndIncrement()) < chunks) {
+					final int from = start + c * chunkSize;
+					if (scan.done(from))
+						return;
+					scan.scan(from, (int) Math.min((long) from + chunkSize, end));
+				}
+			}
+		};
+		final List<Task> tasks = new ArrayList<Task>(threads - 1);
+		final List<Future<?>> futures = new ArrayList<Future<?>>(threads - 1);
+		boolean finished = false;
+		try {
+			for (int i = 1; i < Math.min(threads, chunks); i++) {
+				final Task task = new Task(worker);
+				tasks.add(task);
+				futures.add(executor.submit(task));
+			}
+			worker.run();
+			for (int i = 0; i < tasks.size(); i++) {
+				final Task task = tasks.get(i);
+				if (task.claimed.compareAndSet(false, true)) {
+					// the task hasn't started yet and is not needed anymore as all chunks have been claimed
+					futures.get(i).cancel(false);
+				} else {
+					task.done.await();
+				}
+			}
+			finished = true;
+		} finally {
+			if (!finished) {
+				// stop the running tasks after their current chunk
+				nextChunk.set(chunks);
+				for (final Future<?> f : futures)
+					f.cancel(false);
+			}
+		}
+		for (final Task task : tasks) {
+			final Throwable error = task.error;
+			if (error instanceof RuntimeException)
+				throw (RuntimeException) error;
+			if (error instanceof Error)
+				throw (Error) error;
+			if (error != null)
+				throw new RuntimeException(error);
+		}
+	}
+	
+	private final static void checkRange(final int length, final int start, final int end) {
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+	}
+	
+	@SuppressWarnings({"unchecked", "null"})
+	private final static <T> boolean matches(final @Nullable T t, final Checker<? super T> checker) {
+		if (t == null && !(checker instanceof NullableChecker))
+			return false;
+		return ((Checker<T>) checker).check(t);
+	}
+	
+	/**
+	 * @return The index of the first element of the array accepted by the checker, or -1 if no element matches
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> int indexOf(final ExecutorService executor, final T[] array, final Checker<? super T> checker) throws InterruptedException {
+		return indexOf(executor, array, 0, array.length, checker);
+	}
+	
+	/**
+	 * Finds the first element in the range [start, end) of the array which is accepted by the given checker. Chunks after a match are skipped, while chunks before it are
+	 * still searched to guarantee that the first match is found.
+	 * 
+	 * @return The index of the first matching element in the given range, or -1 if no element matches
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> int indexOf(final ExecutorService executor, final T[] array, final int start, final int end, final Checker<? super T> checker) throws InterruptedException {
+		checkRange(array.length, start, end);
+		final AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+		run(executor, start, end, new Scan() {
+			@Override
+			void scan(final int from, final int to) {
+				for (int i = from; i < to; i++) {
+					if ((i - from) % STOP_CHECK_INTERVAL == 0 && i > first.get())
+						return;
+					if (matches(array[i], checker)) {
+						int f;
+						while (i < (f = first.get()) && !first.compareAndSet(f, i)) {}
+						return;
+					}
+				}
+			}
+			
+			@Override
+			boolean done(final int from) {
+				return from > first.get();
+			}
+		});
+		final int r = first.get();
+		return r == Integer.MAX_VALUE ? -1 : r;
+	}
+	
+	/**
+	 * Like {@link #indexOf(ExecutorService, Object[], Checker)}, but returns the first matching element itself.
+	 * 
+	 * @return The first element accepted by the checker, or null if no element matches
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	@Nullable
+	public final static <T> T findFirst(final ExecutorService executor, final T[] array, final Checker<? super T> checker) throws InterruptedException {
+		final int i = indexOf(executor, array, 0, array.length, checker);
+		return i == -1 ? null : array[i];
+	}
+	
+	/**
+	 * Finds any element in the range [start, end) of the array which is accepted by the given checker. All tasks stop as soon as a match is found, thus this is faster than
+	 * {@link #indexOf(ExecutorService, Object[], int, int, Checker)} if any match is fine.
+	 * 
+	 * @return The index of some matching element in the given range, or -1 if no element matches
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> int findAnyIndex(final ExecutorService executor, final T[] array, final int start, final int end, final Checker<? super T> checker) throws InterruptedException {
+		checkRange(array.length, start, end);
+		final AtomicInteger found = new AtomicInteger(-1);
+		run(executor, start, end, new Scan() {
+			@Override
+			void scan(final int from, final int to) {
+				for (int i = from; i < to; i++) {
+					if ((i - from) % STOP_CHECK_INTERVAL == 0 && found.get() != -1)
+						return;
+					if (matches(array[i], checker)) {
+						found.compareAndSet(-1, i);
+						return;
+					}
+				}
+			}
+			
+			@Override
+			boolean done(final int from) {
+				return found.get() != -1;
+			}
+		});
+		return found.get();
+	}
+	
+	/**
+	 * @return Any element of the array accepted by the checker, or null if no element matches
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 * @see #findAnyIndex(ExecutorService, Object[], int, int, Checker)
+	 */
+	@Nullable
+	public final static <T> T findAny(final ExecutorService executor, final T[] array, final Checker<? super T> checker) throws InterruptedException {
+		final int i = findAnyIndex(executor, array, 0, array.length, checker);
+		return i == -1 ? null : array[i];
+	}
+	
+	/**
+	 * @return How many elements of the array are accepted by the checker
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> int count(final ExecutorService executor, final T[] array, final Checker<? super T> checker) throws InterruptedException {
+		return count(executor, array, 0, array.length, checker);
+	}
+	
+	/**
+	 * @return How many elements in the range [start, end) of the array are accepted by the checker
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> int count(final ExecutorService executor, final T[] array, final int start, final int end, final Checker<? super T> checker) throws InterruptedException {
+		checkRange(array.length, start, end);
+		final AtomicInteger count = new AtomicInteger();
+		run(executor, start, end, new Scan() {
+			@Override
+			void scan(final int from, final int to) {
+				int c = 0;
+				for (int i = from; i < to; i++) {
+					if (matches(array[i], checker))
+						c++;
+				}
+				count.addAndGet(c);
+			}
+		});
+		return count.get();
+	}
+	
+	/**
+	 * @return The indices of all elements of the array which are accepted by the checker
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> BitSet filterIndices(final ExecutorService executor, final T[] array, final Checker<? super T> checker) throws InterruptedException {
+		return filterIndices(executor, array, 0, array.length, checker);
+	}
+	
+	/**
+	 * @return The indices of all elements in the range [start, end) of the array which are accepted by the checker
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> BitSet filterIndices(final ExecutorService executor, final T[] array, final int start, final int end, final Checker<? super T> checker) throws InterruptedException {
+		checkRange(array.length, start, end);
+		// chunks start at multiples of 64 relative to start, thus each task writes to different words
+		final long[] words = new long[(end - start + 63) >>> 6];
+		run(executor, start, end, new Scan() {
+			@Override
+			void scan(final int from, final int to) {
+				for (int i = from; i < to; i++) {
+					if (matches(array[i], checker))
+						words[(i - start) >>> 6] |= 1L << (i - start);
+				}
+			}
+		});
+		final BitSet r = new BitSet(end);
+		for (int w = 0; w < words.length; w++) {
+			long word = words[w];
+			while (word != 0) {
+				r.set(start + (w << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return r;
+	}
+	
+	/**
+	 * @return A new array of the same type as the given one, containing all elements which are accepted by the checker in their original order
+	 * @throws InterruptedException If the current thread is interrupted while waiting for the tasks to complete
+	 */
+	public final static <T> T[] filter(final ExecutorService executor, final T[] array, final Checker<? super T> checker) throws InterruptedException {
+		final BitSet indices = filterIndices(executor, array, 0, array.length, checker);
+		@SuppressWarnings("unchecked")
+		final T[] r = (T[]) Array.newInstance(array.getClass().getComponentType(), indices.cardinality());
+		int j = 0;
+		for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1))
+			r[j++] = array[i];
+		return r;
+	}
+	
+}
@@ -0,0 +1,640 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A bidirectional map whose {@link #clone()} takes constant time, e.g. to take a snapshot of a registry for every request.
+ * <p>
+ * Both directions are stored in hash array mapped tries (HAMTs), i.e. trees with up to 32 children per node, thus operations take O(log<sub>32</sub> n) time. Each node
+ * is owned by the map that created it, and a map modifies the nodes it owns in place. Cloning a map only copies the roots of the tries and makes all existing nodes owned
+ * by neither map, thus the map and its clone share all nodes, and each copies only the nodes on the path to a modified pair (copy on write). Filling a new map thus
+ * modifies its nodes in place like a builder would, while modifying a clone costs at most a few small arrays per pair.
+ * <p>
+ * Like {@link BidiHashMap}, putting a pair removes any existing pairs with the same key or value, neither keys nor values may be null, and the collection views are
+ * read-only. The {@link #getReverseView() reverse view} shares its state with this map.
+ * <p>
+ * This map is not thread-safe. As cloning transfers ownership of the nodes, clones must be created while no other thread modifies the map; a clone itself can then be
+ * read by other threads without synchronisation if it is safely published and not modified anymore.
+ * 
+ * @author Peter Güttinger
+ */
+public final class PersistentBidiMap<T1, T2> extends AbstractMap<T1, T2> implements BidiMap<T1, T2>, Cloneable {
+	
+	private final static int BITS = 5, MASK = (1 << BITS) - 1;
+	
+	private final static Object[] EMPTY = new Object[0];
+	
+	private final static int hash(final Object o) {
+		final int h = o.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Receives the previous value of a key from put and remove operations, or null if the key was not mapped.
+	 */
+	private final static class Result {
+		
+		@Nullable
+		Object old;
+		
+		Result() {}
+		
+	}
+	
+	/**
+	 * A node of a trie. The array contains pairs of keys and values. Nodes may only be modified if they are owned by the current map, i.e. if their edit token is the
+	 * token of the map.
+	 */
+	private static abstract class Node {
+		
+		final Object edit;
+		Object[] array;
+		
+		Node(final Object edit, final Object[] array) {
+			this.edit = edit;
+			this.array = array;
+		}
+		
+		@Nullable
+		abstract Object get(int shift, int hash, Object key);
+		
+		/**
+		 * Maps the key to the value. If the key is already mapped to an equal value, the existing value is kept.
+		 * 
+		 * @return This node if it was modified in place or nothing changed, or a modified copy of this node
+		 */
+		abstract Node put(Object edit, int shift, int hash, Object key, Object value, Result r);
+		
+		/**
+		 * @return This node if it was modified in place or nothing changed, a modified copy of this node, or null if the node has become empty
+		 */
+		@Nullable
+		abstract Node remove(Object edit, int shift, int hash, Object key, Result r);
+		
+		/**
+		 * @return This node or a copy of it which is owned by the given edit token
+		 */
+		abstract Node editable(Object edit);
+		
+		/**
+		 * Sets an element of the array of this node, or of a copy if this node is not owned by the given token.
+		 */
+		final Node set(final Object edit, final int i, final @Nullable Object o) {
+			final Node n = editable(edit);
+			n.array[i] = o;
+			return n;
+		}
+		
+	}
+	
+	/**
+	 * A node with up to 32 children. Each bit of the bitmap tells whether the corresponding pair exists in the array. If a pair's key is null, its value is a sub-node.
+	 */
+	private final static class BitmapNode extends Node {
+		
+		int bitmap;
+		
+		BitmapNode(final Object edit, final int bitmap, final Object[] array) {
+			super(edit, array);
+			this.bitmap = bitmap;
+		}
+		
+		private int index(final int bit) {
+			return 2 * Integer.bitCount(bitmap & (bit - 1));
+		}
+		
+		@Override
+		@Nullable
+		Object get(final int shift, final int hash, final Object key) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0)
+				return null;
+			final int i = index(bit);
+			final Object k = array[i], v = array[i + 1];
+			if (k == null)
+				return ((Node) v).get(shift + BITS, hash, key);
+			return key.equals(k) ? v : null;
+		}
+		
+		@Override
+		Node put(final Object edit, final int shift, final int hash, final Object key, final Object value, final Result r) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			final int i = index(bit);
+			if ((bitmap & bit) != 0) {
+				final Object k = array[i], v = array[i + 1];
+				if (k == null) {
+					final Node n = ((Node) v).put(edit, shift + BITS, hash, key, value, r);
+					return n == v ? this : set(edit, i + 1, n);
+				}
+				if (key.equals(k)) {
+					r.old = v;
+					return value.equals(v) ? this : set(edit, i + 1, value);
+				}
+				final Node n = create(edit, shift + BITS, k, v, hash, key, value);
+				final Node e = set(edit, i, null);
+				e.array[i + 1] = n;
+				return e;
+			}
+			final Object[] a = new Object[array.length + 2];
+			System.arraycopy(array, 0, a, 0, i);
+			a[i] = key;
+			a[i + 1] = value;
+			System.arraycopy(array, i, a, i + 2, array.length - i);
+			if (this.edit == edit) {
+				array = a;
+				bitmap |= bit;
+				return this;
+			}
+			return new BitmapNode(edit, bitmap | bit, a);
+		}
+		
+		@Override
+		@Nullable
+		Node remove(final Object edit, final int shift, final int hash, final Object key, final Result r) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0)
+				return this;
+			final int i = index(bit);
+			final Object k = array[i], v = array[i + 1];
+			if (k == null) {
+				final Node n = ((Node) v).remove(edit, shift + BITS, hash, key, r);
+				if (n == v)
+					return this;
+				if (n != null)
+					return set(edit, i + 1, n);
+			} else if (!key.equals(k)) {
+				return this;
+			} else {
+				r.old = v;
+			}
+			if (bitmap == bit)
+				return null;
+			final Object[] a = new Object[array.length - 2];
+			System.arraycopy(array, 0, a, 0, i);
+			System.arraycopy(array, i + 2, a, i, a.length - i);
+			if (this.edit == edit) {
+				array = a;
+				bitmap ^= bit;
+				return this;
+			}
+			return new BitmapNode(edit, bitmap ^ bit, a);
+		}
+		
+		@Override
+		Node editable(final Object edit) {
+			return this.edit == edit ? this : new BitmapNode(edit, bitmap, array.clone());
+		}
+		
+	}
+	
+	/**
+	 * A node containing keys with the same hash.
+	 */
+	private final static class CollisionNode extends Node {
+		
+		final int hash;
+		
+		CollisionNode(final Object edit, final int hash, final Object[] array) {
+			super(edit, array);
+			this.hash = hash;
+		}
+		
+		private int indexOf(final Object key) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (key.equals(array[i]))
+					return i;
+			}
+			return -1;
+		}
+		
+		@Override
+		@Nullable
+		Object get(final int shift, final int hash, final Object key) {
+			if (hash != this.hash)
+				return null;
+			final int i = indexOf(key);
+			return i == -1 ? null : array[i + 1];
+		}
+		
+		@Override
+		Node put(final Object edit, final int shift, final int hash, final Object key, final Object value, final Result r) {
+			if (hash != this.hash) {
+				// the new key differs from this node's keys at this shift or deeper, thus this node is moved into a new bitmap node
+				return new BitmapNode(edit, 1 << ((this.hash >>> shift) & MASK), new Object[] {null, this}).put(edit, shift, hash, key, value, r);
+			}
+			final int i = indexOf(key);
+			if (i != -1) {
+				final Object v = array[i + 1];
+				r.old = v;
+				return value.equals(v) ? this : set(edit, i + 1, value);
+			}
+			final Object[] a = new Object[array.length + 2];
+			System.arraycopy(array, 0, a, 0, array.length);
+			a[array.length] = key;
+			a[array.length + 1] = value;
+			if (this.edit == edit) {
+				array = a;
+				return this;
+			}
+			return new CollisionNode(edit, hash, a);
+		}
+		
+		@Override
+		@Nullable
+		Node remove(final Object edit, final int shift, final int hash, final Object key, final Result r) {
+			if (hash != this.hash)
+				return this;
+			final int i = indexOf(key);
+			if (i == -1)
+				return this;
+			r.old = array[i + 1];
+			if (array.length == 2)
+				return null;
+			final Object[] a = new Object[array.length - 2];
+			System.arraycopy(array, 0, a, 0, i);
+			System.arraycopy(array, i + 2, a, i, a.length - i);
+			if (this.edit == edit) {
+				array = a;
+				return this;
+			}
+			return new CollisionNode(edit, hash, a);
+		}
+		
+		@Override
+		Node editable(final Object edit) {
+			return this.edit == edit ? this : new CollisionNode(edit, hash, array.clone());
+		}
+		
+	}
+	
+	/**
+	 * Creates a node containing two pairs with different keys.
+	 */
+	private final static Node create(final Object edit, final int shift, final Object k1, final Object v1, final int h2, final Object k2, final Object v2) {
+		final int h1 = hash(k1);
+		if (h1 == h2)
+			return new CollisionNode(edit, h1, new Object[] {k1, v1, k2, v2});
+		final Result r = new Result();
+		return new BitmapNode(edit, 0, EMPTY).put(edit, shift, h1, k1, v1, r).put(edit, shift, h2, k2, v2, r);
+	}
+	
+	/**
+	 * The state shared by a map and its reverse view. Trie 0 maps the keys of the forward map to its values, trie 1 maps them back.
+	 */
+	private final static class State {
+		
+		final Node[] roots;
+		int size;
+		/**
+		 * The token of the nodes owned by this map
+		 */
+		Object edit = new Object();
+		final Result result = new Result();
+		
+		State() {
+			// the empty roots are owned by this map, thus the first pairs are added in place
+			roots = new Node[] {new BitmapNode(edit, 0, EMPTY), new BitmapNode(edit, 0, EMPTY)};
+			size = 0;
+		}
+		
+		State(final Node[] roots, final int size) {
+			this.roots = roots;
+			this.size = size;
+		}
+		
+		@Nullable
+		Object get(final int side, final @Nullable Object key) {
+			return key == null ? null : roots[side].get(0, hash(key), key);
+		}
+		
+		/**
+		 * Maps the key to the value in the given trie only.
+		 * 
+		 * @return The value previously mapped to the key in the given trie
+		 */
+		@Nullable
+		Object put(final int side, final Object key, final Object value) {
+			final Result result = this.result;
+			result.old = null;
+			roots[side] = roots[side].put(edit, 0, hash(key), key, value, result);
+			return result.old;
+		}
+		
+		/**
+		 * Removes the key from the given trie only.
+		 * 
+		 * @return The value previously mapped to the key in the given trie
+		 */
+		@Nullable
+		Object remove(final int side, final Object key) {
+			final Result result = this.result;
+			result.old = null;
+			final Node root = roots[side].remove(edit, 0, hash(key), key, result);
+			roots[side] = root != null ? root : new BitmapNode(edit, 0, EMPTY);
+			return result.old;
+		}
+		
+	}
+	
+	private final State state;
+	/**
+	 * The trie that maps this map's keys to its values
+	 */
+	private final int side;
+	private final PersistentBidiMap<T2, T1> other;
+	
+	public PersistentBidiMap() {
+		this(new State());
+	}
+	
+	public PersistentBidiMap(final Map<? extends T1, ? extends T2> values) {
+		this();
+		putAll(values);
+	}
+	
+	private PersistentBidiMap(final State state) {
+		this.state = state;
+		side = 0;
+		other = new PersistentBidiMap<T2, T1>(this);
+	}
+	
+	private PersistentBidiMap(final PersistentBidiMap<T2, T1> other) {
+		state = other.state;
+		side = 1 - other.side;
+		this.other = other;
+	}
+	
+	@Override
+	public PersistentBidiMap<T2, T1> getReverseView() {
+		return other;
+	}
+	
+	@Override
+	public int size() {
+		return state.size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return state.size == 0;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 get(final @Nullable Object key) {
+		return (T2) state.get(side, key);
+	}
+	
+	@Override
+	@Nullable
+	public T2 getValue(final @Nullable T1 key) {
+		return get(key);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T1 getKey(final @Nullable T2 value) {
+		return (T1) state.get(1 - side, value);
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return state.get(side, key) != null;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		return state.get(1 - side, value) != null;
+	}
+	
+	/**
+	 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+	 * 
+	 * @return The value previously mapped to the given key
+	 * @throws NullPointerException If the key or the value is null
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 put(final @Nullable T1 key, final @Nullable T2 value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in a PersistentBidiMap");
+		final State state = this.state;
+		// the puts return the existing pairs of the key and the value, which are then removed from the other trie
+		final Object old = state.put(side, key, value);
+		if (value.equals(old))
+			return (T2) old;
+		final Object oldKey = state.put(1 - side, value, key);
+		if (old != null) {
+			state.remove(1 - side, old);
+			state.size--;
+		}
+		if (oldKey != null) {
+			state.remove(side, oldKey);
+			state.size--;
+		}
+		state.size++;
+		return (T2) old;
+	}
+	
+	@Override
+	public void putAll(final Map<? extends T1, ? extends T2> m) {
+		for (final Entry<? extends T1, ? extends T2> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 remove(final @Nullable Object key) {
+		if (key == null)
+			return null;
+		final State state = this.state;
+		final Object old = state.remove(side, key);
+		if (old == null)
+			return null;
+		state.remove(1 - side, old);
+		state.size--;
+		return (T2) old;
+	}
+	
+	@Override
+	public void clear() {
+		final State state = this.state;
+		state.roots[0] = new BitmapNode(state.edit, 0, EMPTY);
+		state.roots[1] = new BitmapNode(state.edit, 0, EMPTY);
+		state.size = 0;
+	}
+	
+	/**
+	 * Returns a copy of this map in constant time. The copy shares all nodes with this map until either map is modified. The copy of a reverse view is a normal map from
+	 * this view's keys to its values.
+	 */
+	@Override
+	public PersistentBidiMap<T1, T2> clone() {
+		final State state = this.state;
+		// this map gives up ownership of its nodes, so that neither map can modify them anymore
+		state.edit = new Object();
+		return new PersistentBidiMap<T1, T2>(new State(new Node[] {state.roots[side], state.roots[1 - side]}, state.size));
+	}
+	
+	/**
+	 * Iterates over the pairs of one trie.
+	 */
+	private abstract class TrieIterator<E> implements Iterator<E> {
+		
+		/**
+		 * The path to the current node. Bitmap nodes use 5 bits of the hash each, thus there are at most 7 of them plus a collision node.
+		 */
+		private final Node[] nodes = new Node[8];
+		private final int[] positions = new int[8];
+		private int depth = 0;
+		@Nullable
+		private Object nextKey, nextValue;
+		
+		TrieIterator(final int side) {
+			nodes[0] = state.roots[side];
+			advance();
+		}
+		
+		private void advance() {
+			while (depth >= 0) {
+				final Object[] a = nodes[depth].array;
+				final int p = positions[depth];
+				if (p >= a.length) {
+					depth--;
+					continue;
+				}
+				positions[depth] = p + 2;
+				final Object k = a[p], v = a[p + 1];
+				if (k == null) {
+					depth++;
+					nodes[depth] = (Node) v;
+					positions[depth] = 0;
+					continue;
+				}
+				nextKey = k;
+				nextValue = v;
+				return;
+			}
+			nextKey = null;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return nextKey != null;
+		}
+		
+		@Override
+		public E next() {
+			final Object k = nextKey, v = nextValue;
+			if (k == null || v == null)
+				throw new NoSuchElementException();
+			advance();
+			return get(k, v);
+		}
+		
+		protected abstract E get(Object key, Object value);
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	@Override
+	public Set<Entry<T1, T2>> entrySet() {
+		return new AbstractSet<Entry<T1, T2>>() {
+			@Override
+			public Iterator<Entry<T1, T2>> iterator() {
+				return new TrieIterator<Entry<T1, T2>>(side) {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected Entry<T1, T2> get(final Object key, final Object value) {
+						return new SimpleImmutableEntry<T1, T2>((T1) key, (T2) value);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return state.size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				if (!(o instanceof Entry))
+					return false;
+				final Entry<?, ?> e = (Entry<?, ?>) o;
+				final Object v = state.get(side, e.getKey());
+				return v != null && v.equals(e.getValue());
+			}
+		};
+	}
+	
+	@Override
+	public Set<T1> keySet() {
+		return new AbstractSet<T1>() {
+			@Override
+			public Iterator<T1> iterator() {
+				return new TrieIterator<T1>(side) {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected T1 get(final Object key, final Object value) {
+						return (T1) key;
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return state.size;
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				return containsKey(o);
+			}
+		};
+	}
+	
+	@Override
+	public Set<T2> values() {
+		return valueSet();
+	}
+	
+	@Override
+	public Set<T2> valueSet() {
+		return other.keySet();
+	}
+	
+}
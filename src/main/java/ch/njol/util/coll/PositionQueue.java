@@ -0,0 +1,73 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+/**
+ * A double-ended queue of array positions with a fixed capacity, used by the primitive cyclic lists to find their minimum and maximum. Methods don't check whether the
+ * queue is empty or full.
+ * 
+ * @author Peter Güttinger
+ */
+final class PositionQueue {
+	
+	private final int[] positions;
+	private int head = 0, size = 0;
+	
+	PositionQueue(final int capacity) {
+		positions = new int[capacity];
+	}
+	
+	boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @return The first position, or -1 if this queue is empty
+	 */
+	int first() {
+		return size == 0 ? -1 : positions[head];
+	}
+	
+	int last() {
+		final int i = head + size - 1;
+		return positions[i >= positions.length ? i - positions.length : i];
+	}
+	
+	void removeFirst() {
+		if (++head == positions.length)
+			head = 0;
+		size--;
+	}
+	
+	void removeLast() {
+		size--;
+	}
+	
+	void addLast(final int position) {
+		final int i = head + size;
+		positions[i >= positions.length ? i - positions.length : i] = position;
+		size++;
+	}
+	
+	void clear() {
+		head = size = 0;
+	}
+	
+}
@@ -0,0 +1,589 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A bidirectional hash map which can reference its keys and/or values weakly or softly, e.g. for caches of objects and their handles. If the garbage collector clears a
+ * key or value the whole pair is removed from both directions.
+ * <p>
+ * Cleared pairs are removed when their references are taken from a {@link ReferenceQueue}, which is drained at the start of every operation, thus each cleared pair costs
+ * constant time once. Until then cleared pairs are skipped by lookups and iterators, but still counted by {@link #size()}. {@link #getPurgeCount()} returns how many
+ * pairs have been removed this way.
+ * <p>
+ * Keys and values are compared with {@link Object#equals(Object) equals} like in {@link BidiHashMap}, thus objects used as weak keys or values should not have equal
+ * copies that could be used to look them up after the original has been collected. Putting a pair removes any existing pairs with the same key or value, neither keys nor
+ * values may be null, and the collection views are read-only. The {@link #getReverseView() reverse view} shares its state with this map. This class is not thread-safe.
+ * 
+ * @author Peter Güttinger
+ */
+public final class ReferenceBidiMap<T1, T2> extends AbstractMap<T1, T2> implements BidiMap<T1, T2> {
+	
+	/**
+	 * How a map references its keys or values.
+	 */
+	public static enum Strength {
+		/**
+		 * Objects are referenced normally, i.e. not removed by the garbage collector.
+		 */
+		STRONG,
+		/**
+		 * Objects are referenced by {@link WeakReference}s, i.e. removed as soon as they are not strongly referenced anymore.
+		 */
+		WEAK,
+		/**
+		 * Objects are referenced by {@link SoftReference}s, i.e. removed when they are not strongly referenced anymore and the garbage collector needs memory.
+		 */
+		SOFT;
+	}
+	
+	private final static int hash(final Object o) {
+		final int h = o.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * A pair, which is linked into the hash chains of both sides. Its objects are either the key and value themselves or references to them.
+	 */
+	private final static class Pair {
+		
+		final Object object0, object1;
+		final int hash0, hash1;
+		@Nullable
+		Pair next0, next1;
+		boolean removed = false;
+		
+		Pair(final Object object0, final int hash0, final Object object1, final int hash1) {
+			this.object0 = object0;
+			this.hash0 = hash0;
+			this.object1 = object1;
+			this.hash1 = hash1;
+		}
+		
+		Object object(final int side) {
+			return side == 0 ? object0 : object1;
+		}
+		
+		int hash(final int side) {
+			return side == 0 ? hash0 : hash1;
+		}
+		
+		@Nullable
+		Pair next(final int side) {
+			return side == 0 ? next0 : next1;
+		}
+		
+		void setNext(final int side, final @Nullable Pair next) {
+			if (side == 0)
+				next0 = next;
+			else
+				next1 = next;
+		}
+		
+	}
+	
+	/**
+	 * A reference which knows its pair, so that the pair can be removed when the reference is taken from the queue.
+	 */
+	private static interface PairReference {
+		
+		Pair pair();
+		
+	}
+	
+	private final static class WeakPairReference extends WeakReference<Object> implements PairReference {
+		
+		@Nullable
+		Pair pair;
+		
+		WeakPairReference(final Object o, final ReferenceQueue<Object> queue) {
+			super(o, queue);
+		}
+		
+		@Override
+		@SuppressWarnings("null")
+		public Pair pair() {
+			return pair;
+		}
+		
+	}
+	
+	private final static class SoftPairReference extends SoftReference<Object> implements PairReference {
+		
+		@Nullable
+		Pair pair;
+		
+		SoftPairReference(final Object o, final ReferenceQueue<Object> queue) {
+			super(o, queue);
+		}
+		
+		@Override
+		@SuppressWarnings("null")
+		public Pair pair() {
+			return pair;
+		}
+		
+	}
+	
+	/**
+	 * The state shared by a map and its reverse view. Side 0 contains the keys of the forward map, side 1 its values. Both tables contain all pairs.
+	 */
+	private final static class State {
+		
+		final Strength[] strengths;
+		final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+		final Pair[][] tables = {new Pair[16], new Pair[16]};
+		int size = 0;
+		long purgeCount = 0;
+		
+		State(final Strength keys, final Strength values) {
+			strengths = new Strength[] {keys, values};
+		}
+		
+		/**
+		 * @return The given object, or a new reference to it
+		 */
+		Object reference(final int side, final Object o) {
+			switch (strengths[side]) {
+				case WEAK:
+					return new WeakPairReference(o, queue);
+				case SOFT:
+					return new SoftPairReference(o, queue);
+				default:
+					return o;
+			}
+		}
+		
+		/**
+		 * @return The object of the given side of the pair, or null if it has been cleared
+		 */
+		@Nullable
+		Object get(final Pair p, final int side) {
+			final Object o = p.object(side);
+			return strengths[side] == Strength.STRONG ? o : ((Reference<?>) o).get();
+		}
+		
+		@Nullable
+		Pair find(final int side, final @Nullable Object o) {
+			if (o == null)
+				return null;
+			final int hash = hash(o);
+			final Pair[] table = tables[side];
+			for (Pair p = table[hash & (table.length - 1)]; p != null; p = p.next(side)) {
+				if (p.hash(side) == hash && o.equals(get(p, side)))
+					return p;
+			}
+			return null;
+		}
+		
+		void add(final Object o0, final Object o1) {
+			if (size >= tables[0].length * 3 / 4) {
+				resize(0);
+				resize(1);
+			}
+			final Object r0 = reference(0, o0), r1 = reference(1, o1);
+			final Pair p = new Pair(r0, hash(o0), r1, hash(o1));
+			if (r0 instanceof WeakPairReference)
+				((WeakPairReference) r0).pair = p;
+			else if (r0 instanceof SoftPairReference)
+				((SoftPairReference) r0).pair = p;
+			if (r1 instanceof WeakPairReference)
+				((WeakPairReference) r1).pair = p;
+			else if (r1 instanceof SoftPairReference)
+				((SoftPairReference) r1).pair = p;
+			link(0, p);
+			link(1, p);
+			size++;
+		}
+		
+		private void link(final int side, final Pair p) {
+			final Pair[] table = tables[side];
+			final int i = p.hash(side) & (table.length - 1);
+			p.setNext(side, table[i]);
+			table[i] = p;
+		}
+		
+		private void resize(final int side) {
+			final Pair[] old = tables[side];
+			tables[side] = new Pair[old.length * 2];
+			for (Pair p : old) {
+				while (p != null) {
+					final Pair next = p.next(side);
+					link(side, p);
+					p = next;
+				}
+			}
+		}
+		
+		/**
+		 * Removes the pair from both tables. Its references are cleared, so that they won't be enqueued anymore.
+		 */
+		void remove(final Pair p) {
+			unlink(0, p);
+			unlink(1, p);
+			p.removed = true;
+			if (p.object0 instanceof Reference)
+				((Reference<?>) p.object0).clear();
+			if (p.object1 instanceof Reference)
+				((Reference<?>) p.object1).clear();
+			size--;
+		}
+		
+		private void unlink(final int side, final Pair p) {
+			final Pair[] table = tables[side];
+			final int i = p.hash(side) & (table.length - 1);
+			Pair prev = null;
+			for (Pair q = table[i]; q != null; prev = q, q = q.next(side)) {
+				if (q == p) {
+					if (prev == null)
+						table[i] = p.next(side);
+					else
+						prev.setNext(side, p.next(side));
+					return;
+				}
+			}
+		}
+		
+		/**
+		 * Removes all pairs whose references have been enqueued.
+		 * 
+		 * @return The number of removed pairs
+		 */
+		int expunge() {
+			int n = 0;
+			Reference<?> r;
+			while ((r = queue.poll()) != null) {
+				final Pair p = ((PairReference) r).pair();
+				// a pair may be enqueued twice if both its key and value are cleared, and removed pairs may have been enqueued before they were removed
+				if (!p.removed) {
+					remove(p);
+					n++;
+				}
+			}
+			purgeCount += n;
+			return n;
+		}
+		
+	}
+	
+	private final State state;
+	private final int keySide;
+	private final ReferenceBidiMap<T2, T1> other;
+	
+	/**
+	 * @param keys How this map references its keys
+	 * @param values How this map references its values
+	 */
+	public ReferenceBidiMap(final Strength keys, final Strength values) {
+		state = new State(keys, values);
+		keySide = 0;
+		other = new ReferenceBidiMap<T2, T1>(this);
+	}
+	
+	private ReferenceBidiMap(final ReferenceBidiMap<T2, T1> other) {
+		state = other.state;
+		keySide = 1 - other.keySide;
+		this.other = other;
+	}
+	
+	@Override
+	public ReferenceBidiMap<T2, T1> getReverseView() {
+		return other;
+	}
+	
+	/**
+	 * Removes all pairs whose key or value has been cleared by the garbage collector and is already known to be cleared. Every method of this map calls this method, thus it
+	 * is only useful to free memory of a map which is not used for some time.
+	 * 
+	 * @return The number of removed pairs
+	 */
+	public int purge() {
+		return state.expunge();
+	}
+	
+	/**
+	 * @return The total number of pairs removed from this map because their key or value has been cleared by the garbage collector
+	 */
+	public long getPurgeCount() {
+		return state.purgeCount;
+	}
+	
+	/**
+	 * @return The number of pairs in this map, which may include pairs whose key or value has just been cleared
+	 */
+	@Override
+	public int size() {
+		state.expunge();
+		return state.size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	@Override
+	public boolean containsKey(final @Nullable Object key) {
+		return get(key) != null;
+	}
+	
+	@Override
+	public boolean containsValue(final @Nullable Object value) {
+		return other.get(value) != null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 get(final @Nullable Object key) {
+		final State state = this.state;
+		state.expunge();
+		final Pair p = state.find(keySide, key);
+		return p == null ? null : (T2) state.get(p, 1 - keySide);
+	}
+	
+	@Override
+	@Nullable
+	public T2 getValue(final @Nullable T1 key) {
+		return get(key);
+	}
+	
+	@Override
+	@Nullable
+	public T1 getKey(final @Nullable T2 value) {
+		return other.get(value);
+	}
+	
+	/**
+	 * Maps the given key to the given value. Any existing pairs containing the key or the value are removed.
+	 * 
+	 * @return The value previously mapped to the given key
+	 * @throws NullPointerException If the key or the value is null
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 put(final @Nullable T1 key, final @Nullable T2 value) {
+		if (key == null || value == null)
+			throw new NullPointerException("Can't store null in a ReferenceBidiMap");
+		final State state = this.state;
+		state.expunge();
+		final Pair p = state.find(keySide, key);
+		final Object old = p == null ? null : state.get(p, 1 - keySide);
+		if (p != null) {
+			if (value.equals(old))
+				return (T2) old;
+			state.remove(p);
+			// the value may have been cleared without the pair having been enqueued yet
+			if (old == null)
+				state.purgeCount++;
+		}
+		final Pair q = state.find(1 - keySide, value);
+		if (q != null) {
+			if (state.get(q, keySide) == null)
+				state.purgeCount++;
+			state.remove(q);
+		}
+		if (keySide == 0)
+			state.add(key, value);
+		else
+			state.add(value, key);
+		return (T2) old;
+	}
+	
+	@Override
+	public void putAll(final Map<? extends T1, ? extends T2> m) {
+		for (final Entry<? extends T1, ? extends T2> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public T2 remove(final @Nullable Object key) {
+		final State state = this.state;
+		state.expunge();
+		final Pair p = state.find(keySide, key);
+		if (p == null)
+			return null;
+		final Object old = state.get(p, 1 - keySide);
+		state.remove(p);
+		if (old == null)
+			state.purgeCount++;
+		return (T2) old;
+	}
+	
+	@Override
+	public void clear() {
+		final State state = this.state;
+		state.expunge();
+		for (Pair p : state.tables[0]) {
+			while (p != null) {
+				final Pair next = p.next(0);
+				state.remove(p);
+				p = next;
+			}
+		}
+		assert state.size == 0;
+	}
+	
+	/**
+	 * Iterates over the pairs whose key and value have not been cleared. The key and value of the next pair are referenced strongly so that they cannot be cleared between
+	 * {@link #hasNext()} and {@link #next()}.
+	 */
+	private abstract class PairIterator<E> implements Iterator<E> {
+		
+		private final Pair[] table = state.tables[keySide];
+		private int bucket = 0;
+		@Nullable
+		private Pair pair = null;
+		@Nullable
+		private Object nextKey, nextValue;
+		
+		public PairIterator() {
+			state.expunge();
+			advance();
+		}
+		
+		private void advance() {
+			final State state = ReferenceBidiMap.this.state;
+			Pair p = pair == null ? null : pair.next(keySide);
+			while (true) {
+				while (p == null) {
+					if (bucket == table.length) {
+						pair = null;
+						nextKey = nextValue = null;
+						return;
+					}
+					p = table[bucket++];
+				}
+				final Object k = state.get(p, keySide), v = state.get(p, 1 - keySide);
+				if (k != null && v != null) {
+					pair = p;
+					nextKey = k;
+					nextValue = v;
+					return;
+				}
+				p = p.next(keySide);
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return nextKey != null;
+		}
+		
+		@Override
+		public E next() {
+			final Object k = nextKey, v = nextValue;
+			if (k == null || v == null)
+				throw new NoSuchElementException();
+			advance();
+			return get(k, v);
+		}
+		
+		protected abstract E get(Object key, Object value);
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+	@Override
+	public Set<Entry<T1, T2>> entrySet() {
+		return new AbstractSet<Entry<T1, T2>>() {
+			@Override
+			public Iterator<Entry<T1, T2>> iterator() {
+				return new PairIterator<Entry<T1, T2>>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected Entry<T1, T2> get(final Object key, final Object value) {
+						return new SimpleImmutableEntry<T1, T2>((T1) key, (T2) value);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return ReferenceBidiMap.this.size();
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				if (!(o instanceof Entry))
+					return false;
+				final Entry<?, ?> e = (Entry<?, ?>) o;
+				final Object v = get(e.getKey());
+				return v != null && v.equals(e.getValue());
+			}
+		};
+	}
+	
+	@Override
+	public Set<T1> keySet() {
+		return new AbstractSet<T1>() {
+			@Override
+			public Iterator<T1> iterator() {
+				return new PairIterator<T1>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					protected T1 get(final Object key, final Object value) {
+						return (T1) key;
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return ReferenceBidiMap.this.size();
+			}
+			
+			@Override
+			public boolean contains(final @Nullable Object o) {
+				return containsKey(o);
+			}
+		};
+	}
+	
+	@Override
+	public Set<T2> values() {
+		return valueSet();
+	}
+	
+	@Override
+	public Set<T2> valueSet() {
+		return other.keySet();
+	}
+	
+}
@@ -0,0 +1,37 @@
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ * 
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ * 
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * 
+ * Copyright 2011-2014 Peter Güttinger
+ * 
+ */
+
+package ch.njol.util.coll.iterator;
+
+import java.util.Iterator;
+
+/**
+ * An iterator over primitive ints. {@link #next()} boxes the returned value, thus {@link #nextInt()} should be used wherever possible.
+ * 
+ * @author Peter Güttinger
+ */
+public interface IntIterator extends Iterator<Integer> {
+	
+	/**
+	 * @return The next element without boxing it
+	 * @throws java.util.NoSuchElementException If there are no more elements
+	 */
+	public int nextInt();
+	
+}
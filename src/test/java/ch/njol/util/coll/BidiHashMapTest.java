@@ -0,0 +1,88 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BidiHashMapTest {
+	
+	/**
+	 * Compares random operations on the given empty map with two plain hash maps.
+	 */
+	static void testRandomOperations(final BidiMap<Integer, Integer> map, final Random rand, final int range) {
+		final Map<Integer, Integer> forward = new HashMap<Integer, Integer>(), backward = new HashMap<Integer, Integer>();
+		final BidiMap<Integer, Integer> reverse = map.getReverseView();
+		for (int i = 0; i < 100000; i++) {
+			final int k = rand.nextInt(range), v = rand.nextInt(range);
+			switch (rand.nextInt(5)) {
+				case 0:
+				case 1:
+					final Integer oldValue = forward.remove(k);
+					if (oldValue != null)
+						backward.remove(oldValue);
+					final Integer oldKey = backward.remove(v);
+					if (oldKey != null)
+						forward.remove(oldKey);
+					forward.put(k, v);
+					backward.put(v, k);
+					assertEquals(oldValue, map.put(k, v));
+					break;
+				case 2:
+					final Integer removed = forward.remove(k);
+					if (removed != null)
+						backward.remove(removed);
+					assertEquals(removed, map.remove(k));
+					break;
+				case 3:
+					final Integer removedKey = backward.remove(v);
+					if (removedKey != null)
+						forward.remove(removedKey);
+					assertEquals(removedKey, reverse.remove(v));
+					break;
+				default:
+					assertEquals(forward.get(k), map.getValue(k));
+					assertEquals(backward.get(v), map.getKey(v));
+					assertEquals(forward.containsKey(k), map.containsKey(k));
+					assertEquals(backward.containsKey(v), map.containsValue(v));
+			}
+			assertEquals(forward.size(), map.size());
+			assertEquals(backward.size(), reverse.size());
+		}
+		assertEquals(forward, map);
+		assertEquals(backward, reverse);
+		assertEquals(forward.keySet(), map.keySet());
+		assertEquals(backward.keySet(), map.valueSet());
+		assertEquals(forward.entrySet(), map.entrySet());
+		assertEquals(forward.hashCode(), map.hashCode());
+	}
+	
+	@Test
+	public void test() {
+		
+		testRandomOperations(new BidiHashMap<Integer, Integer>(), new Random(1), 20);
+		testRandomOperations(new BidiHashMap<Integer, Integer>(), new Random(2), 5000);
+		
+		final BidiHashMap<String, Integer> map = new BidiHashMap<String, Integer>();
+		map.put("a", 1);
+		map.put("b", 2);
+		assertEquals(1, map.put("a", 3).intValue());
+		assertNull(map.put("c", 2));
+		assertEquals("c", map.getKey(2));
+		assertFalse(map.containsKey("b"));
+		assertEquals(2, map.size());
+		assertEquals(map, map.clone());
+		assertEquals(map, map.freeze());
+		assertEquals(map.getReverseView(), map.freeze().getReverseView());
+		
+		try {
+			map.put(null, 1);
+			fail();
+		} catch (final NullPointerException e) {}
+		
+	}
+	
+}
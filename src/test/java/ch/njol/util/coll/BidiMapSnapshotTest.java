@@ -0,0 +1,137 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ch.njol.util.coll.BidiMapSnapshot.Codec;
+
+public class BidiMapSnapshotTest {
+	
+	private static <T1, T2> byte[] write(final BidiMap<T1, T2> map, final Codec<T1> keyCodec, final Codec<T2> valueCodec, final boolean index) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BidiMapSnapshot.write(map, Channels.newChannel(out), keyCodec, valueCodec, index);
+		return out.toByteArray();
+	}
+	
+	private static <T1, T2> MappedBidiMap<T1, T2> map(final byte[] snapshot, final Codec<T1> keyCodec, final Codec<T2> valueCodec) throws IOException {
+		final File file = File.createTempFile("snapshot", ".bin");
+		try {
+			final FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(snapshot);
+			} finally {
+				out.close();
+			}
+			final RandomAccessFile in = new RandomAccessFile(file, "r");
+			try {
+				return BidiMapSnapshot.map(in.getChannel(), keyCodec, valueCodec);
+			} finally {
+				in.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+	
+	private static <T1, T2> void testRoundTrip(final BidiMap<T1, T2> map, final Codec<T1> keyCodec, final Codec<T2> valueCodec) throws IOException {
+		for (final boolean index : new boolean[] {false, true}) {
+			final byte[] snapshot = write(map, keyCodec, valueCodec, index);
+			assertEquals(map, BidiMapSnapshot.read(Channels.newChannel(new ByteArrayInputStream(snapshot)), keyCodec, valueCodec));
+			
+			final MappedBidiMap<T1, T2> mapped = map(snapshot, keyCodec, valueCodec);
+			assertEquals(map.size(), mapped.size());
+			assertEquals(map, mapped);
+			assertEquals(map.getReverseView(), mapped.getReverseView());
+			for (final T1 key : map.keySet()) {
+				final T2 value = map.get(key);
+				assertEquals(value, mapped.get(key));
+				assertEquals(key, mapped.getKey(value));
+				assertEquals(key, mapped.getReverseView().get(value));
+			}
+			assertEquals(map, mapped.hydrate());
+			assertEquals(map.getReverseView(), mapped.getReverseView().hydrate());
+		}
+	}
+	
+	@Test
+	public void test() throws IOException {
+		
+		// strings have a varint length prefix, including long ones with multi-byte prefixes, while integers and longs are stored without one
+		final BidiHashMap<String, Integer> strings = new BidiHashMap<String, Integer>();
+		for (int i = 0; i < 1000; i++)
+			strings.put("entity:" + i + (i % 100 == 0 ? new String(new char[20000]).replace('\0', 'ä') : ""), i * 31);
+		final BidiHashMap<Long, String> longs = new BidiHashMap<Long, String>();
+		for (int i = 0; i < 1000; i++)
+			longs.put((long) i << 40, "" + i);
+		final BidiHashMap<Integer, Long> numbers = new BidiHashMap<Integer, Long>();
+		for (int i = 0; i < 1000; i++)
+			numbers.put(-i, (long) i * i);
+		
+		for (final int size : new int[] {0, 1, 7, 1000}) {
+			final BidiHashMap<String, Integer> s = new BidiHashMap<String, Integer>();
+			for (final String key : strings.keySet()) {
+				if (s.size() == size)
+					break;
+				s.put(key, strings.get(key));
+			}
+			testRoundTrip(s, BidiMapSnapshot.STRING, BidiMapSnapshot.INTEGER);
+		}
+		testRoundTrip(longs, BidiMapSnapshot.LONG, BidiMapSnapshot.STRING);
+		testRoundTrip(numbers, BidiMapSnapshot.INTEGER, BidiMapSnapshot.LONG);
+		
+		final MappedBidiMap<String, Integer> mapped = map(write(strings, BidiMapSnapshot.STRING, BidiMapSnapshot.INTEGER, false), BidiMapSnapshot.STRING,
+				BidiMapSnapshot.INTEGER);
+		assertNull(mapped.get("entity:-1"));
+		assertNull(mapped.getKey(-1));
+		assertNull(mapped.get(new Object()));
+		
+	}
+	
+	@Test
+	public void testCorrupt() throws IOException {
+		
+		final BidiHashMap<String, Integer> map = new BidiHashMap<String, Integer>();
+		for (int i = 0; i < 100; i++)
+			map.put("x" + i, i);
+		for (final boolean index : new boolean[] {false, true}) {
+			final byte[] snapshot = write(map, BidiMapSnapshot.STRING, BidiMapSnapshot.INTEGER, index);
+			// truncated in the header, in the pairs, and by a single byte (in the index if there is one)
+			for (final int length : new int[] {10, 30, snapshot.length / 2, snapshot.length - 1}) {
+				final byte[] truncated = Arrays.copyOf(snapshot, length);
+				try {
+					map(truncated, BidiMapSnapshot.STRING, BidiMapSnapshot.INTEGER);
+					fail();
+				} catch (final EOFException e) {}
+				try {
+					BidiMapSnapshot.read(Channels.newChannel(new ByteArrayInputStream(truncated)), BidiMapSnapshot.STRING, BidiMapSnapshot.INTEGER);
+					fail();
+				} catch (final EOFException e) {}
+			}
+			
+			// fixed-length codecs must match the snapshot
+			try {
+				map(snapshot, BidiMapSnapshot.STRING, BidiMapSnapshot.LONG);
+				fail();
+			} catch (final IOException e) {}
+			final byte[] wrongMagic = snapshot.clone();
+			wrongMagic[0]++;
+			try {
+				map(wrongMagic, BidiMapSnapshot.STRING, BidiMapSnapshot.INTEGER);
+				fail();
+			} catch (final IOException e) {}
+		}
+		
+	}
+	
+}
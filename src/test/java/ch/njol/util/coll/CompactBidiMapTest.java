@@ -0,0 +1,62 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompactBidiMapTest {
+	
+	@Test
+	public void test() throws Exception {
+		
+		// small maps are searched linearly, larger ones have indices with removed slots
+		for (final int range : new int[] {6, 20, 5000}) {
+			final CompactBidiMap<Integer, Integer> map = new CompactBidiMap<Integer, Integer>();
+			BidiHashMapTest.testRandomOperations(map, new Random(range), range);
+			assertEquals(map, map.clone());
+			assertEquals(map.getReverseView(), map.getReverseView().clone());
+			assertEquals(map, map.freeze());
+			
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new ObjectOutputStream(out).writeObject(map);
+			assertEquals(map, new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject());
+		}
+		
+		// removing pairs and replacing keys or values keeps the insertion order
+		final CompactBidiMap<Integer, String> map = new CompactBidiMap<Integer, String>();
+		final List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			map.put(i, "" + i);
+			expected.add(i);
+		}
+		for (int i = 0; i < 100; i += 3) {
+			map.remove(i);
+			expected.remove((Integer) i);
+		}
+		map.put(1, "x");
+		map.getReverseView().put("2", 1000);
+		expected.set(expected.indexOf(2), 1000);
+		map.put(1000, "4");
+		expected.remove((Integer) 4);
+		assertEquals(expected, new ArrayList<Integer>(map.keySet()));
+		assertEquals("x", map.get(1));
+		assertEquals(1000, map.getKey("4").intValue());
+		
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.keySet().iterator().hasNext());
+		map.put(1, "1");
+		assertEquals(Arrays.asList(1), new ArrayList<Integer>(map.keySet()));
+		
+	}
+	
+}
@@ -0,0 +1,163 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.Test;
+
+import ch.njol.util.Callback;
+
+public class ConcurrentBidiMapTest {
+	
+	private final static int KEYS = 64, OPERATIONS = 300000;
+	
+	/**
+	 * The number of operations the writer has started or completed. Operation n maps the key n % KEYS to the value n, which replaces the value n - KEYS.
+	 */
+	volatile int started = 0, completed = 0;
+	
+	/**
+	 * @return The value of the key after the given number of operations, or -1 if the key is not mapped yet
+	 */
+	private static int value(final int key, final int operations) {
+		if (operations <= key)
+			return -1;
+		return key + (operations - 1 - key) / KEYS * KEYS;
+	}
+	
+	private static void runAll(final List<Thread> threads) throws InterruptedException {
+		for (final Thread t : threads)
+			t.start();
+		for (final Thread t : threads)
+			t.join();
+	}
+	
+	/**
+	 * Checks that every read returns the value of some state of the map between the writer's operations that were completed before the read started and the ones that
+	 * were started before it ended.
+	 */
+	@Test
+	public void testReads() throws InterruptedException {
+		
+		final ConcurrentBidiMap<Integer, Integer> map = new ConcurrentBidiMap<Integer, Integer>();
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		final List<Thread> threads = new ArrayList<Thread>();
+		threads.add(new Thread() {
+			@Override
+			public void run() {
+				for (int n = 0; n < OPERATIONS; n++) {
+					started = n + 1;
+					map.put(n % KEYS, n);
+					completed = n + 1;
+				}
+			}
+		});
+		for (int r = 0; r < 3; r++) {
+			final Random rand = new Random(r);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (completed < OPERATIONS) {
+							final int key = rand.nextInt(KEYS);
+							int a = completed;
+							final Integer v = map.get(key);
+							int b = started;
+							if (v == null) {
+								assertEquals(-1, value(key, a));
+							} else {
+								assertEquals(key, v % KEYS);
+								assertTrue(value(key, a) <= v && v <= value(key, b));
+							}
+							
+							final int x = Math.max(0, a - rand.nextInt(2 * KEYS));
+							a = completed;
+							final Integer k = map.getReverseView().get(x);
+							b = started;
+							if (k == null)
+								assertTrue(a <= x || b > x + KEYS);
+							else
+								assertTrue(k == x % KEYS && b > x && a <= x + KEYS);
+						}
+					} catch (final Throwable t) {
+						synchronized (errors) {
+							errors.add(t);
+						}
+					}
+				}
+			});
+		}
+		runAll(threads);
+		
+		synchronized (errors) {
+			if (!errors.isEmpty())
+				throw new AssertionError(errors.get(0));
+		}
+		assertEquals(KEYS, map.size());
+		for (int key = 0; key < KEYS; key++)
+			assertEquals(key, map.getKey(map.get(key)).intValue());
+		
+	}
+	
+	/**
+	 * Checks that putIfAbsent and getOrCompute map each key only once if many threads try to map the same keys.
+	 */
+	@Test
+	public void testAtomicPuts() throws InterruptedException {
+		
+		final int keys = 1000, threadCount = 8;
+		final ConcurrentBidiMap<Integer, Integer> map = new ConcurrentBidiMap<Integer, Integer>();
+		final AtomicIntegerArray puts = new AtomicIntegerArray(keys);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < threadCount; t++) {
+			final int thread = t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+					for (int key = 0; key < keys; key++) {
+						final int value = thread * keys + key;
+						if (thread % 2 == 0) {
+							if (map.putIfAbsent(key, value) == null)
+								puts.incrementAndGet(key);
+						} else {
+							map.getOrCompute(key, new Callback<Integer, Integer>() {
+								@Override
+								@Nullable
+								public Integer run(final Integer k) {
+									puts.incrementAndGet(k);
+									return value;
+								}
+							});
+						}
+					}
+				}
+			});
+		}
+		for (final Thread t : threads)
+			t.start();
+		start.countDown();
+		for (final Thread t : threads)
+			t.join();
+		
+		assertEquals(keys, map.size());
+		for (int key = 0; key < keys; key++) {
+			assertEquals(1, puts.get(key));
+			assertEquals(key, map.get(key) % keys);
+			assertEquals(key, map.getKey(map.get(key)).intValue());
+		}
+		
+	}
+	
+}
@@ -0,0 +1,124 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrentCyclicBufferTest {
+	
+	@Test
+	public void test() {
+		
+		final ConcurrentCyclicBuffer<Integer> buffer = new ConcurrentCyclicBuffer<Integer>(5);
+		assertTrue(buffer.isEmpty());
+		assertEquals(0, buffer.toArray().length);
+		buffer.add(0);
+		buffer.add(null);
+		buffer.add(2);
+		assertEquals(3, buffer.size());
+		assertArrayEquals(new Object[] {0, null, 2}, buffer.toArray());
+		
+		// overwriting wraps around the slots, and snapshots stay in the order of adding
+		for (int i = 3; i < 13; i++)
+			buffer.add(i);
+		assertEquals(5, buffer.size());
+		assertEquals(13, buffer.getAddCount());
+		assertArrayEquals(new Object[] {8, 9, 10, 11, 12}, buffer.toArray());
+		assertEquals(Arrays.asList(8, 9, 10, 11, 12), new ArrayList<Integer>(buffer));
+		final Integer[] array = new Integer[7];
+		Arrays.fill(array, -1);
+		assertSame(array, buffer.toArray(array));
+		assertArrayEquals(new Integer[] {8, 9, 10, 11, 12, null, -1}, array);
+		assertArrayEquals(new Integer[] {8, 9, 10, 11, 12}, buffer.toArray(new Integer[0]));
+		
+	}
+	
+	private final static int PRODUCERS = 4, ELEMENTS = 200000;
+	
+	/**
+	 * Checks that a snapshot contains no duplicates and the elements of each producer in the order they were added.
+	 */
+	private static void check(final Object[] snapshot, final int capacity) {
+		assertTrue(snapshot.length <= capacity);
+		final int[] last = new int[PRODUCERS];
+		Arrays.fill(last, -1);
+		final Set<Object> seen = new HashSet<Object>();
+		for (final Object o : snapshot) {
+			assertTrue(seen.add(o));
+			final int e = (Integer) o, producer = e / ELEMENTS, i = e % ELEMENTS;
+			assertTrue(i > last[producer]);
+			last[producer] = i;
+		}
+	}
+	
+	@Test
+	public void testConcurrent() throws InterruptedException {
+		
+		final int capacity = 1000;
+		final ConcurrentCyclicBuffer<Integer> buffer = new ConcurrentCyclicBuffer<Integer>(capacity);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> producers = new ArrayList<Thread>();
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int producer = p;
+			final Thread t = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < ELEMENTS; i++)
+						buffer.add(producer * ELEMENTS + i);
+				}
+			};
+			producers.add(t);
+			t.start();
+		}
+		
+		final AtomicBoolean stop = new AtomicBoolean();
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		final int[] snapshots = {0};
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while (!stop.get()) {
+						check(buffer.toArray(), capacity);
+						snapshots[0]++;
+					}
+				} catch (final Throwable t) {
+					synchronized (errors) {
+						errors.add(t);
+					}
+				}
+			}
+		};
+		reader.start();
+		start.countDown();
+		for (final Thread t : producers)
+			t.join();
+		stop.set(true);
+		reader.join();
+		
+		synchronized (errors) {
+			if (!errors.isEmpty())
+				throw new AssertionError(errors.get(0));
+		}
+		assertTrue(snapshots[0] > 0);
+		assertEquals((long) PRODUCERS * ELEMENTS, buffer.getAddCount());
+		final Object[] snapshot = buffer.toArray();
+		assertEquals(capacity, snapshot.length);
+		check(snapshot, capacity);
+		
+	}
+	
+}
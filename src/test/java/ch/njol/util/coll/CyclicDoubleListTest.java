@@ -0,0 +1,50 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CyclicDoubleListTest {
+	
+	/**
+	 * Calculates the variance of the given values with the two-pass algorithm.
+	 */
+	static double variance(final double[] values) {
+		double mean = 0;
+		for (final double v : values)
+			mean += v / values.length;
+		double m2 = 0;
+		for (final double v : values)
+			m2 += (v - mean) * (v - mean);
+		return m2 / values.length;
+	}
+	
+	@Test
+	public void test() {
+		
+		// a large outlier causes cancellation when it leaves the window, which is fixed once the whole window has been replaced
+		final Random rand = new Random(1);
+		final CyclicDoubleList list = new CyclicDoubleList(100);
+		list.add(5e10);
+		for (int i = 0; i < 1000; i++) {
+			list.add(1 + rand.nextGaussian() / 10);
+			if (i >= 2 * list.capacity()) {
+				final double[] values = list.toDoubleArray();
+				assertEquals(variance(values), list.variance(), 1e-12);
+			}
+		}
+		assertEquals(1, list.mean(), 0.05);
+		
+		for (final double illegal : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+			try {
+				list.add(illegal);
+				fail();
+			} catch (final IllegalArgumentException e) {}
+		}
+		assertEquals(100, list.size());
+		
+	}
+	
+}
@@ -0,0 +1,44 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CyclicIntListTest {
+	
+	@Test
+	public void test() {
+		
+		// the statistics are exact even if the extremes of int leave the window
+		final CyclicIntList list = new CyclicIntList(2);
+		list.addAll(new int[] {Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 1});
+		assertEquals(0.25, list.variance(), 0);
+		assertEquals(0.5, list.mean(), 0);
+		assertEquals(1, list.sum());
+		list.add(Integer.MIN_VALUE);
+		assertEquals(Math.pow(1L - Integer.MIN_VALUE, 2) / 4, list.variance(), 0);
+		
+		// the sum of squares of many large elements exceeds a long
+		final Random rand = new Random(1);
+		final CyclicIntList large = new CyclicIntList(1000);
+		for (int i = 0; i < 10000; i++)
+			large.add(rand.nextBoolean() ? Integer.MIN_VALUE + rand.nextInt(2) : Integer.MAX_VALUE - rand.nextInt(2));
+		final int[] values = large.toIntArray();
+		final double[] doubles = new double[values.length];
+		long sum = 0;
+		for (int i = 0; i < values.length; i++) {
+			doubles[i] = values[i];
+			sum += values[i];
+		}
+		assertEquals(sum, large.sum());
+		final double variance = CyclicDoubleListTest.variance(doubles);
+		assertEquals(variance, large.variance(), variance * 1e-12);
+		large.clear();
+		large.add(-5);
+		assertEquals(0, large.variance(), 0);
+		
+	}
+	
+}
@@ -0,0 +1,106 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CyclicListTest {
+	
+	/**
+	 * Compares random operations on a cyclic list with a linked list of the same size.
+	 */
+	@Test
+	public void test() {
+		
+		final Random rand = new Random(1);
+		for (final int size : new int[] {1, 2, 7, 64}) {
+			final CyclicList<Integer> list = new CyclicList<Integer>(new Integer[size]);
+			final LinkedList<Integer> expected = new LinkedList<Integer>(Arrays.asList(new Integer[size]));
+			int next = 0;
+			for (int i = 0; i < 5000; i++) {
+				switch (rand.nextInt(5)) {
+					case 0:
+						list.addFirst(next);
+						expected.removeLast();
+						expected.addFirst(next++);
+						break;
+					case 1:
+						list.addLast(next);
+						expected.removeFirst();
+						expected.addLast(next++);
+						break;
+					case 2:
+						// ranges may be longer than the list, and start and end anywhere in the array
+						final int length = rand.nextInt(3 * size + 1), offset = rand.nextInt(3);
+						final Integer[] array = new Integer[offset + length + rand.nextInt(3)];
+						for (int j = 0; j < array.length; j++)
+							array[j] = next++;
+						list.addAll(array, offset, length);
+						for (int j = offset; j < offset + length; j++) {
+							expected.removeFirst();
+							expected.addLast(array[j]);
+						}
+						break;
+					case 3:
+						final int index = rand.nextInt(size);
+						assertEquals(expected.set(index, next), list.set(index, next));
+						next++;
+						break;
+					default:
+						final int from = rand.nextInt(size + 1), to = from + rand.nextInt(size - from + 1);
+						final Object[] copy = new Object[to - from + 1];
+						list.copyRange(from, copy, 1, to - from);
+						assertEquals(expected.subList(from, to), Arrays.asList(copy).subList(1, copy.length));
+				}
+				assertEquals(expected, list);
+				assertEquals(expected, new ArrayList<Integer>(list));
+				assertArrayEquals(expected.toArray(), list.toArray());
+				final List<Integer> segments = new ArrayList<Integer>(list.firstSegment());
+				segments.addAll(list.secondSegment());
+				assertEquals(expected, segments);
+				
+				// present elements and misses, including null if the list has been filled completely
+				for (final Integer e : new Integer[] {expected.get(rand.nextInt(size)), next, -1, null}) {
+					assertEquals(expected.indexOf(e), list.indexOf(e));
+					assertEquals(expected.lastIndexOf(e), list.lastIndexOf(e));
+				}
+			}
+			
+			final List<Integer> drained = new ArrayList<Integer>();
+			assertEquals(size, list.drainTo(drained));
+			assertEquals(expected, drained);
+			assertEquals(Arrays.asList(new Integer[size]), list);
+		}
+		
+	}
+	
+	@Test
+	public void testIndexOf() {
+		
+		final CyclicList<String> list = new CyclicList<String>(new String[] {"a", "b", "c", "d"});
+		list.addLast("e");
+		list.addLast("a");
+		assertEquals(Arrays.asList("c", "d", "e", "a"), list);
+		assertEquals(3, list.indexOf("a"));
+		assertEquals(3, list.lastIndexOf("a"));
+		assertEquals(0, list.indexOf("c"));
+		assertEquals(-1, list.indexOf("b"));
+		assertEquals(-1, list.lastIndexOf("b"));
+		assertEquals(-1, list.indexOf(null));
+		
+		// more elements than the list holds only keep the last ones
+		list.addAll(new String[] {"1", "2", "3", "4", "5", "6"}, 1, 5);
+		assertEquals(Arrays.asList("3", "4", "5", "6"), list);
+		final Object[] drained = new Object[6];
+		list.drainTo(drained, 1);
+		assertArrayEquals(new Object[] {null, "3", "4", "5", "6", null}, drained);
+		
+	}
+	
+}
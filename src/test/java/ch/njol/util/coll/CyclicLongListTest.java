@@ -0,0 +1,21 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CyclicLongListTest {
+	
+	@Test
+	public void test() {
+		
+		final CyclicLongList list = new CyclicLongList(10);
+		list.add(1L << 60);
+		for (int i = 0; i < 30; i++)
+			list.add(i % 2);
+		assertEquals(0.25, list.variance(), 1e-12);
+		assertEquals(0.5, list.mean(), 0);
+		
+	}
+	
+}
@@ -0,0 +1,54 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+public class EnumBidiMapTest {
+	
+	private static enum Digit {
+		ZERO, ONE, TWO, THREE, FOUR, FIVE, SIX, SEVEN, EIGHT, NINE;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <E extends Enum<E>> EnumBidiMap<E, String> copy(final EnumBidiMap<E, String> map) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ObjectOutputStream(out).writeObject(map);
+		return (EnumBidiMap<E, String>) new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject();
+	}
+	
+	@Test
+	public void test() throws Exception {
+		
+		// Digit has more constants than the hash threshold, Thread.State doesn't
+		assertTrue(Digit.values().length > ArrayMap.HASH_THRESHOLD);
+		final EnumBidiMap<Digit, String> digits = new EnumBidiMap<Digit, String>(Digit.class);
+		for (final Digit d : Digit.values())
+			digits.put(d, d.name().toLowerCase());
+		digits.remove(Digit.FIVE);
+		digits.put(Digit.SEVEN, "digit");
+		final EnumBidiMap<Digit, String> digitsCopy = copy(digits);
+		assertEquals(digits, digitsCopy);
+		assertEquals(digits.getReverseView(), digitsCopy.getReverseView());
+		assertEquals(Digit.SEVEN, digitsCopy.getKey("digit"));
+		assertNull(digitsCopy.getKey("five"));
+		assertNull(digitsCopy.getKey("seven"));
+		
+		final EnumBidiMap<Thread.State, String> states = new EnumBidiMap<Thread.State, String>(Thread.State.class);
+		states.put(Thread.State.NEW, "new");
+		states.put(Thread.State.BLOCKED, "new");
+		final EnumBidiMap<Thread.State, String> statesCopy = copy(states);
+		assertEquals(1, statesCopy.size());
+		assertEquals(Thread.State.BLOCKED, statesCopy.getKey("new"));
+		statesCopy.put(Thread.State.NEW, "old");
+		assertEquals(2, statesCopy.size());
+		assertEquals(states, copy(new EnumBidiMap<Thread.State, String>(Thread.State.class, states)));
+		
+	}
+	
+}
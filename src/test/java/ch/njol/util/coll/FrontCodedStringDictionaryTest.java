@@ -0,0 +1,60 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class FrontCodedStringDictionaryTest {
+	
+	@Test
+	public void test() {
+		
+		final Random rand = new Random(42);
+		final TreeSet<String> set = new TreeSet<String>();
+		while (set.size() < 1000) {
+			final StringBuilder b = new StringBuilder("key");
+			for (int i = rand.nextInt(8); i >= 0; i--)
+				b.append((char) ('a' + rand.nextInt(4)));
+			if (rand.nextInt(10) == 0)
+				b.append('ä');
+			set.add(b.toString());
+		}
+		final String[] strings = set.toArray(new String[set.size()]);
+		
+		for (final int blockSize : new int[] {1, 3, 16, 5000}) {
+			final FrontCodedStringDictionary dict = new FrontCodedStringDictionary(strings, false, blockSize);
+			assertEquals(Arrays.asList(strings), dict);
+			for (int i = 0; i < strings.length; i++) {
+				assertEquals(strings[i], dict.get(i));
+				assertEquals(i, dict.indexOf(strings[i]));
+			}
+			assertEquals(-1, dict.indexOf("a"));
+			assertEquals(-1, dict.indexOf("kez"));
+			assertEquals(-1, dict.indexOf(strings[0] + "\u0000"));
+			
+			for (final String prefix : new String[] {"", "key", "keya", "keyab", "keyd", "keydddddddd", "x"}) {
+				final int[] range = dict.prefixRange(prefix);
+				for (int i = 0; i < strings.length; i++)
+					assertEquals(prefix + ": " + i, strings[i].startsWith(prefix), range[0] <= i && i < range[1]);
+			}
+			
+			assertEquals(dict, FrontCodedStringDictionary.fromByteArray(dict.toByteArray()));
+		}
+		
+		final FrontCodedStringDictionary ci = new FrontCodedStringDictionary(Arrays.asList("Alpha", "beta", "BETAMAX", "gamma"), true);
+		assertEquals(1, ci.indexOf("BETA"));
+		assertEquals(Arrays.asList("beta", "BETAMAX"), ci.withPrefix("Bet"));
+		assertTrue(FrontCodedStringDictionary.fromByteArray(ci.toByteArray()).contains("ALPHA"));
+		
+		try {
+			new FrontCodedStringDictionary(new String[] {"b", "a"});
+			fail();
+		} catch (final IllegalArgumentException e) {}
+		
+	}
+	
+}
@@ -0,0 +1,39 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IntHashSetTest {
+	
+	@Test
+	public void test() {
+		
+		final Random rand = new Random(1);
+		final IntHashSet set = new IntHashSet();
+		final Set<Integer> expected = new HashSet<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			final int n = rand.nextInt(2000) - 100; // includes 0, which is stored separately
+			if (rand.nextInt(3) == 0)
+				assertEquals(expected.remove(n), set.remove(n));
+			else
+				assertEquals(expected.add(n), set.add(n));
+		}
+		assertEquals(expected.size(), set.size());
+		for (int n = -200; n < 2000; n++)
+			assertEquals(expected.contains(n), set.contains(n));
+		assertEquals(expected, set.asSet());
+		assertEquals(expected.hashCode(), set.hashCode());
+		assertEquals(set, new IntHashSet(CollectionUtils.toArray(set.asSet())));
+		
+		set.asSet().retainAll(new HashSet<Integer>(new IntArrayList(new int[] {0, 1, 2, 3}).asList()));
+		expected.retainAll(new HashSet<Integer>(java.util.Arrays.asList(0, 1, 2, 3)));
+		assertEquals(expected, set.asSet());
+		
+	}
+	
+}
@@ -0,0 +1,84 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import ch.njol.util.Checker;
+
+public class ParallelArraysTest {
+	
+	/**
+	 * Accepts positive multiples of the given number, and is slow enough that the pool's threads are still scanning when the current thread has finished its chunks
+	 */
+	private final static class SlowChecker implements Checker<Integer> {
+		
+		private final int divisor;
+		
+		SlowChecker(final int divisor) {
+			this.divisor = divisor;
+		}
+		
+		@Override
+		public boolean check(final Integer i) {
+			double d = i;
+			for (int j = 0; j < 50; j++)
+				d = Math.sqrt(d + j);
+			return d >= 0 && i > 0 && i % divisor == 0;
+		}
+		
+	}
+	
+	@Test
+	public void test() throws InterruptedException {
+		
+		final Integer[] array = new Integer[1 << 16];
+		for (int i = 0; i < array.length; i++)
+			array[i] = i;
+		
+		// a limited thread pool determines the number of threads, thus this uses the pool even on a single processor
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (int run = 0; run < 5; run++) {
+				assertEquals(array.length - 1, ParallelArrays.count(executor, array, new SlowChecker(1)));
+				assertEquals((array.length - 1) / 3, ParallelArrays.count(executor, array, new SlowChecker(3)));
+				final BitSet indices = ParallelArrays.filterIndices(executor, array, new SlowChecker(7));
+				assertEquals((array.length - 1) / 7, indices.cardinality());
+				for (int i = 0; i < array.length; i++)
+					assertEquals(i > 0 && i % 7 == 0, indices.get(i));
+				assertEquals((array.length - 1) / 5, ParallelArrays.filter(executor, array, new SlowChecker(5)).length);
+				
+				// the first match is found even if later chunks contain matches too
+				assertEquals(20000, ParallelArrays.indexOf(executor, array, new SlowChecker(20000)));
+				assertEquals(-1, ParallelArrays.indexOf(executor, array, new SlowChecker(1 << 20)));
+				assertEquals(Integer.valueOf(12345), ParallelArrays.findFirst(executor, array, new Checker<Integer>() {
+					@Override
+					public boolean check(final Integer i) {
+						return i >= 12345;
+					}
+				}));
+			}
+			
+			// exceptions of the pool's threads are rethrown
+			try {
+				ParallelArrays.count(executor, array, new Checker<Integer>() {
+					@Override
+					public boolean check(final Integer i) {
+						if (i == array.length - 1)
+							throw new IllegalStateException();
+						return true;
+					}
+				});
+				fail();
+			} catch (final IllegalStateException e) {}
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,37 @@
+package ch.njol.util.coll;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentBidiMapTest {
+	
+	@Test
+	public void test() {
+		
+		// a small range makes pairs replace each other, a large one creates deep tries
+		for (final int range : new int[] {20, 100000}) {
+			final PersistentBidiMap<Integer, Integer> map = new PersistentBidiMap<Integer, Integer>();
+			BidiHashMapTest.testRandomOperations(map, new Random(range), range);
+			
+			// modifying a clone or the original doesn't change the other one
+			final Map<Integer, Integer> expected = new HashMap<Integer, Integer>(map);
+			final PersistentBidiMap<Integer, Integer> clone = map.clone();
+			clone.put(-1, -1);
+			clone.remove(map.keySet().iterator().next());
+			map.getReverseView().put(-2, -2);
+			assertEquals(expected.size() + 1, map.size());
+			assertEquals(expected.size(), clone.size());
+			map.remove(-2);
+			assertEquals(expected, map);
+			clone.remove(-1);
+			assertEquals(expected.size() - 1, clone.size());
+		}
+		
+	}
+	
+}